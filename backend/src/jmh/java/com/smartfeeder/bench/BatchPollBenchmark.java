@@ -0,0 +1,168 @@
+package com.smartfeeder.bench;
+
+import com.smartfeeder.dao.DbClient;
+import com.smartfeeder.dao.StorageService;
+import com.smartfeeder.domain.PollApi;
+import com.smartfeeder.security.HmacService;
+import com.smartfeeder.security.SecretCryptoService;
+import com.smartfeeder.security.SecretHashService;
+import com.smartfeeder.service.DeviceAuthService;
+import com.smartfeeder.service.DeviceCache;
+import com.smartfeeder.service.DeviceNonceStore;
+import com.smartfeeder.service.DevicePollService;
+import com.smartfeeder.service.DeviceStatusTable;
+import com.smartfeeder.service.FeedLogWriter;
+import com.smartfeeder.service.FeedStatsRollup;
+import com.smartfeeder.service.LongPollService;
+import com.smartfeeder.service.PollAdmissionLimiter;
+import com.smartfeeder.service.PollEncoding;
+import com.smartfeeder.service.PollIntervalPolicy;
+import com.smartfeeder.service.PollRateLimiter;
+import com.smartfeeder.service.TelemetryStore;
+import com.smartfeeder.util.Jsons;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * batchSize device polls (status, one ack, command claim, config reload, signatures off) sent one by one versus as
+ * one /api/device/batch body over StubDataSource, with sync status writes. Logs are left out: the stub cannot stand
+ * in for the COPY the batch uses. Reports round trips; divide by polls for the per-device figure.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchPollBenchmark {
+    private static final String SECRET = "bench-device-secret-0123456789abcdef";
+    private static final int DEVICES = 4_096;
+
+    @Param({"10", "100"})
+    public int batchSize;
+
+    @Param({"0", "200"})
+    public long roundTripMicros;
+
+    private StubDataSource dataSource;
+    private DevicePollService pollService;
+    private String[] deviceIds;
+    private byte[][] bodies;
+    private byte[][] batches;
+
+    // JMH sums EVENTS counters over iterations, so totals are reported; round trips per poll = roundTrips / polls.
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PerPoll {
+        public long polls;
+        public long roundTrips;
+
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            polls = 0;
+            roundTrips = 0;
+        }
+
+        void record(int count, long trips) {
+            polls += count;
+            roundTrips += trips;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchAppConfig base = BenchAppConfig.of(false, 1_000_000);
+        BenchAppConfig config = new BenchAppConfig(base.deviceAuth(), base.pollInterval(), base.admission(),
+            base.deviceCache(), base.rateLimit(), base.commandQueue(), base.longPoll(), base.deviceBatch(),
+            base.feedLogs(), base.feedStats(), base.telemetry(), new BenchAppConfig.DeviceStatus("sync", 15),
+            base.session(), base.security());
+        SecretHashService secretHashService = new SecretHashService();
+        SecretCryptoService secretCryptoService = new SecretCryptoService(config);
+
+        dataSource = new StubDataSource(roundTripMicros).answer(
+            "FROM devices\nWHERE id=?",
+            List.of(StubDataSource.deviceRow("feeder", secretHashService.sha256Hex(SECRET),
+                secretCryptoService.encrypt(SECRET), 1))
+        );
+        StorageService storage = new StorageService(DbClient.of(dataSource));
+        storage.reconcilePendingCommands();
+
+        DeviceAuthService deviceAuthService = new DeviceAuthService(config, new HmacService(), secretHashService);
+        pollService = new DevicePollService(
+            storage,
+            new PollRateLimiter(config),
+            deviceAuthService,
+            new DeviceCache(storage, secretCryptoService, deviceAuthService, config),
+            new DeviceNonceStore(storage, config, null),
+            new FeedLogWriter(storage, config),
+            new DeviceStatusTable(storage, config),
+            new LongPollService(storage, config),
+            new PollIntervalPolicy(config),
+            PollAdmissionLimiter.of(config, 12),
+            new FeedStatsRollup(storage, config),
+            new TelemetryStore(storage, config),
+            config
+        );
+
+        long now = Instant.now().getEpochSecond();
+        deviceIds = new String[DEVICES];
+        bodies = new byte[DEVICES][];
+        for (int i = 0; i < DEVICES; i++) {
+            deviceIds[i] = "feeder-" + i;
+            bodies[i] = Jsons.bytes(new PollApi.PollRequest(
+                deviceIds[i],
+                now,
+                new PollApi.PollStatus("1.4.2", 86_400, -61, null, now - 3_600),
+                List.of(),
+                List.of("00000000-0000-0000-0000-000000000001"),
+                null
+            ));
+        }
+        batches = new byte[DEVICES / batchSize][];
+        for (int b = 0; b < batches.length; b++) {
+            StringBuilder envelope = new StringBuilder("{\"polls\":[");
+            for (int i = b * batchSize; i < (b + 1) * batchSize; i++) {
+                envelope.append(i == b * batchSize ? "" : ",")
+                    .append("{\"deviceId\":\"").append(deviceIds[i]).append("\",\"poll\":")
+                    .append(new String(bodies[i], StandardCharsets.UTF_8)).append('}');
+            }
+            batches[b] = envelope.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public void singlePolls(PerPoll perPoll) {
+        int b = perPoll.next++ % batches.length;
+        long tripsBefore = dataSource.roundTrips();
+        for (int i = b * batchSize; i < (b + 1) * batchSize; i++) {
+            pollService.handlePoll(bodies[i], PollEncoding.JSON, deviceIds[i], null, null);
+        }
+        perPoll.record(batchSize, dataSource.roundTrips() - tripsBefore);
+    }
+
+    @Benchmark
+    public PollApi.PollBatchResponse batch(PerPoll perPoll) {
+        int b = perPoll.next++ % batches.length;
+        long tripsBefore = dataSource.roundTrips();
+        PollApi.PollBatchResponse response = pollService.handleBatch(batches[b], PollEncoding.JSON);
+        perPoll.record(batchSize, dataSource.roundTrips() - tripsBefore);
+        return response;
+    }
+}
@@ -0,0 +1,116 @@
+package com.smartfeeder.bench;
+
+import com.smartfeeder.config.AppConfig;
+
+/**
+ * Production-like application config for benchmarks. Feed logs are written synchronously so every poll
+ * does its storage work inside the measured call instead of filling an undrained buffer.
+ */
+public record BenchAppConfig(DeviceAuthConfig deviceAuth,
+                             PollIntervalConfig pollInterval,
+                             AdmissionConfig admission,
+                             DeviceCacheConfig deviceCache,
+                             RateLimitConfig rateLimit,
+                             CommandQueueConfig commandQueue,
+                             LongPollConfig longPoll,
+                             DeviceBatchConfig deviceBatch,
+                             FeedLogsConfig feedLogs,
+                             FeedStatsConfig feedStats,
+                             TelemetryConfig telemetry,
+                             DeviceStatusConfig deviceStatus,
+                             SessionConfig session,
+                             SecurityConfig security) implements AppConfig {
+    public static final String ENCRYPTION_KEY = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+
+    record DeviceAuth(boolean signatureEnabled,
+                      int pollIntervalSec,
+                      int nonceWindowSec,
+                      int maxPollPerMinute,
+                      String rateLimitAlgorithm,
+                      String rateLimitOverrides,
+                      String nonceStore,
+                      boolean canonicalSignatureFallback) implements DeviceAuthConfig {
+    }
+
+    record PollInterval(String mode, int minSec, int maxSec, int activeWindowSec, int jitterPercent)
+        implements PollIntervalConfig {
+    }
+
+    record Admission(int pollPermits,
+                     int adminReservedConnections,
+                     int backgroundReservedConnections,
+                     int queueWaitMs,
+                     int retryAfterMinSec,
+                     int retryAfterMaxSec) implements AdmissionConfig {
+    }
+
+    record DeviceCache(int maxSize, int ttlSec) implements DeviceCacheConfig {
+    }
+
+    record RateLimit(int slots) implements RateLimitConfig {
+    }
+
+    record CommandQueue(int reconcileIntervalSec) implements CommandQueueConfig {
+    }
+
+    record LongPoll(int maxWaitSec, boolean listenNotify) implements LongPollConfig {
+    }
+
+    record DeviceBatch(int maxPolls) implements DeviceBatchConfig {
+    }
+
+    record FeedLogs(String writeMode,
+                    int bufferSize,
+                    int batchSize,
+                    int flushIntervalMs,
+                    String partitionInterval,
+                    int partitionPremake,
+                    int retentionDays,
+                    int partitionCheckIntervalMin) implements FeedLogsConfig {
+    }
+
+    record FeedStats(boolean enabled, int flushIntervalSec) implements FeedStatsConfig {
+    }
+
+    record Telemetry(boolean enabled, int chunkMaxSamples, int chunkMaxAgeSec, int flushIntervalSec, int retentionDays)
+        implements TelemetryConfig {
+    }
+
+    record DeviceStatus(String writeMode, int flushIntervalSec) implements DeviceStatusConfig {
+    }
+
+    record Session(String cookieName, int ttlHours, boolean cookieSecure, String secret) implements SessionConfig {
+    }
+
+    record Security(String encryptionKey,
+                    int encryptionKeyVersion,
+                    String decryptionKeys,
+                    int reencryptIntervalSec,
+                    int reencryptBatchSize,
+                    String operatorEmails) implements SecurityConfig {
+    }
+
+    public static BenchAppConfig of(boolean signatureEnabled, int maxPollPerMinute) {
+        return new BenchAppConfig(
+            new DeviceAuth(signatureEnabled, 60, 300, maxPollPerMinute, "token-bucket", "", "memory", false),
+            new PollInterval("adaptive", 5, 600, 120, 10),
+            new Admission(0, 2, 2, 100, 5, 30),
+            new DeviceCache(50_000, 60),
+            new RateLimit(65_536),
+            new CommandQueue(30),
+            new LongPoll(0, false),
+            new DeviceBatch(100),
+            new FeedLogs("sync", 65_536, 5_000, 200, "day", 7, 0, 60),
+            new FeedStats(true, 10),
+            new Telemetry(true, 720, 900, 10, 90),
+            new DeviceStatus("coalesced", 15),
+            new Session("sf_session", 24, false, "bench-session-secret"),
+            new Security(ENCRYPTION_KEY, 1, "", 300, 500, "")
+        );
+    }
+
+    @Override
+    public String baseUrl() {
+        return "http://localhost";
+    }
+}
@@ -0,0 +1,163 @@
+package com.smartfeeder.bench;
+
+import com.smartfeeder.dao.DbClient;
+import com.smartfeeder.dao.StorageService;
+import com.smartfeeder.service.MigrationRunner;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Admin log list on one device with {@code rows} feed logs in a real PostgreSQL (BENCH_JDBC_URL, BENCH_DB_USER,
+ * BENCH_DB_PASSWORD): OFFSET versus keyset paging at a given page depth, and message search with and without the
+ * trigram index. The device is seeded once and reused by later runs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeedLogQueryBenchmark {
+    private static final String DEVICE_ID = "bench-logs";
+    private static final String OWNER_EMAIL = "bench-logs@local";
+    private static final int PAGE_SIZE = 50;
+    private static final int SEED_BATCH = 500_000;
+
+    @Param({"10000000"})
+    public int rows;
+
+    @Param({"0", "200", "20000"})
+    public int page;
+
+    // false hides GIN from the planner (bitmap scans off), which is how search ran before V4.
+    @Param({"true", "false"})
+    public boolean trigramIndex;
+
+    @Param({"motor=3fa"})
+    public String query;
+
+    private HikariDataSource dataSource;
+    private StorageService storage;
+    private StorageService.FeedLogKey pageKey;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = System.getenv("BENCH_JDBC_URL");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("FeedLogQueryBenchmark needs BENCH_JDBC_URL pointing at a scratch database");
+        }
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername(System.getenv().getOrDefault("BENCH_DB_USER", "smartfeeder"));
+        config.setPassword(System.getenv().getOrDefault("BENCH_DB_PASSWORD", "smartfeeder"));
+        config.setMaximumPoolSize(2);
+        if (!trigramIndex) {
+            config.setConnectionInitSql("SET enable_bitmapscan = off");
+        }
+        dataSource = new HikariDataSource(config);
+        DbClient dbClient = DbClient.of(dataSource);
+        new MigrationRunner(dbClient);
+        storage = new StorageService(dbClient);
+
+        try (Connection connection = dataSource.getConnection()) {
+            seed(connection);
+            pageKey = page == 0 ? null : keyAt(connection, (long) page * PAGE_SIZE - 1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<StorageService.FeedLogRow> offsetPage() {
+        return storage.listFeedLogs(DEVICE_ID, null, null, PAGE_SIZE, page * PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<StorageService.FeedLogRow> keysetPage() {
+        return storage.listFeedLogsAfter(DEVICE_ID, null, null, null, null, pageKey, PAGE_SIZE + 1);
+    }
+
+    @Benchmark
+    public List<StorageService.FeedLogRow> searchFirstPage() {
+        return storage.listFeedLogsAfter(DEVICE_ID, null, query, null, null, null, PAGE_SIZE + 1);
+    }
+
+    private void seed(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("INSERT INTO users(id, email, password_hash) VALUES ('" + UUID.randomUUID()
+                + "', '" + OWNER_EMAIL + "', '-') ON CONFLICT (email) DO NOTHING");
+            st.execute("INSERT INTO devices(id, owner_user_id, name, secret_hash, encrypted_secret) "
+                + "SELECT '" + DEVICE_ID + "', id, 'bench', '-', '\\x00'::bytea FROM users WHERE email='"
+                + OWNER_EMAIL + "' ON CONFLICT (id) DO NOTHING");
+        }
+        long existing;
+        try (PreparedStatement st = connection.prepareStatement("SELECT count(*) FROM feed_logs WHERE device_id=?")) {
+            st.setString(1, DEVICE_ID);
+            try (ResultSet rs = st.executeQuery()) {
+                rs.next();
+                existing = rs.getLong(1);
+            }
+        }
+        if (existing >= rows) {
+            return;
+        }
+        // One row per second going back from now; md5 gives the search something trigram-selective to match.
+        String sql = """
+            INSERT INTO feed_logs(id, device_id, ts, type, message, meta_json)
+            SELECT gen_random_uuid(), ?, now() - g * interval '1 second',
+                   (ARRAY['AUTO_FEED','MANUAL_FEED','ERROR'])[1 + g % 3],
+                   'portion=' || (g % 5000) || ' motor=' || md5(g::text),
+                   '{}'::jsonb
+            FROM generate_series(?::bigint, ?::bigint) g
+            """;
+        try (PreparedStatement st = connection.prepareStatement(sql)) {
+            for (long from = existing; from < rows; from += SEED_BATCH) {
+                st.setString(1, DEVICE_ID);
+                st.setLong(2, from);
+                st.setLong(3, Math.min(rows, from + SEED_BATCH) - 1);
+                st.executeUpdate();
+            }
+        }
+        try (Statement st = connection.createStatement()) {
+            st.execute("ANALYZE feed_logs");
+        }
+    }
+
+    private static StorageService.FeedLogKey keyAt(Connection connection, long offset) throws SQLException {
+        String sql = "SELECT ts, id FROM feed_logs WHERE device_id=? ORDER BY ts DESC, id DESC OFFSET ? LIMIT 1";
+        try (PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setString(1, DEVICE_ID);
+            st.setLong(2, offset);
+            try (ResultSet rs = st.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalStateException("Device has fewer than " + (offset + 1) + " log rows");
+                }
+                return new StorageService.FeedLogKey(rs.getTimestamp("ts").toInstant(), rs.getObject("id", UUID.class));
+            }
+        }
+    }
+}
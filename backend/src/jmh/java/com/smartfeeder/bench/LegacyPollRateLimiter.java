@@ -0,0 +1,31 @@
+package com.smartfeeder.bench;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The map-based PollRateLimiter as it was before the packed-counter table, kept as a benchmark baseline.
+ */
+final class LegacyPollRateLimiter {
+    private final int maxPerMinute;
+    private final ConcurrentHashMap<String, CounterWindow> state = new ConcurrentHashMap<>();
+
+    LegacyPollRateLimiter(int maxPerMinute) {
+        this.maxPerMinute = maxPerMinute;
+    }
+
+    boolean allow(String key) {
+        long currentMinute = Instant.now().getEpochSecond() / 60;
+        CounterWindow updated = state.compute(key, (k, current) -> {
+            if (current == null || current.minute != currentMinute) {
+                return new CounterWindow(currentMinute, 1);
+            }
+            return new CounterWindow(current.minute, current.count + 1);
+        });
+
+        return updated.count <= maxPerMinute;
+    }
+
+    private record CounterWindow(long minute, int count) {
+    }
+}
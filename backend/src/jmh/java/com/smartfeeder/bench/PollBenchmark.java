@@ -0,0 +1,175 @@
+package com.smartfeeder.bench;
+
+import com.smartfeeder.dao.DbClient;
+import com.smartfeeder.dao.StorageService;
+import com.smartfeeder.domain.PollApi;
+import com.smartfeeder.security.HmacService;
+import com.smartfeeder.security.SecretCryptoService;
+import com.smartfeeder.security.SecretHashService;
+import com.smartfeeder.service.DeviceAuthService;
+import com.smartfeeder.service.DeviceCache;
+import com.smartfeeder.service.DeviceNonceStore;
+import com.smartfeeder.service.DevicePollService;
+import com.smartfeeder.service.DeviceStatusTable;
+import com.smartfeeder.service.FeedLogWriter;
+import com.smartfeeder.service.FeedStatsRollup;
+import com.smartfeeder.service.LongPollService;
+import com.smartfeeder.service.PollAdmissionLimiter;
+import com.smartfeeder.service.PollEncoding;
+import com.smartfeeder.service.PollIntervalPolicy;
+import com.smartfeeder.service.PollRateLimiter;
+import com.smartfeeder.service.TelemetryStore;
+import com.smartfeeder.util.Jsons;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end DevicePollService.handlePoll over StubDataSource: rate limit, device cache, signature and nonce
+ * checks, status, one log item, one ack and the command claim. Polls rotate over a fleet of devices sharing
+ * one secret; each poll carries a fresh nonce.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PollBenchmark {
+    private static final String SECRET = "bench-device-secret-0123456789abcdef";
+    private static final int DEVICES = 4_096;
+
+    @Param({"true", "false"})
+    public boolean signatureEnabled;
+
+    @Param({"0"})
+    public long roundTripMicros;
+
+    private final AtomicLong nonces = new AtomicLong();
+    private StubDataSource dataSource;
+    private HmacService hmacService;
+    private DevicePollService pollService;
+    private String[] deviceIds;
+    private PollApi.PollRequest[] requests;
+    private byte[][] bodies;
+    private String[] signatures;
+
+    // JMH sums EVENTS counters over iterations, so totals are reported; round trips per poll = roundTrips / polls.
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PerPoll {
+        public long polls;
+        public long roundTrips;
+
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            polls = 0;
+            roundTrips = 0;
+        }
+
+        void record(long trips) {
+            polls++;
+            roundTrips += trips;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchAppConfig config = BenchAppConfig.of(signatureEnabled, 4_095);
+        SecretHashService secretHashService = new SecretHashService();
+        SecretCryptoService secretCryptoService = new SecretCryptoService(config);
+        hmacService = new HmacService();
+
+        dataSource = new StubDataSource(roundTripMicros).answer(
+            "FROM devices\nWHERE id=?",
+            List.of(StubDataSource.deviceRow("feeder", secretHashService.sha256Hex(SECRET),
+                secretCryptoService.encrypt(SECRET), 1))
+        );
+        StorageService storage = new StorageService(DbClient.of(dataSource));
+        storage.reconcilePendingCommands();
+
+        DeviceAuthService deviceAuthService = new DeviceAuthService(config, hmacService, secretHashService);
+        pollService = new DevicePollService(
+            storage,
+            new PollRateLimiter(config),
+            deviceAuthService,
+            new DeviceCache(storage, secretCryptoService, deviceAuthService, config),
+            new DeviceNonceStore(storage, config, null),
+            new FeedLogWriter(storage, config),
+            new DeviceStatusTable(storage, config),
+            new LongPollService(storage, config),
+            new PollIntervalPolicy(config),
+            PollAdmissionLimiter.of(config, 12),
+            new FeedStatsRollup(storage, config),
+            new TelemetryStore(storage, config),
+            config
+        );
+
+        deviceIds = new String[DEVICES];
+        requests = new PollApi.PollRequest[DEVICES];
+        bodies = new byte[DEVICES][];
+        signatures = new String[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            deviceIds[i] = "feeder-" + i;
+        }
+    }
+
+    // Requests are signed up front, as the device would; the signed timestamp has to stay inside the nonce window.
+    @Setup(Level.Iteration)
+    public void signRequests() {
+        long now = Instant.now().getEpochSecond();
+        for (int i = 0; i < DEVICES; i++) {
+            requests[i] = PollComponentsBenchmark.pollRequest(deviceIds[i], now);
+            bodies[i] = Jsons.bytes(requests[i]);
+            signatures[i] = hmacService.signHex(bodies[i], SECRET);
+        }
+    }
+
+    // The controller path: the body arrives as bytes.
+    @Benchmark
+    public PollApi.PollResponse handlePoll(PerPoll perPoll) {
+        int i = perPoll.next++ & (DEVICES - 1);
+        long tripsBefore = dataSource.roundTrips();
+        PollApi.PollResponse response = pollService.handlePoll(
+            bodies[i],
+            PollEncoding.JSON,
+            deviceIds[i],
+            Long.toString(nonces.incrementAndGet()),
+            signatures[i]
+        );
+        perPoll.record(dataSource.roundTrips() - tripsBefore);
+        return response;
+    }
+
+    // The previous controller path: decode into the record first, then sign over its canonical re-serialization.
+    @Benchmark
+    public PollApi.PollResponse handlePollDecoded(PerPoll perPoll) throws IOException {
+        int i = perPoll.next++ & (DEVICES - 1);
+        long tripsBefore = dataSource.roundTrips();
+        PollApi.PollResponse response = pollService.handlePoll(
+            Jsons.mapper().readValue(bodies[i], PollApi.PollRequest.class),
+            deviceIds[i],
+            Long.toString(nonces.incrementAndGet()),
+            signatures[i]
+        );
+        perPoll.record(dataSource.roundTrips() - tripsBefore);
+        return response;
+    }
+}
@@ -0,0 +1,135 @@
+package com.smartfeeder.bench;
+
+import com.smartfeeder.domain.PollApi;
+import com.smartfeeder.util.Cbors;
+import com.smartfeeder.util.Jsons;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JSON vs CBOR for the poll request and response records: encode and decode time, and payload size
+ * (encoded bytes / messages) for an idle poll and for one carrying a full batch of logs and commands.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PollCodecBenchmark {
+    @Param({"idle", "busy"})
+    public String shape;
+
+    private PollApi.PollRequest request;
+    private PollApi.PollResponse response;
+    private byte[] requestJson;
+    private byte[] requestCbor;
+    private byte[] responseJson;
+    private byte[] responseCbor;
+
+    // JMH sums EVENTS counters over iterations; bytes per message = bytes / messages.
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+        public long messages;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            messages = 0;
+            bytes = 0;
+        }
+
+        byte[] record(byte[] encoded) {
+            messages++;
+            bytes += encoded.length;
+            return encoded;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long now = Instant.now().getEpochSecond();
+        int items = "busy".equals(shape) ? 20 : 0;
+
+        List<PollApi.PollLogItem> log = new ArrayList<>();
+        List<String> ack = new ArrayList<>();
+        List<PollApi.PollCommand> commands = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            log.add(new PollApi.PollLogItem(now - i, "AUTO_FEED", "portion=1200", Map.of("portionMs", 1200, "profile", "default")));
+            ack.add("00000000-0000-0000-0000-0000000000" + (10 + i));
+            commands.add(new PollApi.PollCommand("00000000-0000-0000-0000-0000000001" + (10 + i), "FEED_NOW", Map.of("portionMs", 800)));
+        }
+        request = new PollApi.PollRequest(
+            "feeder-001",
+            now,
+            new PollApi.PollStatus("1.4.2", 86_400, -61, null, now - 3_600),
+            log,
+            ack,
+            1L
+        );
+        response = new PollApi.PollResponse(now, 60, commands, 1L, null);
+
+        requestJson = Jsons.bytes(request);
+        requestCbor = Cbors.bytes(request);
+        responseJson = Jsons.bytes(response);
+        responseCbor = Cbors.bytes(response);
+    }
+
+    @Benchmark
+    public byte[] encodeRequestJson(Size size) {
+        return size.record(Jsons.bytes(request));
+    }
+
+    @Benchmark
+    public byte[] encodeRequestCbor(Size size) {
+        return size.record(Cbors.bytes(request));
+    }
+
+    @Benchmark
+    public PollApi.PollRequest decodeRequestJson() throws IOException {
+        return Jsons.mapper().readValue(requestJson, PollApi.PollRequest.class);
+    }
+
+    @Benchmark
+    public PollApi.PollRequest decodeRequestCbor() throws IOException {
+        return Cbors.mapper().readValue(requestCbor, PollApi.PollRequest.class);
+    }
+
+    @Benchmark
+    public byte[] encodeResponseJson(Size size) {
+        return size.record(Jsons.bytes(response));
+    }
+
+    @Benchmark
+    public byte[] encodeResponseCbor(Size size) {
+        return size.record(Cbors.bytes(response));
+    }
+
+    @Benchmark
+    public PollApi.PollResponse decodeResponseJson() throws IOException {
+        return Jsons.mapper().readValue(responseJson, PollApi.PollResponse.class);
+    }
+
+    @Benchmark
+    public PollApi.PollResponse decodeResponseCbor() throws IOException {
+        return Cbors.mapper().readValue(responseCbor, PollApi.PollResponse.class);
+    }
+}
@@ -0,0 +1,142 @@
+package com.smartfeeder.bench;
+
+import com.smartfeeder.domain.PollApi;
+import com.smartfeeder.security.HmacService;
+import com.smartfeeder.security.SecretCryptoService;
+import com.smartfeeder.security.SecretHashService;
+import com.smartfeeder.service.DeviceAuthService;
+import com.smartfeeder.service.PollRateLimiter;
+import com.smartfeeder.util.Jsons;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The per-poll building blocks of DevicePollService.handlePoll, each measured on its own with a typical
+ * poll body (status, one log item, one ack).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PollComponentsBenchmark {
+    private static final String DEVICE_ID = "feeder-bench";
+    private static final String SECRET = "bench-device-secret-0123456789abcdef";
+    private static final int RATE_LIMIT_KEYS = 4_096;
+
+    private static final DeviceAuthService.NonceStore ACCEPT_ALL = new DeviceAuthService.NonceStore() {
+        @Override
+        public void purgeOldNonce(long minEpochExclusive) {
+        }
+
+        @Override
+        public boolean registerNonce(String deviceId, String nonce, long tsEpoch) {
+            return true;
+        }
+    };
+
+    private HmacService hmacService;
+    private SecretCryptoService secretCryptoService;
+    private DeviceAuthService deviceAuthService;
+    private DeviceAuthService.DeviceCredentials credentials;
+    private PollRateLimiter pollRateLimiter;
+    private HmacService.MacKey macKey;
+    private byte[] encryptedSecret;
+    private String secretHash;
+    private String[] rateLimitKeys;
+    private int nextKey;
+
+    private PollApi.PollRequest request;
+    private byte[] body;
+    private String signature;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchAppConfig config = BenchAppConfig.of(true, 4_095);
+        SecretHashService secretHashService = new SecretHashService();
+        hmacService = new HmacService();
+        secretCryptoService = new SecretCryptoService(config);
+        deviceAuthService = new DeviceAuthService(config, hmacService, secretHashService);
+        pollRateLimiter = new PollRateLimiter(config);
+
+        macKey = hmacService.keyFor(SECRET);
+        encryptedSecret = secretCryptoService.encrypt(SECRET);
+        secretHash = secretHashService.sha256Hex(SECRET);
+        credentials = deviceAuthService.credentials(secretHash, SECRET);
+
+        rateLimitKeys = new String[RATE_LIMIT_KEYS];
+        for (int i = 0; i < rateLimitKeys.length; i++) {
+            rateLimitKeys[i] = "feeder-" + i;
+        }
+    }
+
+    // The signed timestamp has to stay inside the nonce window for the whole run.
+    @Setup(Level.Iteration)
+    public void signRequest() {
+        request = pollRequest(DEVICE_ID, Instant.now().getEpochSecond());
+        body = Jsons.bytes(request);
+        signature = hmacService.signHex(body, macKey);
+    }
+
+    @Benchmark
+    public boolean hmacVerifyHex() {
+        return hmacService.verifyHex(body, macKey, signature);
+    }
+
+    @Benchmark
+    public boolean hmacVerifyHexFromSecret() {
+        return hmacService.verifyHex(body, SECRET, signature);
+    }
+
+    @Benchmark
+    public String secretDecrypt() {
+        return secretCryptoService.decrypt(encryptedSecret);
+    }
+
+    @Benchmark
+    public byte[] jsonsBytes() {
+        return Jsons.bytes(request);
+    }
+
+    @Benchmark
+    public void deviceAuthValidate() {
+        deviceAuthService.validate(DEVICE_ID, DEVICE_ID, "nonce", signature, request.ts(), body, credentials, ACCEPT_ALL);
+    }
+
+    @Benchmark
+    public void deviceAuthValidateUncached() {
+        deviceAuthService.validate(DEVICE_ID, DEVICE_ID, "nonce", signature, request.ts(), body,
+            secretHash, SECRET, ACCEPT_ALL);
+    }
+
+    @Benchmark
+    public boolean rateLimiterAllow() {
+        String key = rateLimitKeys[nextKey++ & (RATE_LIMIT_KEYS - 1)];
+        return pollRateLimiter.allow(key, null).allowed();
+    }
+
+    static PollApi.PollRequest pollRequest(String deviceId, long ts) {
+        return new PollApi.PollRequest(
+            deviceId,
+            ts,
+            new PollApi.PollStatus("1.4.2", 86_400, -61, null, ts - 3_600),
+            List.of(new PollApi.PollLogItem(ts - 30, "AUTO_FEED", "portion=1200", Map.of("portionMs", 1200))),
+            List.of("00000000-0000-0000-0000-000000000001"),
+            1L
+        );
+    }
+}
@@ -0,0 +1,97 @@
+package com.smartfeeder.bench;
+
+import com.smartfeeder.service.PollRateLimiter;
+import com.smartfeeder.service.RateLimitAlgorithm;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Map-based limiter versus the packed-counter table over 10k device ids at 1, 8 and 64 threads.
+ * Run with {@code -prof gc} to compare allocation per call.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PollRateLimiterBenchmark {
+    private static final int DEVICES = 10_000;
+    private static final int MAX_PER_MINUTE = 120;
+
+    private String[] deviceIds;
+    private LegacyPollRateLimiter legacy;
+    private PollRateLimiter packed;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void start() {
+            next = (int) (Thread.currentThread().getId() * 7919 % DEVICES);
+        }
+
+        String nextId(String[] ids) {
+            next = next + 1 == ids.length ? 0 : next + 1;
+            return ids[next];
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        deviceIds = new String[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            deviceIds[i] = "feeder-" + i;
+        }
+        legacy = new LegacyPollRateLimiter(MAX_PER_MINUTE);
+        packed = PollRateLimiter.of(RateLimitAlgorithm.FIXED_WINDOW, MAX_PER_MINUTE, 65_536);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean legacy1(Cursor cursor) {
+        return legacy.allow(cursor.nextId(deviceIds));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean legacy8(Cursor cursor) {
+        return legacy.allow(cursor.nextId(deviceIds));
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean legacy64(Cursor cursor) {
+        return legacy.allow(cursor.nextId(deviceIds));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean packed1(Cursor cursor) {
+        return packed.allow(cursor.nextId(deviceIds));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean packed8(Cursor cursor) {
+        return packed.allow(cursor.nextId(deviceIds));
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean packed64(Cursor cursor) {
+        return packed.allow(cursor.nextId(deviceIds));
+    }
+}
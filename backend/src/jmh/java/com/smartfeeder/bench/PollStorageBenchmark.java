@@ -0,0 +1,109 @@
+package com.smartfeeder.bench;
+
+import com.smartfeeder.dao.DbClient;
+import com.smartfeeder.dao.StorageService;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Storage work of one idle-device poll (status, one log, one ack, command claim, config reload) issued as
+ * separate StorageService calls versus one PollSession. Reports pool acquisitions and round trips per poll.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PollStorageBenchmark {
+    private static final String DEVICE_ID = "feeder-bench";
+    private static final List<String> ACKS = List.of("00000000-0000-0000-0000-000000000001");
+    private static final List<StorageService.FeedLogInput> LOGS = List.of(
+        new StorageService.FeedLogInput(Instant.EPOCH, "AUTO_FEED", "portion=1200", "{}")
+    );
+
+    @Param({"0", "200"})
+    public long roundTripMicros;
+
+    private StubDataSource dataSource;
+    private DbClient dbClient;
+    private StorageService storage;
+
+    // JMH sums EVENTS counters over iterations, so totals are reported; divide acquisitions and round trips by polls.
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PerPoll {
+        public long polls;
+        public long acquisitions;
+        public long roundTrips;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            polls = 0;
+            acquisitions = 0;
+            roundTrips = 0;
+        }
+
+        void record(long acquired, long trips) {
+            polls++;
+            acquisitions += acquired;
+            roundTrips += trips;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new StubDataSource(roundTripMicros);
+        dbClient = DbClient.of(dataSource);
+        storage = new StorageService(dbClient);
+        // Warms the pending-command index against an empty queue, as on a node whose devices are idle.
+        storage.reconcilePendingCommands();
+    }
+
+    @Benchmark
+    public void separateCalls(PerPoll perPoll) {
+        long acquiredBefore = dbClient.acquisitions();
+        long tripsBefore = dataSource.roundTrips();
+
+        storage.updateDeviceStatus(DEVICE_ID, Instant.EPOCH, "{}", "1.0.0");
+        storage.insertFeedLogs(DEVICE_ID, LOGS);
+        storage.ackCommands(DEVICE_ID, ACKS);
+        storage.fetchPendingAndMarkSent(DEVICE_ID, 10);
+        storage.getActiveProfileName(DEVICE_ID);
+        storage.listProfilesByDevice(DEVICE_ID);
+        storage.listScheduleByDevice(DEVICE_ID);
+
+        perPoll.record(dbClient.acquisitions() - acquiredBefore, dataSource.roundTrips() - tripsBefore);
+    }
+
+    @Benchmark
+    public void pollSession(PerPoll perPoll) {
+        long acquiredBefore = dbClient.acquisitions();
+        long tripsBefore = dataSource.roundTrips();
+
+        try (var session = storage.openPollSession()) {
+            session.updateDeviceStatus(DEVICE_ID, Instant.EPOCH, "{}", "1.0.0");
+            session.insertFeedLogs(DEVICE_ID, LOGS);
+            session.ackCommands(DEVICE_ID, ACKS);
+            session.fetchPendingAndMarkSent(DEVICE_ID, 10);
+            session.loadDeviceConfig(DEVICE_ID);
+            session.commit();
+        }
+
+        perPoll.record(dbClient.acquisitions() - acquiredBefore, dataSource.roundTrips() - tripsBefore);
+    }
+}
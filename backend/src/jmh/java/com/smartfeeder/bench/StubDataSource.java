@@ -0,0 +1,231 @@
+package com.smartfeeder.bench;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * In-memory JDBC stand-in for benchmarks. Every statement execution and commit costs one simulated
+ * network round trip; queries answer with canned rows matched by SQL fragment, or no rows.
+ */
+public final class StubDataSource implements DataSource {
+    private final long roundTripNanos;
+    private final Map<String, List<Map<String, Object>>> answers = new LinkedHashMap<>();
+    private final LongAdder connections = new LongAdder();
+    private final LongAdder roundTrips = new LongAdder();
+
+    public StubDataSource(long roundTripMicros) {
+        this.roundTripNanos = roundTripMicros * 1_000;
+    }
+
+    public StubDataSource answer(String sqlFragment, List<Map<String, Object>> rows) {
+        answers.put(sqlFragment, rows);
+        return this;
+    }
+
+    public long connections() {
+        return connections.sum();
+    }
+
+    public long roundTrips() {
+        return roundTrips.sum();
+    }
+
+    public static Map<String, Object> deviceRow(String deviceId, String secretHash, byte[] encryptedSecret, long configVersion) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", deviceId);
+        row.put("owner_user_id", UUID.nameUUIDFromBytes(deviceId.getBytes()));
+        row.put("name", deviceId);
+        row.put("secret_hash", secretHash);
+        row.put("encrypted_secret", encryptedSecret);
+        row.put("last_seen_at", null);
+        row.put("status_json", "{}");
+        row.put("firmware_version", "1.0.0");
+        row.put("active_profile_id", null);
+        row.put("config_version", configVersion);
+        row.put("created_at", Timestamp.from(Instant.EPOCH));
+        return row;
+    }
+
+    @Override
+    public Connection getConnection() {
+        connections.increment();
+        return proxy(Connection.class, (p, m, args) -> switch (m.getName()) {
+            case "prepareStatement" -> statement((String) args[0]);
+            case "commit" -> {
+                roundTrip();
+                yield null;
+            }
+            case "createArrayOf" -> array((Object[]) args[1]);
+            case "getAutoCommit" -> true;
+            case "unwrap" -> throw new SQLFeatureNotSupportedException("stub connection");
+            default -> defaultValue(m.getReturnType());
+        });
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return getConnection();
+    }
+
+    private PreparedStatement statement(String sql) {
+        int[] batch = {0};
+        return proxy(PreparedStatement.class, (p, m, args) -> switch (m.getName()) {
+            case "addBatch" -> {
+                batch[0]++;
+                yield null;
+            }
+            case "executeBatch" -> {
+                roundTrip();
+                int[] counts = new int[batch[0]];
+                Arrays.fill(counts, 1);
+                batch[0] = 0;
+                yield counts;
+            }
+            case "executeUpdate" -> {
+                roundTrip();
+                yield 1;
+            }
+            case "execute" -> {
+                roundTrip();
+                yield false;
+            }
+            case "executeQuery" -> {
+                roundTrip();
+                yield resultSet(rowsFor(sql));
+            }
+            default -> defaultValue(m.getReturnType());
+        });
+    }
+
+    private List<Map<String, Object>> rowsFor(String sql) {
+        for (var e : answers.entrySet()) {
+            if (sql.contains(e.getKey())) {
+                return e.getValue();
+            }
+        }
+        return List.of();
+    }
+
+    private static ResultSet resultSet(List<Map<String, Object>> rows) {
+        int[] cursor = {-1};
+        Object[] last = {null};
+        return proxy(ResultSet.class, (p, m, args) -> {
+            String name = m.getName();
+            if (name.equals("next")) {
+                return ++cursor[0] < rows.size();
+            }
+            if (name.equals("wasNull")) {
+                return last[0] == null;
+            }
+            if (name.startsWith("get") && args != null && args.length >= 1 && args[0] instanceof String column) {
+                Object value = rows.get(cursor[0]).get(column);
+                last[0] = value;
+                if (value == null) {
+                    return defaultValue(m.getReturnType());
+                }
+                return switch (name) {
+                    case "getString" -> value.toString();
+                    case "getInt" -> ((Number) value).intValue();
+                    case "getLong" -> ((Number) value).longValue();
+                    default -> value;
+                };
+            }
+            return defaultValue(m.getReturnType());
+        });
+    }
+
+    private static Array array(Object[] elements) {
+        return proxy(Array.class, (p, m, args) -> m.getName().equals("getArray") ? elements : defaultValue(m.getReturnType()));
+    }
+
+    private void roundTrip() {
+        roundTrips.increment();
+        if (roundTripNanos > 0) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StubDataSource.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == double.class) {
+            return 0d;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        if (type == int[].class) {
+            return new int[0];
+        }
+        return null;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return Logger.getGlobal();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        throw new SQLException("not a wrapper");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return false;
+    }
+}
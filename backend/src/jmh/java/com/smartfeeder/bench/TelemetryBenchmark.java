@@ -0,0 +1,100 @@
+package com.smartfeeder.bench;
+
+import com.smartfeeder.dao.DbClient;
+import com.smartfeeder.dao.StorageService;
+import com.smartfeeder.domain.PollApi;
+import com.smartfeeder.service.TelemetryChunkCodec;
+import com.smartfeeder.service.TelemetryStore;
+import com.smartfeeder.util.Jsons;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-poll cost of keeping PollStatus: the last_status_json row update versus a TelemetryStore append (its flusher
+ * runs on its own thread against the same stub database), and encoding one full chunk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TelemetryBenchmark {
+    private static final int DEVICES = 10_000;
+    private static final int CHUNK_SAMPLES = 720;
+
+    @Param({"0", "200"})
+    public long roundTripMicros;
+
+    private StorageService storage;
+    private TelemetryStore telemetryStore;
+    private String[] deviceIds;
+    private PollApi.PollStatus status;
+    private String statusJson;
+    private TelemetryChunkCodec.Samples chunk;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storage = new StorageService(DbClient.of(new StubDataSource(roundTripMicros)));
+        telemetryStore = new TelemetryStore(storage, BenchAppConfig.of(false, 0));
+        telemetryStore.init();
+        deviceIds = new String[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            deviceIds[i] = "feeder-" + i;
+        }
+        status = new PollApi.PollStatus("1.4.2", 86_400, -63, null, 1_772_600_000L);
+        statusJson = Jsons.stringify(status);
+
+        long[] ts = new long[CHUNK_SAMPLES];
+        int[] rssi = new int[CHUNK_SAMPLES];
+        long[] uptime = new long[CHUNK_SAMPLES];
+        String[] error = new String[CHUNK_SAMPLES];
+        for (int i = 0; i < CHUNK_SAMPLES; i++) {
+            ts[i] = 1_772_600_000L + i * 60L + (i % 7 == 0 ? 1 : 0);
+            rssi[i] = -60 - (i % 5);
+            uptime[i] = 86_400L + i * 60L;
+            error[i] = i % 100 < 3 ? "JAM" : null;
+        }
+        chunk = new TelemetryChunkCodec.Samples(CHUNK_SAMPLES, ts, rssi, uptime, error);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        telemetryStore.release();
+    }
+
+    @Benchmark
+    public void jsonbStatusUpdate() {
+        storage.updateDeviceStatus(nextDevice(), Instant.now(), statusJson, status.fw());
+    }
+
+    @Benchmark
+    public void telemetryAppend() {
+        telemetryStore.record(nextDevice(), Instant.now(), status);
+    }
+
+    @Benchmark
+    public byte[] encodeChunk() {
+        return TelemetryChunkCodec.encode(chunk);
+    }
+
+    private String nextDevice() {
+        String deviceId = deviceIds[next];
+        next = next + 1 == DEVICES ? 0 : next + 1;
+        return deviceId;
+    }
+}
@@ -0,0 +1,48 @@
+package com.smartfeeder.bench;
+
+import com.smartfeeder.util.Uuids;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code UUID.randomUUID()} (shared SecureRandom) versus {@code Uuids.timeOrdered()} at 1 and 8 threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidGenerationBenchmark {
+
+    @Benchmark
+    @Threads(1)
+    public UUID random1() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public UUID random8() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public UUID timeOrdered1() {
+        return Uuids.timeOrdered();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public UUID timeOrdered8() {
+        return Uuids.timeOrdered();
+    }
+}
@@ -0,0 +1,117 @@
+package com.smartfeeder.bench;
+
+import com.smartfeeder.util.Uuids;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bulk insert of {@code rows} ids into a fresh UUID primary key in a real PostgreSQL (BENCH_JDBC_URL,
+ * BENCH_DB_USER, BENCH_DB_PASSWORD): random v4 against time-ordered v7. Each iteration starts from an empty
+ * table; the primary key size afterwards is reported as the {@code indexBytes} counter. The gap in time grows
+ * once the index no longer fits in shared_buffers.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UuidInsertBenchmark {
+    private static final String TABLE = "bench_uuid_insert";
+    private static final int BATCH = 1_000;
+
+    @Param({"random", "timeOrdered"})
+    public String scheme;
+
+    @Param({"2000000"})
+    public int rows;
+
+    private HikariDataSource dataSource;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class IndexSize {
+        public long indexBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = System.getenv("BENCH_JDBC_URL");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("UuidInsertBenchmark needs BENCH_JDBC_URL pointing at a scratch database");
+        }
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername(System.getenv().getOrDefault("BENCH_DB_USER", "smartfeeder"));
+        config.setPassword(System.getenv().getOrDefault("BENCH_DB_PASSWORD", "smartfeeder"));
+        config.setMaximumPoolSize(1);
+        dataSource = new HikariDataSource(config);
+    }
+
+    @Setup(Level.Iteration)
+    public void recreateTable() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + TABLE);
+            st.execute("CREATE TABLE " + TABLE + " (id UUID PRIMARY KEY, ts TIMESTAMPTZ NOT NULL DEFAULT now())");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + TABLE);
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void insert(IndexSize size) throws SQLException {
+        boolean timeOrdered = scheme.equals("timeOrdered");
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement st = connection.prepareStatement("INSERT INTO " + TABLE + "(id) VALUES (?::uuid)")) {
+                for (int i = 1; i <= rows; i++) {
+                    st.setString(1, (timeOrdered ? Uuids.timeOrdered() : UUID.randomUUID()).toString());
+                    st.addBatch();
+                    if (i % BATCH == 0) {
+                        st.executeBatch();
+                        connection.commit();
+                    }
+                }
+                st.executeBatch();
+                connection.commit();
+            }
+            try (PreparedStatement st = connection.prepareStatement("SELECT pg_relation_size(?::regclass)")) {
+                st.setString(1, TABLE + "_pkey");
+                try (ResultSet rs = st.executeQuery()) {
+                    rs.next();
+                    size.indexBytes += rs.getLong(1);
+                }
+            }
+            connection.commit();
+        }
+    }
+}
@@ -8,6 +8,17 @@ import ru.tinkoff.kora.config.common.annotation.ConfigValueExtractor;
 public interface AppConfig {
     String baseUrl();
     DeviceAuthConfig deviceAuth();
+    PollIntervalConfig pollInterval();
+    AdmissionConfig admission();
+    DeviceCacheConfig deviceCache();
+    RateLimitConfig rateLimit();
+    CommandQueueConfig commandQueue();
+    LongPollConfig longPoll();
+    DeviceBatchConfig deviceBatch();
+    FeedLogsConfig feedLogs();
+    FeedStatsConfig feedStats();
+    TelemetryConfig telemetry();
+    DeviceStatusConfig deviceStatus();
     SessionConfig session();
     SecurityConfig security();
 
@@ -17,6 +28,89 @@ public interface AppConfig {
         int pollIntervalSec();
         int nonceWindowSec();
         int maxPollPerMinute();
+        String rateLimitAlgorithm();
+        String rateLimitOverrides();
+        String nonceStore();
+        boolean canonicalSignatureFallback();
+    }
+
+    @ConfigValueExtractor
+    interface PollIntervalConfig {
+        String mode();
+        int minSec();
+        int maxSec();
+        int activeWindowSec();
+        int jitterPercent();
+    }
+
+    @ConfigValueExtractor
+    interface AdmissionConfig {
+        int pollPermits();
+        int adminReservedConnections();
+        int backgroundReservedConnections();
+        int queueWaitMs();
+        int retryAfterMinSec();
+        int retryAfterMaxSec();
+    }
+
+    @ConfigValueExtractor
+    interface DeviceCacheConfig {
+        int maxSize();
+        int ttlSec();
+    }
+
+    @ConfigValueExtractor
+    interface RateLimitConfig {
+        int slots();
+    }
+
+    @ConfigValueExtractor
+    interface CommandQueueConfig {
+        int reconcileIntervalSec();
+    }
+
+    @ConfigValueExtractor
+    interface LongPollConfig {
+        int maxWaitSec();
+        boolean listenNotify();
+    }
+
+    @ConfigValueExtractor
+    interface DeviceBatchConfig {
+        int maxPolls();
+    }
+
+    @ConfigValueExtractor
+    interface FeedLogsConfig {
+        String writeMode();
+        int bufferSize();
+        int batchSize();
+        int flushIntervalMs();
+        String partitionInterval();
+        int partitionPremake();
+        int retentionDays();
+        int partitionCheckIntervalMin();
+    }
+
+    @ConfigValueExtractor
+    interface FeedStatsConfig {
+        boolean enabled();
+        int flushIntervalSec();
+    }
+
+    @ConfigValueExtractor
+    interface TelemetryConfig {
+        boolean enabled();
+        int chunkMaxSamples();
+        int chunkMaxAgeSec();
+        int flushIntervalSec();
+        int retentionDays();
+    }
+
+    @ConfigValueExtractor
+    interface DeviceStatusConfig {
+        String writeMode();
+        int flushIntervalSec();
     }
 
     @ConfigValueExtractor
@@ -30,5 +124,10 @@ public interface AppConfig {
     @ConfigValueExtractor
     interface SecurityConfig {
         String encryptionKey();
+        int encryptionKeyVersion();
+        String decryptionKeys();
+        int reencryptIntervalSec();
+        int reencryptBatchSize();
+        String operatorEmails();
     }
 }
@@ -11,4 +11,6 @@ public interface DbConfig {
     String password();
     int maxPoolSize();
     String poolName();
+    boolean acquireGuard();
+    long acquireTimeoutMs();
 }
@@ -5,8 +5,11 @@ import com.smartfeeder.domain.AdminApi;
 import com.smartfeeder.service.ApiException;
 import com.smartfeeder.service.AuthService;
 import com.smartfeeder.service.DeviceManagementService;
+import com.smartfeeder.service.RuntimeStatsService;
 import com.smartfeeder.util.HttpResponseFactory;
 import jakarta.annotation.Nullable;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import ru.tinkoff.kora.common.Component;
@@ -26,15 +29,18 @@ public final class AdminController {
     private final DeviceManagementService deviceManagementService;
     private final HttpResponseFactory responses;
     private final AppConfig appConfig;
+    private final RuntimeStatsService runtimeStatsService;
 
     public AdminController(AuthService authService,
                            DeviceManagementService deviceManagementService,
                            HttpResponseFactory responses,
-                           AppConfig appConfig) {
+                           AppConfig appConfig,
+                           RuntimeStatsService runtimeStatsService) {
         this.authService = authService;
         this.deviceManagementService = deviceManagementService;
         this.responses = responses;
         this.appConfig = appConfig;
+        this.runtimeStatsService = runtimeStatsService;
     }
 
     @HttpRoute(method = HttpMethod.GET, path = "/api/admin/devices")
@@ -202,13 +208,59 @@ public final class AdminController {
                                        @Nullable @Query("type") String type,
                                        @Nullable @Query("q") String q,
                                        @Nullable @Query("page") Integer page,
-                                       @Nullable @Query("size") Integer size) {
+                                       @Nullable @Query("size") Integer size,
+                                       @Nullable @Query("cursor") String cursor,
+                                       @Nullable @Query("from") String from,
+                                       @Nullable @Query("to") String to) {
         try {
             var user = authService.requireUser(cookieHeader);
-            int resolvedPage = page == null ? 0 : page;
             int resolvedSize = size == null ? 50 : size;
-            var logs = deviceManagementService.listLogs(user.id(), deviceId, type, q, resolvedPage, resolvedSize);
-            return responses.json(200, logs);
+            // page=N is still honoured for old clients; without it the list is keyset-paged via X-Next-Cursor.
+            if (page != null && cursor == null) {
+                var logs = deviceManagementService.listLogs(user.id(), deviceId, type, q, page, resolvedSize);
+                return responses.json(200, logs);
+            }
+            var logs = deviceManagementService.listLogsAfter(
+                user.id(), deviceId, type, q, parseInstant(from), parseInstant(to), cursor, resolvedSize
+            );
+            if (logs.nextCursor() == null) {
+                return responses.json(200, logs.items());
+            }
+            return responses.jsonWithHeader(200, logs.items(), "X-Next-Cursor", logs.nextCursor());
+        } catch (ApiException e) {
+            return responses.fromException(e);
+        } catch (Exception e) {
+            return responses.internalError(e);
+        }
+    }
+
+    @HttpRoute(method = HttpMethod.GET, path = "/api/admin/devices/{deviceId}/stats")
+    public HttpServerResponse feedStats(@Nullable @Header("Cookie") String cookieHeader,
+                                        @Path("deviceId") String deviceId,
+                                        @Nullable @Query("granularity") String granularity,
+                                        @Nullable @Query("from") String from,
+                                        @Nullable @Query("to") String to) {
+        try {
+            var user = authService.requireUser(cookieHeader);
+            var stats = deviceManagementService.feedStats(user.id(), deviceId, granularity, parseInstant(from), parseInstant(to));
+            return responses.json(200, stats);
+        } catch (ApiException e) {
+            return responses.fromException(e);
+        } catch (Exception e) {
+            return responses.internalError(e);
+        }
+    }
+
+    @HttpRoute(method = HttpMethod.GET, path = "/api/admin/devices/{deviceId}/telemetry")
+    public HttpServerResponse telemetry(@Nullable @Header("Cookie") String cookieHeader,
+                                        @Path("deviceId") String deviceId,
+                                        @Nullable @Query("from") String from,
+                                        @Nullable @Query("to") String to,
+                                        @Nullable @Query("limit") Integer limit) {
+        try {
+            var user = authService.requireUser(cookieHeader);
+            var samples = deviceManagementService.telemetry(user.id(), deviceId, parseInstant(from), parseInstant(to), limit);
+            return responses.json(200, samples);
         } catch (ApiException e) {
             return responses.fromException(e);
         } catch (Exception e) {
@@ -231,4 +283,27 @@ public final class AdminController {
             return responses.internalError(e);
         }
     }
+
+    @HttpRoute(method = HttpMethod.GET, path = "/api/admin/runtime/stats")
+    public HttpServerResponse runtimeStats(@Nullable @Header("Cookie") String cookieHeader) {
+        try {
+            authService.requireOperator(cookieHeader);
+            return responses.json(200, runtimeStatsService.snapshot());
+        } catch (ApiException e) {
+            return responses.fromException(e);
+        } catch (Exception e) {
+            return responses.internalError(e);
+        }
+    }
+
+    private static Instant parseInstant(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Instant.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw ApiException.badRequest("invalid_time_range");
+        }
+    }
 }
@@ -3,15 +3,18 @@ package com.smartfeeder.controller;
 import com.smartfeeder.domain.PollApi;
 import com.smartfeeder.service.ApiException;
 import com.smartfeeder.service.DevicePollService;
+import com.smartfeeder.service.PollEncoding;
 import com.smartfeeder.util.HttpResponseFactory;
 import jakarta.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import ru.tinkoff.kora.common.Component;
 import ru.tinkoff.kora.http.common.HttpMethod;
 import ru.tinkoff.kora.http.common.annotation.Header;
 import ru.tinkoff.kora.http.common.annotation.HttpRoute;
 import ru.tinkoff.kora.http.server.common.HttpServerResponse;
 import ru.tinkoff.kora.http.server.common.annotation.HttpController;
-import ru.tinkoff.kora.json.common.annotation.Json;
 
 @Component
 @HttpController
@@ -25,20 +28,49 @@ public final class DeviceController {
     }
 
     @HttpRoute(method = HttpMethod.POST, path = "/api/device/poll")
-    public HttpServerResponse poll(@Json PollApi.PollRequest request,
-                                   @Nullable @Header("X-Device-Id") String headerDeviceId,
-                                   @Nullable @Header("X-Nonce") String nonce,
-                                   @Nullable @Header("X-Sign") String signature) {
+    public CompletionStage<HttpServerResponse> poll(byte[] body,
+                                                    @Nullable @Header("Content-Type") String contentType,
+                                                    @Nullable @Header("Accept") String accept,
+                                                    @Nullable @Header("X-Device-Id") String headerDeviceId,
+                                                    @Nullable @Header("X-Nonce") String nonce,
+                                                    @Nullable @Header("X-Sign") String signature,
+                                                    @Nullable @Header("X-Long-Poll") String longPoll) {
+        PollEncoding requestEncoding = PollEncoding.ofContentType(contentType);
+        PollEncoding responseEncoding = PollEncoding.forResponse(accept, requestEncoding);
         try {
-            if (request == null) {
-                throw ApiException.badRequest("request_body_required");
-            }
-            PollApi.PollResponse response = devicePollService.handlePoll(request, headerDeviceId, nonce, signature);
-            return responses.json(200, response);
-        } catch (ApiException e) {
-            return responses.fromException(e);
+            // Raw bytes: the signature is checked against the body as sent and status/meta are stored as sent.
+            return devicePollService.handlePoll(body, requestEncoding, headerDeviceId, nonce, signature, longPoll)
+                .handle((response, error) -> error == null
+                    ? respond(200, response, responseEncoding)
+                    : failure(error, responseEncoding));
         } catch (Exception e) {
-            return responses.internalError(e);
+            return CompletableFuture.completedFuture(failure(e, responseEncoding));
         }
     }
+
+    // Per-poll signatures and nonces travel inside the body; the request itself carries no device headers.
+    @HttpRoute(method = HttpMethod.POST, path = "/api/device/batch")
+    public HttpServerResponse batch(byte[] body,
+                                    @Nullable @Header("Content-Type") String contentType,
+                                    @Nullable @Header("Accept") String accept) {
+        PollEncoding requestEncoding = PollEncoding.ofContentType(contentType);
+        PollEncoding responseEncoding = PollEncoding.forResponse(accept, requestEncoding);
+        try {
+            return respond(200, devicePollService.handleBatch(body, requestEncoding), responseEncoding);
+        } catch (Exception e) {
+            return failure(e, responseEncoding);
+        }
+    }
+
+    private HttpServerResponse failure(Throwable error, PollEncoding encoding) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof ApiException e) {
+            return encoding == PollEncoding.CBOR ? responses.cborFromException(e) : responses.fromException(e);
+        }
+        return responses.internalError(cause instanceof Exception e ? e : new IllegalStateException(cause));
+    }
+
+    private HttpServerResponse respond(int statusCode, Object value, PollEncoding encoding) {
+        return encoding == PollEncoding.CBOR ? responses.cbor(statusCode, value) : responses.json(statusCode, value);
+    }
 }
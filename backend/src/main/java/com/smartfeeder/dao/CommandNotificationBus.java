@@ -0,0 +1,68 @@
+package com.smartfeeder.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Parked long-polls per device. A waiter completes with true when a command for its device is published;
+// whoever parks it is responsible for timing it out and unsubscribing.
+public final class CommandNotificationBus {
+    public record Stats(int waitingDevices, long published, long woken) {
+    }
+
+    private final ConcurrentHashMap<String, List<CompletableFuture<Boolean>>> waiters = new ConcurrentHashMap<>();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder woken = new LongAdder();
+
+    public CompletableFuture<Boolean> subscribe(String deviceId) {
+        CompletableFuture<Boolean> waiter = new CompletableFuture<>();
+        waiters.compute(deviceId, (id, list) -> {
+            List<CompletableFuture<Boolean>> next = list == null ? new ArrayList<>(1) : list;
+            next.add(waiter);
+            return next;
+        });
+        return waiter;
+    }
+
+    public void unsubscribe(String deviceId, CompletableFuture<Boolean> waiter) {
+        waiters.computeIfPresent(deviceId, (id, list) -> {
+            list.remove(waiter);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    public int publish(String deviceId) {
+        published.increment();
+        // Once removed from the map the list is no longer mutated by subscribe/unsubscribe.
+        List<CompletableFuture<Boolean>> list = waiters.remove(deviceId);
+        return list == null ? 0 : complete(list);
+    }
+
+    public int wakeAll() {
+        int count = 0;
+        for (String deviceId : waiters.keySet()) {
+            List<CompletableFuture<Boolean>> list = waiters.remove(deviceId);
+            if (list != null) {
+                count += complete(list);
+            }
+        }
+        return count;
+    }
+
+    public Stats stats() {
+        return new Stats(waiters.size(), published.sum(), woken.sum());
+    }
+
+    private int complete(List<CompletableFuture<Boolean>> list) {
+        int count = 0;
+        for (var waiter : list) {
+            if (waiter.complete(true)) {
+                count++;
+            }
+        }
+        woken.add(count);
+        return count;
+    }
+}
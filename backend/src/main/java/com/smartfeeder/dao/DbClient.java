@@ -3,36 +3,163 @@ package com.smartfeeder.dao;
 import com.smartfeeder.config.DbConfig;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import javax.sql.DataSource;
 import ru.tinkoff.kora.common.Component;
 
 @Component
 public final class DbClient implements AutoCloseable {
-    private final HikariDataSource dataSource;
+    public record Stats(boolean guarded, int availablePermits, int waiting, long acquisitions, long acquireTimeouts) {
+    }
+
+    private final DataSource dataSource;
+    // Null when built around a bare DataSource; dedicatedConnection() then falls back to it.
+    private final DbConfig dbConfig;
+    // Fair gate sized to the pool: with request handlers on virtual threads nothing else bounds how many callers
+    // queue inside Hikari, so waiters line up here in arrival order and give up after the acquire timeout.
+    private final Semaphore permits;
+    private final long acquireTimeoutMs;
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder acquireTimeouts = new LongAdder();
 
     public DbClient(DbConfig dbConfig) {
+        this(
+            createPool(dbConfig),
+            dbConfig,
+            dbConfig.acquireGuard() ? dbConfig.maxPoolSize() : 0,
+            dbConfig.acquireTimeoutMs()
+        );
+    }
+
+    private DbClient(DataSource dataSource, DbConfig dbConfig, int permits, long acquireTimeoutMs) {
+        this.dataSource = dataSource;
+        this.dbConfig = dbConfig;
+        this.permits = permits > 0 ? new Semaphore(permits, true) : null;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    public static DbClient of(DataSource dataSource) {
+        return new DbClient(dataSource, null, 0, 0);
+    }
+
+    public static DbClient of(DataSource dataSource, int permits, long acquireTimeoutMs) {
+        return new DbClient(dataSource, null, permits, acquireTimeoutMs);
+    }
+
+    private static HikariDataSource createPool(DbConfig dbConfig) {
         var cfg = new HikariConfig();
         cfg.setJdbcUrl(dbConfig.jdbcUrl());
         cfg.setUsername(dbConfig.username());
         cfg.setPassword(dbConfig.password());
         cfg.setMaximumPoolSize(dbConfig.maxPoolSize());
         cfg.setPoolName(dbConfig.poolName());
+        cfg.setConnectionTimeout(Math.max(250, dbConfig.acquireTimeoutMs()));
         cfg.setAutoCommit(true);
-        this.dataSource = new HikariDataSource(cfg);
+        return new HikariDataSource(cfg);
     }
 
     public Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        acquisitions.increment();
+        if (permits == null) {
+            return dataSource.getConnection();
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                acquireTimeouts.increment();
+                throw new SQLTransientConnectionException("Connection not available, waited " + acquireTimeoutMs + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        }
+        Connection connection;
+        try {
+            connection = dataSource.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            new PermitReleasingHandler(connection, permits)
+        );
+    }
+
+    // A session of its own, outside the pool and the acquire gate, for connections held for the life of the
+    // process (the command LISTEN): kept in the pool it would silently shrink what admission control hands out.
+    // The caller closes it.
+    public Connection dedicatedConnection() throws SQLException {
+        if (dbConfig == null) {
+            return dataSource.getConnection();
+        }
+        return DriverManager.getConnection(dbConfig.jdbcUrl(), dbConfig.username(), dbConfig.password());
     }
 
     public DataSource dataSource() {
         return dataSource;
     }
 
+    public long acquisitions() {
+        return acquisitions.sum();
+    }
+
+    public Stats stats() {
+        return new Stats(
+            permits != null,
+            permits == null ? 0 : permits.availablePermits(),
+            permits == null ? 0 : permits.getQueueLength(),
+            acquisitions.sum(),
+            acquireTimeouts.sum()
+        );
+    }
+
     @Override
     public void close() {
-        dataSource.close();
+        if (dataSource instanceof HikariDataSource pool) {
+            pool.close();
+        }
+    }
+
+    private static final class PermitReleasingHandler implements InvocationHandler {
+        private final Connection target;
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private PermitReleasingHandler(Connection target, Semaphore permits) {
+            this.target = target;
+            this.permits = permits;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                try {
+                    target.close();
+                } finally {
+                    // The proxy may be closed from two threads; the permit goes back once.
+                    if (released.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                }
+                return null;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
     }
 }
@@ -0,0 +1,121 @@
+package com.smartfeeder.dao;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class PendingCommandIndex {
+    // Deltas may land out of order (a claim can be applied before the enqueue it claimed),
+    // so counts are allowed to dip below zero transiently.
+    record Counts(int pending, int sent, Instant oldestPendingAt) {
+    }
+
+    public record QueueCounts(int pending, int sent, Instant oldestPendingAt) {
+    }
+
+    public record Stats(boolean ready, int devicesWithPending, long pending, long sent, Instant oldestPendingAt) {
+    }
+
+    private final ConcurrentHashMap<String, Counts> devices = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public boolean mayHavePending(String deviceId) {
+        if (!ready) {
+            return true;
+        }
+        Counts c = devices.get(deviceId);
+        return c != null && c.pending() > 0;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    void enqueued(String deviceId, Instant createdAt) {
+        devices.compute(deviceId, (k, c) -> {
+            if (c == null) {
+                return new Counts(1, 0, createdAt);
+            }
+            Instant oldest = c.pending() > 0 && c.oldestPendingAt() != null && c.oldestPendingAt().isBefore(createdAt)
+                ? c.oldestPendingAt()
+                : createdAt;
+            return new Counts(c.pending() + 1, c.sent(), oldest);
+        });
+    }
+
+    void claimed(String deviceId, int count) {
+        if (count <= 0) {
+            return;
+        }
+        devices.compute(deviceId, (k, c) -> {
+            Counts base = c == null ? new Counts(0, 0, null) : c;
+            int pending = base.pending() - count;
+            // The oldest remaining command is unknown after a partial claim; keep the old value as a lower bound.
+            return prune(new Counts(pending, base.sent() + count, pending > 0 ? base.oldestPendingAt() : null));
+        });
+    }
+
+    void acked(String deviceId, int count) {
+        if (count <= 0) {
+            return;
+        }
+        devices.compute(deviceId, (k, c) -> {
+            Counts base = c == null ? new Counts(0, 0, null) : c;
+            return prune(new Counts(base.pending(), base.sent() - count, base.oldestPendingAt()));
+        });
+    }
+
+    Map<String, Counts> snapshot() {
+        return new HashMap<>(devices);
+    }
+
+    // Entries are replaced on every change, so an identical reference means no delta landed while the
+    // database was read. Changed entries are skipped: their deltas may or may not be part of the read.
+    int reconcile(Map<String, Counts> before, Map<String, QueueCounts> database) {
+        Set<String> keys = new HashSet<>(before.keySet());
+        keys.addAll(database.keySet());
+        keys.addAll(devices.keySet());
+
+        int[] skipped = {0};
+        for (String deviceId : keys) {
+            Counts seen = before.get(deviceId);
+            QueueCounts db = database.get(deviceId);
+            devices.compute(deviceId, (k, current) -> {
+                if (current != seen) {
+                    skipped[0]++;
+                    return current;
+                }
+                return db == null ? null : prune(new Counts(db.pending(), db.sent(), db.oldestPendingAt()));
+            });
+        }
+        if (skipped[0] == 0) {
+            ready = true;
+        }
+        return skipped[0];
+    }
+
+    public Stats stats() {
+        int withPending = 0;
+        long pending = 0;
+        long sent = 0;
+        Instant oldest = null;
+        for (Counts c : devices.values()) {
+            if (c.pending() > 0) {
+                withPending++;
+                pending += c.pending();
+                if (c.oldestPendingAt() != null && (oldest == null || c.oldestPendingAt().isBefore(oldest))) {
+                    oldest = c.oldestPendingAt();
+                }
+            }
+            sent += Math.max(0, c.sent());
+        }
+        return new Stats(ready, withPending, pending, sent, oldest);
+    }
+
+    private static Counts prune(Counts c) {
+        return c.pending() == 0 && c.sent() == 0 ? null : c;
+    }
+}
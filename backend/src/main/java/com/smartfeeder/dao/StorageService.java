@@ -1,5 +1,9 @@
 package com.smartfeeder.dao;
 
+import com.smartfeeder.util.Uuids;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -7,9 +11,17 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.postgresql.copy.CopyManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.tinkoff.kora.common.Component;
@@ -18,7 +30,13 @@ import ru.tinkoff.kora.common.Component;
 public final class StorageService {
     private static final Logger logger = LoggerFactory.getLogger(StorageService.class);
 
+    private static final String COMMAND_CHANNEL = "device_commands";
+
     private final DbClient dbClient;
+    private final PendingCommandIndex pendingCommands = new PendingCommandIndex();
+    private final CommandNotificationBus commandNotifications = new CommandNotificationBus();
+    // Tags this node's NOTIFY payloads so the listener can skip what enqueueCommand already applied locally.
+    private final String nodeId = UUID.randomUUID().toString();
 
     public StorageService(DbClient dbClient) {
         this.dbClient = dbClient;
@@ -37,8 +55,11 @@ public final class StorageService {
                             String lastStatusJson,
                             String firmwareVersion,
                             String activeProfileId,
+                            long configVersion,
                             Instant createdAt) {}
 
+    public record DeviceSecretRow(String id, byte[] encryptedSecret) {}
+
     public record DeviceListRow(String id,
                                 String name,
                                 Instant lastSeenAt,
@@ -72,11 +93,221 @@ public final class StorageService {
                              String message,
                              String metaJson) {}
 
+    // Position of a feed log row in (ts DESC, id DESC) order; a keyset page starts strictly after it.
+    public record FeedLogKey(Instant ts, UUID id) {}
+
+    // One range partition of feed_logs; from/to are null for MINVALUE/MAXVALUE bounds.
+    public record FeedLogPartition(String name, Instant from, Instant to) {}
+
+    public record FeedStatsRow(String deviceId,
+                               Instant bucketStart,
+                               int polls,
+                               int autoFeeds,
+                               int manualFeeds,
+                               long portionMs,
+                               String errorsJson,
+                               Integer rssiMin,
+                               Integer rssiMax,
+                               long rssiSum,
+                               int rssiSamples) {}
+
+    // One sealed TelemetryChunkCodec chunk; start/end are the first and last sample ts.
+    public record TelemetryChunkRow(String deviceId, Instant startTs, Instant endTs, int samples, byte[] data) {}
+
     public record FeedLogInput(Instant ts,
                                String type,
                                String message,
                                String metaJson) {}
 
+    public record FeedLogRecord(UUID id, String deviceId, FeedLogInput log) {}
+
+    public record DeviceStatusUpdate(String deviceId,
+                                     Instant seenAt,
+                                     String statusJson,
+                                     String firmwareVersion,
+                                     Integer rssi) {}
+
+    public record NonceInput(String deviceId, String nonce, long tsEpoch) {}
+
+    public record DeviceConfigRows(String activeProfileName,
+                                   List<ProfileRow> profiles,
+                                   List<ScheduleRow> schedule) {}
+
+    public final class PollSession implements AutoCloseable {
+        private Connection connection;
+        private boolean committed;
+        private final List<Runnable> afterCommit = new ArrayList<>(2);
+
+        private PollSession() {
+        }
+
+        private Connection connection() throws SQLException {
+            if (connection == null) {
+                connection = dbClient.getConnection();
+                connection.setAutoCommit(false);
+            }
+            return connection;
+        }
+
+        public void updateDeviceStatus(String deviceId, Instant seenAt, String statusJson, String firmwareVersion) {
+            try {
+                StorageService.updateDeviceStatus(connection(), deviceId, seenAt, statusJson, firmwareVersion);
+            } catch (SQLException e) {
+                throw fail("poll.updateDeviceStatus", e);
+            }
+        }
+
+        public void updateDeviceStatuses(List<DeviceStatusUpdate> updates) {
+            if (updates.isEmpty()) {
+                return;
+            }
+            try {
+                StorageService.updateDeviceStatuses(connection(), updates);
+            } catch (SQLException e) {
+                throw fail("poll.updateDeviceStatuses", e);
+            }
+        }
+
+        public void insertFeedLogs(String deviceId, List<FeedLogInput> logs) {
+            if (logs == null || logs.isEmpty()) {
+                return;
+            }
+            try {
+                StorageService.insertFeedLogs(connection(), deviceId, logs);
+            } catch (SQLException e) {
+                throw fail("poll.insertFeedLogs", e);
+            }
+        }
+
+        public void copyFeedLogs(List<FeedLogRecord> records) {
+            if (records.isEmpty()) {
+                return;
+            }
+            try {
+                StorageService.copyFeedLogs(connection(), records);
+            } catch (SQLException e) {
+                throw fail("poll.copyFeedLogs", e);
+            }
+        }
+
+        public void ackCommands(String deviceId, List<String> ackIds) {
+            if (ackIds == null || ackIds.isEmpty()) {
+                return;
+            }
+            try {
+                int acked = StorageService.ackCommands(connection(), deviceId, ackIds);
+                afterCommit.add(() -> pendingCommands.acked(deviceId, acked));
+            } catch (SQLException e) {
+                throw fail("poll.ackCommands", e);
+            }
+        }
+
+        public void ackCommands(Map<String, List<String>> ackIdsByDevice) {
+            Map<String, List<String>> sent = new LinkedHashMap<>();
+            ackIdsByDevice.forEach((deviceId, ackIds) -> {
+                if (ackIds != null && !ackIds.isEmpty()) {
+                    sent.put(deviceId, ackIds);
+                }
+            });
+            if (sent.isEmpty()) {
+                return;
+            }
+            try {
+                Map<String, Integer> acked = StorageService.ackCommands(connection(), sent);
+                afterCommit.add(() -> acked.forEach(pendingCommands::acked));
+            } catch (SQLException e) {
+                throw fail("poll.ackCommandsBatch", e);
+            }
+        }
+
+        public List<CommandRow> fetchPendingAndMarkSent(String deviceId, int limit) {
+            if (!pendingCommands.mayHavePending(deviceId)) {
+                return List.of();
+            }
+            try {
+                List<CommandRow> rows = StorageService.fetchPendingAndMarkSent(connection(), deviceId, limit);
+                afterCommit.add(() -> pendingCommands.claimed(deviceId, rows.size()));
+                return rows;
+            } catch (SQLException e) {
+                throw fail("poll.fetchPendingAndMarkSent", e);
+            }
+        }
+
+        // Up to limit commands per device, claimed for all of them in one statement.
+        public Map<String, List<CommandRow>> fetchPendingAndMarkSent(Collection<String> deviceIds, int limit) {
+            List<String> pending = new ArrayList<>();
+            for (String deviceId : deviceIds) {
+                if (pendingCommands.mayHavePending(deviceId)) {
+                    pending.add(deviceId);
+                }
+            }
+            if (pending.isEmpty()) {
+                return Map.of();
+            }
+            try {
+                Map<String, List<CommandRow>> rows = StorageService.fetchPendingAndMarkSent(connection(), pending, limit);
+                afterCommit.add(() -> {
+                    for (String deviceId : pending) {
+                        pendingCommands.claimed(deviceId, rows.getOrDefault(deviceId, List.of()).size());
+                    }
+                });
+                return rows;
+            } catch (SQLException e) {
+                throw fail("poll.fetchPendingAndMarkSentBatch", e);
+            }
+        }
+
+        public DeviceConfigRows loadDeviceConfig(String deviceId) {
+            try {
+                return StorageService.loadDeviceConfig(connection(), deviceId);
+            } catch (SQLException e) {
+                throw fail("poll.loadDeviceConfig", e);
+            }
+        }
+
+        public Map<String, DeviceConfigRows> loadDeviceConfigs(Collection<String> deviceIds) {
+            if (deviceIds.isEmpty()) {
+                return Map.of();
+            }
+            try {
+                return StorageService.loadDeviceConfigs(connection(), deviceIds);
+            } catch (SQLException e) {
+                throw fail("poll.loadDeviceConfigs", e);
+            }
+        }
+
+        public void commit() {
+            if (connection == null) {
+                return;
+            }
+            try {
+                connection.commit();
+                committed = true;
+            } catch (SQLException e) {
+                throw fail("poll.commit", e);
+            }
+            afterCommit.forEach(Runnable::run);
+        }
+
+        @Override
+        public void close() {
+            if (connection == null) {
+                return;
+            }
+            try (Connection c = connection) {
+                if (!committed) {
+                    c.rollback();
+                }
+            } catch (SQLException e) {
+                logger.warn("Cannot release poll session connection", e);
+            }
+        }
+    }
+
+    public PollSession openPollSession() {
+        return new PollSession();
+    }
+
     public Optional<UserRow> findUserByEmail(String email) {
         String sql = "SELECT id, email, password_hash, created_at FROM users WHERE lower(email)=lower(?)";
         try (Connection connection = dbClient.getConnection();
@@ -110,7 +341,7 @@ public final class StorageService {
     }
 
     public String createUser(String email, String passwordHash) {
-        String id = UUID.randomUUID().toString();
+        String id = Uuids.timeOrdered().toString();
         String sql = "INSERT INTO users(id, email, password_hash) VALUES (?::uuid, ?, ?)";
         try (Connection connection = dbClient.getConnection();
              PreparedStatement st = connection.prepareStatement(sql)) {
@@ -125,6 +356,7 @@ public final class StorageService {
     }
 
     public String createSession(String userId, Instant expiresAt) {
+        // Stays random: the session id is what the cookie carries, and logins are too rare for key order to matter.
         String id = UUID.randomUUID().toString();
         String sql = "INSERT INTO auth_sessions(id, user_id, expires_at) VALUES (?::uuid, ?::uuid, ?)";
         try (Connection connection = dbClient.getConnection();
@@ -224,7 +456,7 @@ public final class StorageService {
     public Optional<DeviceRow> findDeviceById(String deviceId) {
         String sql = """
             SELECT id, owner_user_id, name, secret_hash, encrypted_secret, last_seen_at,
-                   last_status_json::text AS status_json, firmware_version, active_profile_id, created_at
+                   last_status_json::text AS status_json, firmware_version, active_profile_id, config_version, created_at
             FROM devices
             WHERE id=?
             """;
@@ -245,7 +477,7 @@ public final class StorageService {
     public Optional<DeviceRow> findDeviceByIdAndUser(String deviceId, String userId) {
         String sql = """
             SELECT id, owner_user_id, name, secret_hash, encrypted_secret, last_seen_at,
-                   last_status_json::text AS status_json, firmware_version, active_profile_id, created_at
+                   last_status_json::text AS status_json, firmware_version, active_profile_id, config_version, created_at
             FROM devices
             WHERE id=? AND owner_user_id=?::uuid
             """;
@@ -265,6 +497,18 @@ public final class StorageService {
     }
 
     public void updateDeviceStatus(String deviceId, Instant seenAt, String statusJson, String firmwareVersion) {
+        try (Connection connection = dbClient.getConnection()) {
+            updateDeviceStatus(connection, deviceId, seenAt, statusJson, firmwareVersion);
+        } catch (SQLException e) {
+            throw fail("updateDeviceStatus", e);
+        }
+    }
+
+    private static void updateDeviceStatus(Connection connection,
+                                           String deviceId,
+                                           Instant seenAt,
+                                           String statusJson,
+                                           String firmwareVersion) throws SQLException {
         String sql = """
             UPDATE devices
             SET last_seen_at=?,
@@ -272,15 +516,54 @@ public final class StorageService {
                 firmware_version=?
             WHERE id=?
             """;
-        try (Connection connection = dbClient.getConnection();
-             PreparedStatement st = connection.prepareStatement(sql)) {
+        try (PreparedStatement st = connection.prepareStatement(sql)) {
             st.setTimestamp(1, Timestamp.from(seenAt));
             st.setString(2, statusJson);
             st.setString(3, firmwareVersion);
             st.setString(4, deviceId);
             st.executeUpdate();
+        }
+    }
+
+    public void updateDeviceStatuses(List<DeviceStatusUpdate> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        try (Connection connection = dbClient.getConnection()) {
+            updateDeviceStatuses(connection, updates);
         } catch (SQLException e) {
-            throw fail("updateDeviceStatus", e);
+            throw fail("updateDeviceStatuses", e);
+        }
+    }
+
+    private static void updateDeviceStatuses(Connection connection, List<DeviceStatusUpdate> updates) throws SQLException {
+        // The seen-at guard keeps a slower node from moving a device back in time.
+        String sql = """
+            UPDATE devices d
+            SET last_seen_at=v.seen_at,
+                last_status_json=v.status_json::jsonb,
+                firmware_version=v.firmware_version
+            FROM unnest(?::text[], ?::timestamptz[], ?::text[], ?::text[]) AS v(id, seen_at, status_json, firmware_version)
+            WHERE d.id = v.id AND (d.last_seen_at IS NULL OR d.last_seen_at < v.seen_at)
+            """;
+        int n = updates.size();
+        String[] ids = new String[n];
+        Timestamp[] seenAt = new Timestamp[n];
+        String[] statusJson = new String[n];
+        String[] firmware = new String[n];
+        for (int i = 0; i < n; i++) {
+            DeviceStatusUpdate u = updates.get(i);
+            ids[i] = u.deviceId();
+            seenAt[i] = Timestamp.from(u.seenAt());
+            statusJson[i] = u.statusJson();
+            firmware[i] = u.firmwareVersion();
+        }
+        try (PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setArray(1, connection.createArrayOf("text", ids));
+            st.setArray(2, connection.createArrayOf("timestamptz", seenAt));
+            st.setArray(3, connection.createArrayOf("text", statusJson));
+            st.setArray(4, connection.createArrayOf("text", firmware));
+            st.executeUpdate();
         }
     }
 
@@ -297,6 +580,38 @@ public final class StorageService {
         }
     }
 
+    public List<DeviceSecretRow> listDeviceSecrets(String afterId, int limit) {
+        String sql = "SELECT id, encrypted_secret FROM devices WHERE id > ? ORDER BY id LIMIT ?";
+        List<DeviceSecretRow> rows = new ArrayList<>();
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setString(1, afterId);
+            st.setInt(2, limit);
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new DeviceSecretRow(rs.getString("id"), rs.getBytes("encrypted_secret")));
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw fail("listDeviceSecrets", e);
+        }
+    }
+
+    // Compare-and-set so a concurrent rotateDeviceSecret is never overwritten with the old secret.
+    public boolean replaceEncryptedSecret(String deviceId, byte[] expected, byte[] replacement) {
+        String sql = "UPDATE devices SET encrypted_secret=? WHERE id=? AND encrypted_secret=?";
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setBytes(1, replacement);
+            st.setString(2, deviceId);
+            st.setBytes(3, expected);
+            return st.executeUpdate() == 1;
+        } catch (SQLException e) {
+            throw fail("replaceEncryptedSecret", e);
+        }
+    }
+
     public List<DeviceListRow> listDevicesByUser(String userId) {
         String sql = """
             SELECT d.id,
@@ -408,8 +723,15 @@ public final class StorageService {
     }
 
     public ProfileRow createProfile(String deviceId, String name, int defaultPortionMs) {
-        String id = UUID.randomUUID().toString();
-        String sql = "INSERT INTO profiles(id, device_id, name, default_portion_ms) VALUES (?::uuid, ?, ?, ?)";
+        String id = Uuids.timeOrdered().toString();
+        String sql = """
+            WITH inserted AS (
+                INSERT INTO profiles(id, device_id, name, default_portion_ms) VALUES (?::uuid, ?, ?, ?)
+                RETURNING device_id
+            )
+            UPDATE devices SET config_version = config_version + 1
+            WHERE id IN (SELECT device_id FROM inserted)
+            """;
         try (Connection connection = dbClient.getConnection();
              PreparedStatement st = connection.prepareStatement(sql)) {
             st.setString(1, id);
@@ -425,11 +747,16 @@ public final class StorageService {
 
     public void updateProfile(String profileId, String userId, String name, Integer defaultPortionMs) {
         String sql = """
-            UPDATE profiles p
-            SET name = COALESCE(?, p.name),
-                default_portion_ms = COALESCE(?, p.default_portion_ms)
-            FROM devices d
-            WHERE p.id=?::uuid AND d.id = p.device_id AND d.owner_user_id=?::uuid
+            WITH updated AS (
+                UPDATE profiles p
+                SET name = COALESCE(?, p.name),
+                    default_portion_ms = COALESCE(?, p.default_portion_ms)
+                FROM devices d
+                WHERE p.id=?::uuid AND d.id = p.device_id AND d.owner_user_id=?::uuid
+                RETURNING p.device_id
+            )
+            UPDATE devices SET config_version = config_version + 1
+            WHERE id IN (SELECT device_id FROM updated)
             """;
         try (Connection connection = dbClient.getConnection();
              PreparedStatement st = connection.prepareStatement(sql)) {
@@ -449,9 +776,14 @@ public final class StorageService {
 
     public void deleteProfile(String profileId, String userId) {
         String sql = """
-            DELETE FROM profiles p
-            USING devices d
-            WHERE p.id=?::uuid AND d.id = p.device_id AND d.owner_user_id=?::uuid
+            WITH deleted AS (
+                DELETE FROM profiles p
+                USING devices d
+                WHERE p.id=?::uuid AND d.id = p.device_id AND d.owner_user_id=?::uuid
+                RETURNING p.device_id
+            )
+            UPDATE devices SET config_version = config_version + 1
+            WHERE id IN (SELECT device_id FROM deleted)
             """;
         try (Connection connection = dbClient.getConnection();
              PreparedStatement st = connection.prepareStatement(sql)) {
@@ -511,6 +843,10 @@ public final class StorageService {
     public void replaceSchedule(String profileId, List<ScheduleEventInput> events) {
         String deleteSql = "DELETE FROM schedule_events WHERE profile_id=?::uuid";
         String insertSql = "INSERT INTO schedule_events(id, profile_id, hh, mm, portion_ms) VALUES (?::uuid, ?::uuid, ?, ?, ?)";
+        String bumpSql = """
+            UPDATE devices SET config_version = config_version + 1
+            WHERE id = (SELECT device_id FROM profiles WHERE id=?::uuid)
+            """;
         try (Connection connection = dbClient.getConnection()) {
             connection.setAutoCommit(false);
             try (PreparedStatement del = connection.prepareStatement(deleteSql)) {
@@ -520,7 +856,7 @@ public final class StorageService {
 
             try (PreparedStatement ins = connection.prepareStatement(insertSql)) {
                 for (ScheduleEventInput e : events) {
-                    ins.setString(1, UUID.randomUUID().toString());
+                    ins.setString(1, Uuids.timeOrdered().toString());
                     ins.setString(2, profileId);
                     ins.setInt(3, e.hh());
                     ins.setInt(4, e.mm());
@@ -530,6 +866,11 @@ public final class StorageService {
                 ins.executeBatch();
             }
 
+            try (PreparedStatement bump = connection.prepareStatement(bumpSql)) {
+                bump.setString(1, profileId);
+                bump.executeUpdate();
+            }
+
             connection.commit();
         } catch (SQLException e) {
             throw fail("replaceSchedule", e);
@@ -537,11 +878,15 @@ public final class StorageService {
     }
 
     public void setActiveProfile(String deviceId, String profileId) {
-        String sql = "UPDATE devices SET active_profile_id=?::uuid WHERE id=?";
+        String sql = """
+            UPDATE devices SET active_profile_id=?::uuid, config_version = config_version + 1
+            WHERE id=? AND active_profile_id IS DISTINCT FROM ?::uuid
+            """;
         try (Connection connection = dbClient.getConnection();
              PreparedStatement st = connection.prepareStatement(sql)) {
             st.setString(1, profileId);
             st.setString(2, deviceId);
+            st.setString(3, profileId);
             st.executeUpdate();
         } catch (SQLException e) {
             throw fail("setActiveProfile", e);
@@ -569,11 +914,89 @@ public final class StorageService {
         }
     }
 
+    private static DeviceConfigRows loadDeviceConfig(Connection connection, String deviceId) throws SQLException {
+        DeviceConfigRows rows = loadDeviceConfigs(connection, List.of(deviceId)).get(deviceId);
+        return rows == null ? new DeviceConfigRows(null, List.of(), List.of()) : rows;
+    }
+
+    // Devices that do not exist are missing from the result.
+    private static Map<String, DeviceConfigRows> loadDeviceConfigs(Connection connection,
+                                                                   Collection<String> deviceIds) throws SQLException {
+        String sql = """
+            SELECT d.id AS device_id, ap.name AS active_profile_name,
+                   p.id AS profile_id, p.name AS profile_name, p.default_portion_ms, p.created_at,
+                   se.id AS event_id, se.hh, se.mm, se.portion_ms
+            FROM devices d
+            LEFT JOIN profiles ap ON ap.id = d.active_profile_id
+            LEFT JOIN profiles p ON p.device_id = d.id
+            LEFT JOIN schedule_events se ON se.profile_id = p.id
+            WHERE d.id = ANY(?)
+            ORDER BY d.id, p.created_at ASC, p.id, se.hh, se.mm
+            """;
+        Map<String, String> activeProfileNames = new HashMap<>();
+        Map<String, Map<String, ProfileRow>> profiles = new LinkedHashMap<>();
+        Map<String, List<ScheduleRow>> schedules = new HashMap<>();
+        try (PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setArray(1, connection.createArrayOf("text", deviceIds.toArray()));
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    String deviceId = rs.getString("device_id");
+                    activeProfileNames.put(deviceId, rs.getString("active_profile_name"));
+                    Map<String, ProfileRow> deviceProfiles = profiles.computeIfAbsent(deviceId, id -> new LinkedHashMap<>());
+                    List<ScheduleRow> schedule = schedules.computeIfAbsent(deviceId, id -> new ArrayList<>());
+                    UUID profileId = rs.getObject("profile_id", UUID.class);
+                    if (profileId == null) {
+                        continue;
+                    }
+                    String profileName = rs.getString("profile_name");
+                    if (!deviceProfiles.containsKey(profileId.toString())) {
+                        deviceProfiles.put(profileId.toString(), new ProfileRow(
+                            profileId.toString(),
+                            deviceId,
+                            profileName,
+                            rs.getInt("default_portion_ms"),
+                            rs.getTimestamp("created_at").toInstant()
+                        ));
+                    }
+                    UUID eventId = rs.getObject("event_id", UUID.class);
+                    if (eventId != null) {
+                        schedule.add(new ScheduleRow(
+                            eventId.toString(),
+                            profileId.toString(),
+                            profileName,
+                            rs.getInt("hh"),
+                            rs.getInt("mm"),
+                            rs.getInt("portion_ms")
+                        ));
+                    }
+                }
+            }
+        }
+
+        Map<String, DeviceConfigRows> result = new HashMap<>();
+        profiles.forEach((deviceId, deviceProfiles) -> {
+            List<ScheduleRow> schedule = schedules.get(deviceId);
+            schedule.sort(Comparator.comparing(ScheduleRow::profileName)
+                .thenComparingInt(ScheduleRow::hh)
+                .thenComparingInt(ScheduleRow::mm));
+            result.put(deviceId, new DeviceConfigRows(
+                activeProfileNames.get(deviceId),
+                new ArrayList<>(deviceProfiles.values()),
+                schedule
+            ));
+        });
+        return result;
+    }
+
     public String enqueueCommand(String deviceId, String commandType, String payloadJson) {
-        String id = UUID.randomUUID().toString();
+        String id = Uuids.timeOrdered().toString();
         String sql = """
-            INSERT INTO command_queue(id, device_id, command_type, payload_json, status)
-            VALUES (?::uuid, ?, ?, ?::jsonb, 'PENDING')
+            WITH inserted AS (
+                INSERT INTO command_queue(id, device_id, command_type, payload_json, status)
+                VALUES (?::uuid, ?, ?, ?::jsonb, 'PENDING')
+                RETURNING device_id
+            )
+            SELECT pg_notify(?, ? || ':' || device_id) FROM inserted
             """;
         try (Connection connection = dbClient.getConnection();
              PreparedStatement st = connection.prepareStatement(sql)) {
@@ -581,78 +1004,287 @@ public final class StorageService {
             st.setString(2, deviceId);
             st.setString(3, commandType);
             st.setString(4, payloadJson);
-            st.executeUpdate();
+            st.setString(5, COMMAND_CHANNEL);
+            st.setString(6, nodeId);
+            st.executeQuery().close();
+            pendingCommands.enqueued(deviceId, Instant.now());
+            commandNotifications.publish(deviceId);
             return id;
         } catch (SQLException e) {
             throw fail("enqueueCommand", e);
         }
     }
 
+    public PendingCommandIndex pendingCommands() {
+        return pendingCommands;
+    }
+
+    public CommandNotificationBus commandNotifications() {
+        return commandNotifications;
+    }
+
+    public final class CommandListener implements AutoCloseable {
+        private final Connection connection;
+        private final PGConnection pgConnection;
+
+        private CommandListener(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.pgConnection = connection.unwrap(PGConnection.class);
+            try (var st = connection.createStatement()) {
+                st.execute("LISTEN " + COMMAND_CHANNEL);
+            }
+        }
+
+        // Blocks up to timeoutMs; returns the number of commands enqueued by other nodes.
+        public int poll(int timeoutMs) {
+            try {
+                PGNotification[] notifications = pgConnection.getNotifications(timeoutMs);
+                if (notifications == null) {
+                    return 0;
+                }
+                int remote = 0;
+                for (PGNotification n : notifications) {
+                    String payload = n.getParameter();
+                    int colon = payload.indexOf(':');
+                    if (colon <= 0 || colon == nodeId.length() && payload.startsWith(nodeId)) {
+                        continue;
+                    }
+                    String deviceId = payload.substring(colon + 1);
+                    pendingCommands.enqueued(deviceId, Instant.now());
+                    commandNotifications.publish(deviceId);
+                    remote++;
+                }
+                return remote;
+            } catch (SQLException e) {
+                throw fail("commandListener.poll", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.warn("Cannot release command listener connection", e);
+            }
+        }
+    }
+
+    public CommandListener listenCommandNotifications() {
+        Connection connection = null;
+        try {
+            connection = dbClient.dedicatedConnection();
+            return new CommandListener(connection);
+        } catch (SQLException e) {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw fail("listenCommandNotifications", e);
+        }
+    }
+
+    public int reconcilePendingCommands() {
+        String sql = """
+            SELECT device_id,
+                   COUNT(*) FILTER (WHERE status='PENDING') AS pending,
+                   COUNT(*) FILTER (WHERE status='SENT') AS sent,
+                   MIN(created_at) FILTER (WHERE status='PENDING') AS oldest_pending_at
+            FROM command_queue
+            WHERE status IN ('PENDING', 'SENT')
+            GROUP BY device_id
+            """;
+        var before = pendingCommands.snapshot();
+        Map<String, PendingCommandIndex.QueueCounts> counts = new HashMap<>();
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement(sql);
+             ResultSet rs = st.executeQuery()) {
+            while (rs.next()) {
+                Timestamp oldest = rs.getTimestamp("oldest_pending_at");
+                counts.put(rs.getString("device_id"), new PendingCommandIndex.QueueCounts(
+                    rs.getInt("pending"),
+                    rs.getInt("sent"),
+                    oldest == null ? null : oldest.toInstant()
+                ));
+            }
+        } catch (SQLException e) {
+            throw fail("reconcilePendingCommands", e);
+        }
+        return pendingCommands.reconcile(before, counts);
+    }
+
+    // Acks always go to the database: the command may have been claimed by another node, whose SENT count
+    // this node's index never sees.
     public void ackCommands(String deviceId, List<String> ackIds) {
         if (ackIds == null || ackIds.isEmpty()) {
             return;
         }
 
+        try (Connection connection = dbClient.getConnection()) {
+            pendingCommands.acked(deviceId, ackCommands(connection, deviceId, ackIds));
+        } catch (SQLException e) {
+            throw fail("ackCommands", e);
+        }
+    }
+
+    private static int ackCommands(Connection connection, String deviceId, List<String> ackIds) throws SQLException {
+        List<UUID> ids = parseAckIds(deviceId, ackIds);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
         String sql = """
             UPDATE command_queue
             SET status='ACKED', acked_at=NOW()
-            WHERE device_id=? AND id=?::uuid
+            WHERE device_id=? AND status='SENT' AND id = ANY(?)
             """;
-        try (Connection connection = dbClient.getConnection();
-             PreparedStatement st = connection.prepareStatement(sql)) {
-            for (String id : ackIds) {
-                st.setString(1, deviceId);
-                st.setString(2, id);
-                st.addBatch();
+        try (PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setString(1, deviceId);
+            st.setArray(2, connection.createArrayOf("uuid", ids.toArray()));
+            return st.executeUpdate();
+        }
+    }
+
+    // Acked count per device.
+    private static Map<String, Integer> ackCommands(Connection connection,
+                                                    Map<String, List<String>> ackIdsByDevice) throws SQLException {
+        List<String> deviceIds = new ArrayList<>();
+        List<UUID> ids = new ArrayList<>();
+        ackIdsByDevice.forEach((deviceId, ackIds) -> {
+            for (UUID id : parseAckIds(deviceId, ackIds)) {
+                deviceIds.add(deviceId);
+                ids.add(id);
+            }
+        });
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        String sql = """
+            UPDATE command_queue q
+            SET status='ACKED', acked_at=NOW()
+            FROM unnest(?::text[], ?::uuid[]) AS a(device_id, id)
+            WHERE q.id = a.id AND q.device_id = a.device_id AND q.status='SENT'
+            RETURNING q.device_id
+            """;
+        Map<String, Integer> acked = new HashMap<>();
+        try (PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setArray(1, connection.createArrayOf("text", deviceIds.toArray()));
+            st.setArray(2, connection.createArrayOf("uuid", ids.toArray()));
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    acked.merge(rs.getString("device_id"), 1, Integer::sum);
+                }
             }
-            st.executeBatch();
-        } catch (SQLException e) {
-            throw fail("ackCommands", e);
         }
+        return acked;
+    }
+
+    private static List<UUID> parseAckIds(String deviceId, List<String> ackIds) {
+        List<UUID> ids = new ArrayList<>(ackIds.size());
+        for (String id : ackIds) {
+            try {
+                ids.add(UUID.fromString(id));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                logger.debug("Ignoring malformed ack id {} from {}", id, deviceId);
+            }
+        }
+        return ids;
     }
 
     public List<CommandRow> fetchPendingAndMarkSent(String deviceId, int limit) {
-        String selectSql = """
-            SELECT id, command_type, payload_json::text AS payload_json, created_at
-            FROM command_queue
-            WHERE device_id=? AND status='PENDING'
-            ORDER BY created_at ASC
-            LIMIT ?
-            FOR UPDATE SKIP LOCKED
+        if (!pendingCommands.mayHavePending(deviceId)) {
+            return List.of();
+        }
+        try (Connection connection = dbClient.getConnection()) {
+            List<CommandRow> rows = fetchPendingAndMarkSent(connection, deviceId, limit);
+            pendingCommands.claimed(deviceId, rows.size());
+            return rows;
+        } catch (SQLException e) {
+            throw fail("fetchPendingAndMarkSent", e);
+        }
+    }
+
+    private static List<CommandRow> fetchPendingAndMarkSent(Connection connection, String deviceId, int limit) throws SQLException {
+        String sql = """
+            WITH claimed AS (
+                SELECT id
+                FROM command_queue
+                WHERE device_id=? AND status='PENDING'
+                ORDER BY created_at ASC
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE command_queue q
+            SET status='SENT', sent_at=NOW()
+            FROM claimed
+            WHERE q.id = claimed.id
+            RETURNING q.id, q.command_type, q.payload_json::text AS payload_json, q.created_at
             """;
-        String updateSql = "UPDATE command_queue SET status='SENT', sent_at=NOW() WHERE id=?::uuid";
 
         List<CommandRow> rows = new ArrayList<>();
-        try (Connection connection = dbClient.getConnection()) {
-            connection.setAutoCommit(false);
-            try (PreparedStatement select = connection.prepareStatement(selectSql)) {
-                select.setString(1, deviceId);
-                select.setInt(2, limit);
-                try (ResultSet rs = select.executeQuery()) {
-                    while (rs.next()) {
-                        rows.add(new CommandRow(
-                            rs.getObject("id", UUID.class).toString(),
-                            rs.getString("command_type"),
-                            rs.getString("payload_json"),
-                            rs.getTimestamp("created_at").toInstant()
-                        ));
-                    }
+        try (PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setString(1, deviceId);
+            st.setInt(2, limit);
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new CommandRow(
+                        rs.getObject("id", UUID.class).toString(),
+                        rs.getString("command_type"),
+                        rs.getString("payload_json"),
+                        rs.getTimestamp("created_at").toInstant()
+                    ));
                 }
             }
+        }
+        // RETURNING does not preserve the ORDER BY of the claiming subquery.
+        rows.sort(Comparator.comparing(CommandRow::createdAt));
+        return rows;
+    }
 
-            try (PreparedStatement update = connection.prepareStatement(updateSql)) {
-                for (CommandRow row : rows) {
-                    update.setString(1, row.id());
-                    update.addBatch();
+    private static Map<String, List<CommandRow>> fetchPendingAndMarkSent(Connection connection,
+                                                                         List<String> deviceIds,
+                                                                         int limit) throws SQLException {
+        String sql = """
+            WITH claimed AS (
+                SELECT c.id
+                FROM unnest(?::text[]) AS d(device_id)
+                CROSS JOIN LATERAL (
+                    SELECT id
+                    FROM command_queue
+                    WHERE device_id = d.device_id AND status='PENDING'
+                    ORDER BY created_at ASC
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                ) c
+            )
+            UPDATE command_queue q
+            SET status='SENT', sent_at=NOW()
+            FROM claimed
+            WHERE q.id = claimed.id
+            RETURNING q.id, q.device_id, q.command_type, q.payload_json::text AS payload_json, q.created_at
+            """;
+
+        Map<String, List<CommandRow>> rows = new HashMap<>();
+        try (PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setArray(1, connection.createArrayOf("text", deviceIds.toArray()));
+            st.setInt(2, limit);
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    rows.computeIfAbsent(rs.getString("device_id"), id -> new ArrayList<>()).add(new CommandRow(
+                        rs.getObject("id", UUID.class).toString(),
+                        rs.getString("command_type"),
+                        rs.getString("payload_json"),
+                        rs.getTimestamp("created_at").toInstant()
+                    ));
                 }
-                update.executeBatch();
             }
-
-            connection.commit();
-            return rows;
-        } catch (SQLException e) {
-            throw fail("fetchPendingAndMarkSent", e);
         }
+        rows.values().forEach(list -> list.sort(Comparator.comparing(CommandRow::createdAt)));
+        return rows;
     }
 
     public void insertFeedLogs(String deviceId, List<FeedLogInput> logs) {
@@ -660,14 +1292,21 @@ public final class StorageService {
             return;
         }
 
+        try (Connection connection = dbClient.getConnection()) {
+            insertFeedLogs(connection, deviceId, logs);
+        } catch (SQLException e) {
+            throw fail("insertFeedLogs", e);
+        }
+    }
+
+    private static void insertFeedLogs(Connection connection, String deviceId, List<FeedLogInput> logs) throws SQLException {
         String sql = """
             INSERT INTO feed_logs(id, device_id, ts, type, message, meta_json)
             VALUES (?::uuid, ?, ?, ?, ?, ?::jsonb)
             """;
-        try (Connection connection = dbClient.getConnection();
-             PreparedStatement st = connection.prepareStatement(sql)) {
+        try (PreparedStatement st = connection.prepareStatement(sql)) {
             for (FeedLogInput log : logs) {
-                st.setString(1, UUID.randomUUID().toString());
+                st.setString(1, Uuids.timeOrdered().toString());
                 st.setString(2, deviceId);
                 st.setTimestamp(3, Timestamp.from(log.ts()));
                 st.setString(4, log.type());
@@ -676,11 +1315,90 @@ public final class StorageService {
                 st.addBatch();
             }
             st.executeBatch();
+        }
+    }
+
+    public void copyFeedLogs(List<FeedLogRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        try (Connection connection = dbClient.getConnection()) {
+            copyFeedLogs(connection, records);
         } catch (SQLException e) {
-            throw fail("insertFeedLogs", e);
+            throw fail("copyFeedLogs", e);
         }
     }
 
+    private static void copyFeedLogs(Connection connection, List<FeedLogRecord> records) throws SQLException {
+        String sql = "COPY feed_logs(id, device_id, ts, type, message, meta_json) FROM STDIN WITH (FORMAT csv)";
+
+        StringBuilder csv = new StringBuilder(records.size() * 128);
+        for (FeedLogRecord r : records) {
+            csv.append(r.id()).append(',');
+            appendCsv(csv, r.deviceId()).append(',');
+            csv.append(r.log().ts()).append(',');
+            appendCsv(csv, r.log().type()).append(',');
+            appendCsv(csv, r.log().message()).append(',');
+            appendCsv(csv, r.log().metaJson()).append('\n');
+        }
+
+        try {
+            CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+            copy.copyIn(sql, new StringReader(csv.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Slow path for a batch COPY rejected as a whole, e.g. because a device was deleted after its poll.
+    public int insertFeedLogsOfExistingDevices(List<FeedLogRecord> records) {
+        if (records.isEmpty()) {
+            return 0;
+        }
+        String sql = """
+            INSERT INTO feed_logs(id, device_id, ts, type, message, meta_json)
+            SELECT ?::uuid, ?, ?, ?, ?, ?::jsonb
+            WHERE EXISTS (SELECT 1 FROM devices WHERE id=?)
+            """;
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            for (FeedLogRecord r : records) {
+                st.setString(1, r.id().toString());
+                st.setString(2, r.deviceId());
+                st.setTimestamp(3, Timestamp.from(r.log().ts()));
+                st.setString(4, r.log().type());
+                st.setString(5, r.log().message());
+                st.setString(6, r.log().metaJson());
+                st.setString(7, r.deviceId());
+                st.addBatch();
+            }
+            int inserted = 0;
+            for (int count : st.executeBatch()) {
+                inserted += Math.max(0, count);
+            }
+            connection.commit();
+            return inserted;
+        } catch (SQLException e) {
+            throw fail("insertFeedLogsOfExistingDevices", e);
+        }
+    }
+
+    private static StringBuilder appendCsv(StringBuilder csv, String value) {
+        if (value == null) {
+            return csv;
+        }
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        return csv.append('"');
+    }
+
     public void insertFeedLog(String deviceId, Instant ts, String type, String message, String metaJson) {
         String sql = """
             INSERT INTO feed_logs(id, device_id, ts, type, message, meta_json)
@@ -688,7 +1406,7 @@ public final class StorageService {
             """;
         try (Connection connection = dbClient.getConnection();
              PreparedStatement st = connection.prepareStatement(sql)) {
-            st.setString(1, UUID.randomUUID().toString());
+            st.setString(1, Uuids.timeOrdered().toString());
             st.setString(2, deviceId);
             st.setTimestamp(3, Timestamp.from(ts));
             st.setString(4, type);
@@ -701,6 +1419,28 @@ public final class StorageService {
     }
 
     public List<FeedLogRow> listFeedLogs(String deviceId, String typeFilter, String query, int limit, int offset) {
+        return listFeedLogs(deviceId, typeFilter, query, null, null, limit, offset, null);
+    }
+
+    // from/to bound ts as [from, to); together with the cursor they let the planner skip whole partitions.
+    public List<FeedLogRow> listFeedLogsAfter(String deviceId,
+                                              String typeFilter,
+                                              String query,
+                                              Instant from,
+                                              Instant to,
+                                              FeedLogKey after,
+                                              int limit) {
+        return listFeedLogs(deviceId, typeFilter, query, from, to, limit, 0, after);
+    }
+
+    private List<FeedLogRow> listFeedLogs(String deviceId,
+                                          String typeFilter,
+                                          String query,
+                                          Instant from,
+                                          Instant to,
+                                          int limit,
+                                          int offset,
+                                          FeedLogKey after) {
         StringBuilder sql = new StringBuilder("""
             SELECT id, ts, type, message, meta_json::text AS meta_json
             FROM feed_logs
@@ -716,12 +1456,31 @@ public final class StorageService {
         }
         if (query != null && !query.isBlank()) {
             sql.append(" AND message ILIKE ? ");
-            params.add("%" + query + "%");
+            params.add("%" + escapeLike(query) + "%");
+        }
+        if (from != null) {
+            sql.append(" AND ts >= ? ");
+            params.add(Timestamp.from(from));
+        }
+        if (to != null) {
+            sql.append(" AND ts < ? ");
+            params.add(Timestamp.from(to));
+        }
+        if (after != null) {
+            // Row comparison keeps the walk on idx_feed_logs_keyset instead of skipping offset rows; partition
+            // pruning only understands the plain ts bound next to it.
+            sql.append(" AND ts <= ? AND (ts, id) < (?, ?::uuid) ");
+            params.add(Timestamp.from(after.ts()));
+            params.add(Timestamp.from(after.ts()));
+            params.add(after.id().toString());
         }
 
-        sql.append(" ORDER BY ts DESC LIMIT ? OFFSET ? ");
+        sql.append(" ORDER BY ts DESC, id DESC LIMIT ? ");
         params.add(limit);
-        params.add(offset);
+        if (offset > 0) {
+            sql.append(" OFFSET ? ");
+            params.add(offset);
+        }
 
         List<FeedLogRow> rows = new ArrayList<>();
         try (Connection connection = dbClient.getConnection();
@@ -731,6 +1490,8 @@ public final class StorageService {
                 Object p = params.get(i);
                 if (p instanceof Integer v) {
                     st.setInt(i + 1, v);
+                } else if (p instanceof Timestamp v) {
+                    st.setTimestamp(i + 1, v);
                 } else {
                     st.setString(i + 1, String.valueOf(p));
                 }
@@ -753,11 +1514,299 @@ public final class StorageService {
         }
     }
 
+    // The search box matches text literally; % and _ typed by the user are not wildcards.
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public List<FeedLogPartition> listFeedLogPartitions() {
+        String sql = """
+            SELECT c.relname,
+                   (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'FROM \\(''([^'']+)''\\)'))[1]::timestamptz AS lower_bound,
+                   (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz AS upper_bound
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'feed_logs'::regclass
+              AND pg_get_expr(c.relpartbound, c.oid) <> 'DEFAULT'
+            ORDER BY lower_bound NULLS FIRST
+            """;
+        List<FeedLogPartition> partitions = new ArrayList<>();
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement(sql);
+             ResultSet rs = st.executeQuery()) {
+            while (rs.next()) {
+                Timestamp from = rs.getTimestamp("lower_bound");
+                Timestamp to = rs.getTimestamp("upper_bound");
+                partitions.add(new FeedLogPartition(
+                    rs.getString("relname"),
+                    from == null ? null : from.toInstant(),
+                    to == null ? null : to.toInstant()
+                ));
+            }
+            return partitions;
+        } catch (SQLException e) {
+            throw fail("listFeedLogPartitions", e);
+        }
+    }
+
+    // Rows already sitting in the default partition for this range are moved into the new one, otherwise
+    // ATTACH would refuse it. Returns false when another node created the partition first.
+    public boolean createFeedLogPartition(FeedLogPartition partition) {
+        String name = partitionName(partition.name());
+        try (Connection connection = dbClient.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement lock = connection.prepareStatement("SELECT pg_advisory_xact_lock(hashtext('feed_logs_partitions'))")) {
+                lock.execute();
+            }
+            try (PreparedStatement exists = connection.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+                exists.setString(1, name);
+                try (ResultSet rs = exists.executeQuery()) {
+                    rs.next();
+                    if (rs.getBoolean(1)) {
+                        connection.rollback();
+                        return false;
+                    }
+                }
+            }
+            try (PreparedStatement create = connection.prepareStatement(
+                "CREATE TABLE " + name + " (LIKE feed_logs INCLUDING DEFAULTS)")) {
+                create.execute();
+            }
+            try (PreparedStatement move = connection.prepareStatement("""
+                WITH moved AS (
+                  DELETE FROM feed_logs_default WHERE ts >= ? AND ts < ?
+                  RETURNING id, device_id, ts, type, message, meta_json
+                )
+                INSERT INTO %s(id, device_id, ts, type, message, meta_json)
+                SELECT id, device_id, ts, type, message, meta_json FROM moved
+                """.formatted(name))) {
+                move.setTimestamp(1, Timestamp.from(partition.from()));
+                move.setTimestamp(2, Timestamp.from(partition.to()));
+                move.executeUpdate();
+            }
+            try (PreparedStatement attach = connection.prepareStatement(
+                "ALTER TABLE feed_logs ATTACH PARTITION " + name
+                    + " FOR VALUES FROM ('" + partition.from() + "') TO ('" + partition.to() + "')")) {
+                attach.execute();
+            }
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            throw fail("createFeedLogPartition", e);
+        }
+    }
+
+    public void dropFeedLogPartition(String partitionName) {
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement("DROP TABLE IF EXISTS " + partitionName(partitionName))) {
+            st.execute();
+        } catch (SQLException e) {
+            throw fail("dropFeedLogPartition", e);
+        }
+    }
+
+    // Expired rows that never had a period of their own, e.g. from a device clock stuck in the past.
+    public int deleteDefaultFeedLogsBefore(Instant cutoff) {
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement("DELETE FROM feed_logs_default WHERE ts < ?")) {
+            st.setTimestamp(1, Timestamp.from(cutoff));
+            return st.executeUpdate();
+        } catch (SQLException e) {
+            throw fail("deleteDefaultFeedLogsBefore", e);
+        }
+    }
+
+    // Partition names end up in DDL, which cannot take them as bind parameters.
+    private static String partitionName(String name) {
+        if (!name.matches("feed_logs_[a-z0-9_]+") || name.equals("feed_logs_default")) {
+            throw new IllegalArgumentException("Not a feed_logs period partition: " + name);
+        }
+        return name;
+    }
+
+    // Adds each row onto what is stored for its hour. Rows of devices deleted meanwhile are skipped.
+    public int upsertFeedStats(List<FeedStatsRow> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        String sql = """
+            INSERT INTO feed_stats_hourly AS s (
+              device_id, bucket_start, polls, auto_feeds, manual_feeds, portion_ms, errors,
+              rssi_min, rssi_max, rssi_sum, rssi_samples
+            )
+            SELECT ?, ?, ?, ?, ?, ?, ?::jsonb, ?, ?, ?, ?
+            WHERE EXISTS (SELECT 1 FROM devices WHERE id=?)
+            ON CONFLICT (device_id, bucket_start) DO UPDATE SET
+              polls = s.polls + EXCLUDED.polls,
+              auto_feeds = s.auto_feeds + EXCLUDED.auto_feeds,
+              manual_feeds = s.manual_feeds + EXCLUDED.manual_feeds,
+              portion_ms = s.portion_ms + EXCLUDED.portion_ms,
+              errors = (
+                SELECT COALESCE(jsonb_object_agg(key, total), '{}'::jsonb)
+                FROM (
+                  SELECT key, SUM(value::bigint) AS total
+                  FROM (
+                    SELECT * FROM jsonb_each_text(s.errors)
+                    UNION ALL
+                    SELECT * FROM jsonb_each_text(EXCLUDED.errors)
+                  ) e
+                  GROUP BY key
+                ) merged
+              ),
+              rssi_min = LEAST(s.rssi_min, EXCLUDED.rssi_min),
+              rssi_max = GREATEST(s.rssi_max, EXCLUDED.rssi_max),
+              rssi_sum = s.rssi_sum + EXCLUDED.rssi_sum,
+              rssi_samples = s.rssi_samples + EXCLUDED.rssi_samples
+            """;
+        // Same lock order on every node, so concurrent flushes of overlapping hours cannot deadlock.
+        List<FeedStatsRow> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(FeedStatsRow::deviceId).thenComparing(FeedStatsRow::bucketStart));
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            for (FeedStatsRow r : sorted) {
+                st.setString(1, r.deviceId());
+                st.setTimestamp(2, Timestamp.from(r.bucketStart()));
+                st.setInt(3, r.polls());
+                st.setInt(4, r.autoFeeds());
+                st.setInt(5, r.manualFeeds());
+                st.setLong(6, r.portionMs());
+                st.setString(7, r.errorsJson());
+                st.setObject(8, r.rssiMin(), java.sql.Types.INTEGER);
+                st.setObject(9, r.rssiMax(), java.sql.Types.INTEGER);
+                st.setLong(10, r.rssiSum());
+                st.setInt(11, r.rssiSamples());
+                st.setString(12, r.deviceId());
+                st.addBatch();
+            }
+            int upserted = 0;
+            for (int count : st.executeBatch()) {
+                upserted += Math.max(0, count);
+            }
+            connection.commit();
+            return upserted;
+        } catch (SQLException e) {
+            throw fail("upsertFeedStats", e);
+        }
+    }
+
+    public List<FeedStatsRow> listFeedStats(String deviceId, Instant from, Instant to) {
+        String sql = """
+            SELECT device_id, bucket_start, polls, auto_feeds, manual_feeds, portion_ms, errors::text AS errors,
+                   rssi_min, rssi_max, rssi_sum, rssi_samples
+            FROM feed_stats_hourly
+            WHERE device_id=? AND bucket_start >= ? AND bucket_start < ?
+            ORDER BY bucket_start
+            """;
+        List<FeedStatsRow> rows = new ArrayList<>();
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setString(1, deviceId);
+            st.setTimestamp(2, Timestamp.from(from));
+            st.setTimestamp(3, Timestamp.from(to));
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new FeedStatsRow(
+                        rs.getString("device_id"),
+                        rs.getTimestamp("bucket_start").toInstant(),
+                        rs.getInt("polls"),
+                        rs.getInt("auto_feeds"),
+                        rs.getInt("manual_feeds"),
+                        rs.getLong("portion_ms"),
+                        rs.getString("errors"),
+                        rs.getObject("rssi_min", Integer.class),
+                        rs.getObject("rssi_max", Integer.class),
+                        rs.getLong("rssi_sum"),
+                        rs.getInt("rssi_samples")
+                    ));
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw fail("listFeedStats", e);
+        }
+    }
+
+    // Chunks of devices deleted meanwhile are skipped.
+    public int insertTelemetryChunks(List<TelemetryChunkRow> chunks) {
+        if (chunks.isEmpty()) {
+            return 0;
+        }
+        String sql = """
+            INSERT INTO device_telemetry_chunks(id, device_id, start_ts, end_ts, samples, data)
+            SELECT ?::uuid, ?, ?, ?, ?, ?
+            WHERE EXISTS (SELECT 1 FROM devices WHERE id=?)
+            """;
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            for (TelemetryChunkRow chunk : chunks) {
+                st.setString(1, Uuids.timeOrdered().toString());
+                st.setString(2, chunk.deviceId());
+                st.setTimestamp(3, Timestamp.from(chunk.startTs()));
+                st.setTimestamp(4, Timestamp.from(chunk.endTs()));
+                st.setInt(5, chunk.samples());
+                st.setBytes(6, chunk.data());
+                st.setString(7, chunk.deviceId());
+                st.addBatch();
+            }
+            int inserted = 0;
+            for (int count : st.executeBatch()) {
+                inserted += Math.max(0, count);
+            }
+            connection.commit();
+            return inserted;
+        } catch (SQLException e) {
+            throw fail("insertTelemetryChunks", e);
+        }
+    }
+
+    // Every chunk with at least one sample in [from, to); callers drop the samples outside it.
+    public List<TelemetryChunkRow> listTelemetryChunks(String deviceId, Instant from, Instant to) {
+        String sql = """
+            SELECT device_id, start_ts, end_ts, samples, data
+            FROM device_telemetry_chunks
+            WHERE device_id=? AND end_ts >= ? AND start_ts < ?
+            ORDER BY start_ts
+            """;
+        List<TelemetryChunkRow> rows = new ArrayList<>();
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setString(1, deviceId);
+            st.setTimestamp(2, Timestamp.from(from));
+            st.setTimestamp(3, Timestamp.from(to));
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new TelemetryChunkRow(
+                        rs.getString("device_id"),
+                        rs.getTimestamp("start_ts").toInstant(),
+                        rs.getTimestamp("end_ts").toInstant(),
+                        rs.getInt("samples"),
+                        rs.getBytes("data")
+                    ));
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw fail("listTelemetryChunks", e);
+        }
+    }
+
+    public int deleteTelemetryChunksBefore(Instant cutoff) {
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement("DELETE FROM device_telemetry_chunks WHERE end_ts < ?")) {
+            st.setTimestamp(1, Timestamp.from(cutoff));
+            return st.executeUpdate();
+        } catch (SQLException e) {
+            throw fail("deleteTelemetryChunksBefore", e);
+        }
+    }
+
     public boolean registerNonce(String deviceId, String nonce, long tsEpoch) {
         String sql = "INSERT INTO device_nonce(id, device_id, nonce, ts_epoch) VALUES (?::uuid, ?, ?, ?)";
         try (Connection connection = dbClient.getConnection();
              PreparedStatement st = connection.prepareStatement(sql)) {
-            st.setString(1, UUID.randomUUID().toString());
+            st.setString(1, Uuids.timeOrdered().toString());
             st.setString(2, deviceId);
             st.setString(3, nonce);
             st.setLong(4, tsEpoch);
@@ -782,6 +1831,55 @@ public final class StorageService {
         }
     }
 
+    public List<NonceInput> insertNonces(List<NonceInput> nonces) {
+        if (nonces == null || nonces.isEmpty()) {
+            return List.of();
+        }
+
+        String sql = """
+            INSERT INTO device_nonce(id, device_id, nonce, ts_epoch) VALUES (?::uuid, ?, ?, ?)
+            ON CONFLICT (device_id, nonce) DO NOTHING
+            """;
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement(sql)) {
+            for (NonceInput n : nonces) {
+                st.setString(1, Uuids.timeOrdered().toString());
+                st.setString(2, n.deviceId());
+                st.setString(3, n.nonce());
+                st.setLong(4, n.tsEpoch());
+                st.addBatch();
+            }
+            int[] counts = st.executeBatch();
+
+            List<NonceInput> conflicts = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    conflicts.add(nonces.get(i));
+                }
+            }
+            return conflicts;
+        } catch (SQLException e) {
+            throw fail("insertNonces", e);
+        }
+    }
+
+    public List<NonceInput> listNoncesSince(long minEpochInclusive) {
+        String sql = "SELECT device_id, nonce, ts_epoch FROM device_nonce WHERE ts_epoch >= ?";
+        List<NonceInput> rows = new ArrayList<>();
+        try (Connection connection = dbClient.getConnection();
+             PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setLong(1, minEpochInclusive);
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new NonceInput(rs.getString("device_id"), rs.getString("nonce"), rs.getLong("ts_epoch")));
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw fail("listNoncesSince", e);
+        }
+    }
+
     private UserRow mapUser(ResultSet rs) throws SQLException {
         return new UserRow(
             rs.getObject("id", UUID.class).toString(),
@@ -805,6 +1903,7 @@ public final class StorageService {
             rs.getString("status_json"),
             rs.getString("firmware_version"),
             activeProfile == null ? null : activeProfile.toString(),
+            rs.getLong("config_version"),
             rs.getTimestamp("created_at").toInstant()
         );
     }
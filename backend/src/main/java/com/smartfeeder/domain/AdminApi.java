@@ -94,6 +94,23 @@ public final class AdminApi {
                                 Map<String, Object> meta) {
     }
 
+    @Json
+    public record FeedStatsBucket(Instant bucketStart,
+                                  int polls,
+                                  int feeds,
+                                  int autoFeeds,
+                                  int manualFeeds,
+                                  long portionMs,
+                                  Map<String, Long> errors,
+                                  Integer rssiMin,
+                                  Double rssiAvg,
+                                  Integer rssiMax) {
+    }
+
+    @Json
+    public record TelemetrySample(Instant ts, int rssi, long uptimeSec, String error) {
+    }
+
     @Json
     public record MessageResponse(String message) {
     }
@@ -1,5 +1,6 @@
 package com.smartfeeder.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.annotation.Nullable;
 import java.util.List;
 import java.util.Map;
@@ -14,7 +15,8 @@ public final class PollApi {
                               long ts,
                               PollStatus status,
                               List<PollLogItem> log,
-                              List<String> ack) {
+                              List<String> ack,
+                              @JsonInclude(JsonInclude.Include.NON_NULL) @Nullable Long configVersion) {
     }
 
     @Json
@@ -36,7 +38,20 @@ public final class PollApi {
     public record PollResponse(long serverTime,
                                int intervalSec,
                                List<PollCommand> commands,
-                               PollConfig config) {
+                               long configVersion,
+                               @JsonInclude(JsonInclude.Include.NON_NULL) @Nullable PollConfig config) {
+    }
+
+    // One entry per poll of a batch, in request order: status 200 with response, or the error a single poll would get.
+    @Json
+    public record PollBatchResult(String deviceId,
+                                  int status,
+                                  @JsonInclude(JsonInclude.Include.NON_NULL) @Nullable PollResponse response,
+                                  @JsonInclude(JsonInclude.Include.NON_NULL) @Nullable String error) {
+    }
+
+    @Json
+    public record PollBatchResponse(List<PollBatchResult> results) {
     }
 
     @Json
@@ -2,6 +2,8 @@ package com.smartfeeder.security;
 
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import ru.tinkoff.kora.common.Component;
@@ -9,43 +11,133 @@ import ru.tinkoff.kora.common.Component;
 @Component
 public final class HmacService {
     private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // An initialized Mac for one key plus scratch buffers for verification; used by one thread at a time.
+    private static final class Lease {
+        private final Mac mac;
+        private final byte[] expected;
+        private final byte[] provided;
+
+        private Lease(Mac mac) {
+            this.mac = mac;
+            this.expected = new byte[mac.getMacLength()];
+            this.provided = new byte[mac.getMacLength()];
+        }
+    }
+
+    // Keeps up to poolSize initialized Macs for the key; a miss creates a new one instead of waiting.
+    public static final class MacKey {
+        private final SecretKeySpec key;
+        private final AtomicReferenceArray<Lease> pool;
+
+        private MacKey(SecretKeySpec key, int poolSize) {
+            this.key = key;
+            this.pool = new AtomicReferenceArray<>(Math.max(1, poolSize));
+        }
+
+        private Lease acquire() {
+            for (int i = 0; i < pool.length(); i++) {
+                Lease lease = pool.get(i);
+                if (lease != null && pool.compareAndSet(i, lease, null)) {
+                    return lease;
+                }
+            }
+            try {
+                Mac mac = Mac.getInstance(HMAC_SHA256);
+                mac.init(key);
+                return new Lease(mac);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot calculate hmac", e);
+            }
+        }
+
+        private void release(Lease lease) {
+            lease.mac.reset();
+            for (int i = 0; i < pool.length(); i++) {
+                if (pool.get(i) == null && pool.compareAndSet(i, null, lease)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    public MacKey keyFor(String secret) {
+        return keyFor(secret, 1);
+    }
+
+    // A key shared by many concurrent callers (e.g. the session secret) needs a larger pool.
+    public MacKey keyFor(String secret, int poolSize) {
+        return new MacKey(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_SHA256), poolSize);
+    }
 
     public String signHex(byte[] body, String secret) {
+        return signHex(body, keyFor(secret));
+    }
+
+    public String signHex(byte[] body, MacKey key) {
+        Lease lease = key.acquire();
         try {
-            Mac mac = Mac.getInstance(HMAC_SHA256);
-            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_SHA256));
-            byte[] raw = mac.doFinal(body);
-            return toHex(raw);
+            lease.mac.update(body);
+            lease.mac.doFinal(lease.expected, 0);
+            return toHex(lease.expected);
         } catch (GeneralSecurityException e) {
             throw new IllegalStateException("Cannot calculate hmac", e);
+        } finally {
+            key.release(lease);
         }
     }
 
     public boolean verifyHex(byte[] body, String secret, String providedHex) {
-        if (providedHex == null || providedHex.isBlank()) {
+        return verifyHex(body, keyFor(secret), providedHex);
+    }
+
+    public boolean verifyHex(byte[] body, MacKey key, String providedHex) {
+        if (providedHex == null) {
             return false;
         }
-        String expected = signHex(body, secret);
-        return constantTimeEquals(expected, providedHex.trim().toLowerCase());
-    }
+        int start = 0;
+        int end = providedHex.length();
+        while (start < end && Character.isWhitespace(providedHex.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(providedHex.charAt(end - 1))) {
+            end--;
+        }
 
-    private static String toHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder(bytes.length * 2);
-        for (byte b : bytes) {
-            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
-            sb.append(Character.forDigit(b & 0xF, 16));
+        Lease lease = key.acquire();
+        try {
+            if (end - start != lease.provided.length * 2 || !decodeHex(providedHex, start, lease.provided)) {
+                return false;
+            }
+            lease.mac.update(body);
+            lease.mac.doFinal(lease.expected, 0);
+            return MessageDigest.isEqual(lease.expected, lease.provided);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot calculate hmac", e);
+        } finally {
+            key.release(lease);
         }
-        return sb.toString();
     }
 
-    private static boolean constantTimeEquals(String a, String b) {
-        if (a.length() != b.length()) {
-            return false;
+    private static boolean decodeHex(String hex, int offset, byte[] out) {
+        for (int i = 0; i < out.length; i++) {
+            int hi = Character.digit(hex.charAt(offset + 2 * i), 16);
+            int lo = Character.digit(hex.charAt(offset + 2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                return false;
+            }
+            out[i] = (byte) (hi << 4 | lo);
         }
-        int result = 0;
-        for (int i = 0; i < a.length(); i++) {
-            result |= a.charAt(i) ^ b.charAt(i);
+        return true;
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xF];
         }
-        return result == 0;
+        return new String(chars);
     }
 }
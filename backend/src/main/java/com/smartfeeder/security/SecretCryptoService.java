@@ -5,7 +5,13 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import javax.crypto.Cipher;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
@@ -17,49 +23,185 @@ public final class SecretCryptoService {
     private static final int GCM_TAG_BITS = 128;
     private static final int IV_SIZE = 12;
 
-    private final SecretKeySpec key;
+    // Versioned envelope: 'S' 'K' keyVersion | iv | ciphertext+tag, the 3-byte header is bound as AAD.
+    // Payloads written before versioning are iv | ciphertext+tag and are decrypted with any known key.
+    private static final byte MAGIC_0 = 'S';
+    private static final byte MAGIC_1 = 'K';
+    private static final int HEADER_SIZE = 3;
+
+    private static final class Lease {
+        private final Cipher cipher;
+        private byte[] out = new byte[128];
+
+        private Lease(Cipher cipher) {
+            this.cipher = cipher;
+        }
+    }
+
+    private final int currentVersion;
+    private final SecretKeySpec currentKey;
+    private final Map<Integer, SecretKeySpec> keys = new HashMap<>();
+    private final List<SecretKeySpec> legacyKeys = new ArrayList<>();
     private final SecureRandom secureRandom = new SecureRandom();
+    private final AtomicReferenceArray<Lease> pool =
+        new AtomicReferenceArray<>(Math.max(2, Runtime.getRuntime().availableProcessors()));
 
     public SecretCryptoService(AppConfig appConfig) {
-        byte[] keyBytes = Base64.getDecoder().decode(appConfig.security().encryptionKey());
-        if (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32) {
-            throw new IllegalStateException("DEVICE_SECRET_ENCRYPTION_KEY must decode to 16/24/32 bytes");
+        this.currentVersion = appConfig.security().encryptionKeyVersion();
+        if (currentVersion < 1 || currentVersion > 255) {
+            throw new IllegalStateException("DEVICE_SECRET_ENCRYPTION_KEY_VERSION must be within 1..255");
         }
-        this.key = new SecretKeySpec(keyBytes, "AES");
+        this.currentKey = parseKey(appConfig.security().encryptionKey(), "DEVICE_SECRET_ENCRYPTION_KEY");
+        parseDecryptionKeys(appConfig.security().decryptionKeys(), keys);
+        keys.put(currentVersion, currentKey);
+        legacyKeys.add(currentKey);
+        keys.forEach((version, key) -> {
+            if (version != currentVersion) {
+                legacyKeys.add(key);
+            }
+        });
     }
 
-    public byte[] encrypt(String plaintext) {
-        try {
-            byte[] iv = new byte[IV_SIZE];
-            secureRandom.nextBytes(iv);
+    public int currentKeyVersion() {
+        return currentVersion;
+    }
 
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
-            byte[] encrypted = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+    public byte[] encrypt(String plaintext) {
+        byte[] plain = plaintext.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[HEADER_SIZE + IV_SIZE + plain.length + GCM_TAG_BITS / 8];
+        payload[0] = MAGIC_0;
+        payload[1] = MAGIC_1;
+        payload[2] = (byte) currentVersion;
+        byte[] iv = new byte[IV_SIZE];
+        secureRandom.nextBytes(iv);
+        System.arraycopy(iv, 0, payload, HEADER_SIZE, IV_SIZE);
 
-            ByteBuffer buffer = ByteBuffer.allocate(iv.length + encrypted.length);
-            buffer.put(iv);
-            buffer.put(encrypted);
-            return buffer.array();
+        Lease lease = acquire();
+        try {
+            Cipher cipher = lease.cipher;
+            cipher.init(Cipher.ENCRYPT_MODE, currentKey, new GCMParameterSpec(GCM_TAG_BITS, payload, HEADER_SIZE, IV_SIZE));
+            cipher.updateAAD(payload, 0, HEADER_SIZE);
+            cipher.doFinal(plain, 0, plain.length, payload, HEADER_SIZE + IV_SIZE);
+            return payload;
         } catch (GeneralSecurityException e) {
             throw new IllegalStateException("Cannot encrypt secret", e);
+        } finally {
+            release(lease);
         }
     }
 
     public String decrypt(byte[] encryptedPayload) {
+        Lease lease = acquire();
         try {
-            ByteBuffer buffer = ByteBuffer.wrap(encryptedPayload);
-            byte[] iv = new byte[IV_SIZE];
-            buffer.get(iv);
-            byte[] encrypted = new byte[buffer.remaining()];
-            buffer.get(encrypted);
-
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, iv));
-            byte[] decrypted = cipher.doFinal(encrypted);
-            return new String(decrypted, StandardCharsets.UTF_8);
+            int version = keyVersion(encryptedPayload);
+            if (version > 0) {
+                SecretKeySpec key = keys.get(version);
+                if (key != null) {
+                    try {
+                        return decrypt(lease, key, encryptedPayload, HEADER_SIZE);
+                    } catch (GeneralSecurityException e) {
+                        // A legacy payload whose random iv happens to start with the magic bytes.
+                    }
+                }
+            }
+            GeneralSecurityException last = null;
+            for (SecretKeySpec key : legacyKeys) {
+                try {
+                    return decrypt(lease, key, encryptedPayload, 0);
+                } catch (GeneralSecurityException e) {
+                    last = e;
+                }
+            }
+            throw new IllegalStateException("Cannot decrypt secret", last);
+        } finally {
+            release(lease);
+        }
+    }
+
+    // True when the payload is not in the envelope of the current key; decrypt() must still succeed for it.
+    public boolean needsReencryption(byte[] encryptedPayload) {
+        return keyVersion(encryptedPayload) != currentVersion;
+    }
+
+    private String decrypt(Lease lease, SecretKeySpec key, byte[] payload, int offset) throws GeneralSecurityException {
+        int cipherOffset = offset + IV_SIZE;
+        if (payload.length < cipherOffset + GCM_TAG_BITS / 8) {
+            throw new GeneralSecurityException("Encrypted secret is too short");
+        }
+        Cipher cipher = lease.cipher;
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, payload, offset, IV_SIZE));
+        if (offset > 0) {
+            cipher.updateAAD(payload, 0, offset);
+        }
+        int size = cipher.getOutputSize(payload.length - cipherOffset);
+        if (lease.out.length < size) {
+            lease.out = new byte[size];
+        }
+        ByteBuffer out = ByteBuffer.wrap(lease.out);
+        int written = cipher.doFinal(ByteBuffer.wrap(payload, cipherOffset, payload.length - cipherOffset), out);
+        String secret = new String(lease.out, 0, written, StandardCharsets.UTF_8);
+        Arrays.fill(lease.out, 0, written, (byte) 0);
+        return secret;
+    }
+
+    private static int keyVersion(byte[] payload) {
+        if (payload.length > HEADER_SIZE + IV_SIZE && payload[0] == MAGIC_0 && payload[1] == MAGIC_1) {
+            return payload[2] & 0xFF;
+        }
+        return 0;
+    }
+
+    private Lease acquire() {
+        for (int i = 0; i < pool.length(); i++) {
+            Lease lease = pool.get(i);
+            if (lease != null && pool.compareAndSet(i, lease, null)) {
+                return lease;
+            }
+        }
+        try {
+            return new Lease(Cipher.getInstance(TRANSFORMATION));
         } catch (GeneralSecurityException e) {
-            throw new IllegalStateException("Cannot decrypt secret", e);
+            throw new IllegalStateException("AES/GCM unavailable", e);
+        }
+    }
+
+    private void release(Lease lease) {
+        for (int i = 0; i < pool.length(); i++) {
+            if (pool.get(i) == null && pool.compareAndSet(i, null, lease)) {
+                return;
+            }
+        }
+    }
+
+    private static SecretKeySpec parseKey(String base64, String name) {
+        byte[] keyBytes = Base64.getDecoder().decode(base64.trim());
+        if (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32) {
+            throw new IllegalStateException(name + " must decode to 16/24/32 bytes");
+        }
+        return new SecretKeySpec(keyBytes, "AES");
+    }
+
+    // "1:base64key,2:base64key"
+    static void parseDecryptionKeys(String value, Map<Integer, SecretKeySpec> keys) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        for (String item : value.split(",")) {
+            String entry = item.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int colon = entry.indexOf(':');
+            int version;
+            try {
+                version = colon <= 0 ? -1 : Integer.parseInt(entry.substring(0, colon).trim());
+            } catch (NumberFormatException e) {
+                version = -1;
+            }
+            if (version < 1 || version > 255) {
+                throw new IllegalStateException("Invalid DEVICE_SECRET_DECRYPTION_KEYS entry, expected <1..255>:<base64>");
+            }
+            keys.put(version, parseKey(entry.substring(colon + 1), "DEVICE_SECRET_DECRYPTION_KEYS"));
         }
     }
 }
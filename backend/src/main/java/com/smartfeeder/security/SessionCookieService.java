@@ -11,13 +11,13 @@ public final class SessionCookieService {
     private final String cookieName;
     private final boolean secure;
     private final HmacService hmacService;
-    private final String signingSecret;
+    private final HmacService.MacKey signingKey;
 
     public SessionCookieService(AppConfig appConfig, HmacService hmacService) {
         this.cookieName = appConfig.session().cookieName();
         this.secure = appConfig.session().cookieSecure();
         this.hmacService = hmacService;
-        this.signingSecret = appConfig.session().secret();
+        this.signingKey = hmacService.keyFor(appConfig.session().secret(), Runtime.getRuntime().availableProcessors());
     }
 
     public String cookieName() {
@@ -25,7 +25,7 @@ public final class SessionCookieService {
     }
 
     public String buildSessionCookie(String sessionId) {
-        String signature = hmacService.signHex(sessionId.getBytes(StandardCharsets.UTF_8), signingSecret);
+        String signature = hmacService.signHex(sessionId.getBytes(StandardCharsets.UTF_8), signingKey);
         String value = Base64.getUrlEncoder().withoutPadding().encodeToString((sessionId + "." + signature).getBytes(StandardCharsets.UTF_8));
 
         StringBuilder cookie = new StringBuilder();
@@ -75,7 +75,7 @@ public final class SessionCookieService {
 
                 String sessionId = tokenParts[0];
                 String signature = tokenParts[1];
-                boolean valid = hmacService.verifyHex(sessionId.getBytes(StandardCharsets.UTF_8), signingSecret, signature);
+                boolean valid = hmacService.verifyHex(sessionId.getBytes(StandardCharsets.UTF_8), signingKey, signature);
                 return valid ? Optional.of(sessionId) : Optional.empty();
             } catch (IllegalArgumentException e) {
                 return Optional.empty();
@@ -3,11 +3,17 @@ package com.smartfeeder.service;
 public final class ApiException extends RuntimeException {
     private final int status;
     private final String publicMessage;
+    private final int retryAfterSec;
 
     public ApiException(int status, String publicMessage) {
+        this(status, publicMessage, 0);
+    }
+
+    public ApiException(int status, String publicMessage, int retryAfterSec) {
         super(publicMessage);
         this.status = status;
         this.publicMessage = publicMessage;
+        this.retryAfterSec = retryAfterSec;
     }
 
     public int status() {
@@ -18,6 +24,11 @@ public final class ApiException extends RuntimeException {
         return publicMessage;
     }
 
+    // 0 when the response carries no Retry-After.
+    public int retryAfterSec() {
+        return retryAfterSec;
+    }
+
     public static ApiException badRequest(String message) {
         return new ApiException(400, message);
     }
@@ -41,4 +52,8 @@ public final class ApiException extends RuntimeException {
     public static ApiException tooManyRequests(String message) {
         return new ApiException(429, message);
     }
+
+    public static ApiException serviceUnavailable(String message, int retryAfterSec) {
+        return new ApiException(503, message, retryAfterSec);
+    }
 }
@@ -6,7 +6,10 @@ import com.smartfeeder.security.PasswordService;
 import com.smartfeeder.security.SessionCookieService;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.regex.Pattern;
 import ru.tinkoff.kora.common.Component;
 
@@ -18,6 +21,7 @@ public final class AuthService {
     private final PasswordService passwordService;
     private final SessionCookieService sessionCookieService;
     private final AppConfig appConfig;
+    private final Set<String> operatorEmails;
 
     public AuthService(StorageService storage,
                        PasswordService passwordService,
@@ -27,6 +31,10 @@ public final class AuthService {
         this.passwordService = passwordService;
         this.sessionCookieService = sessionCookieService;
         this.appConfig = appConfig;
+        this.operatorEmails = Arrays.stream(appConfig.security().operatorEmails().split(","))
+            .map(email -> email.trim().toLowerCase())
+            .filter(email -> !email.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
     }
 
     public record AuthResult(String userId, String email, String sessionId, String setCookie) {
@@ -81,6 +89,16 @@ public final class AuthService {
             .orElseThrow(() -> ApiException.unauthorized("auth_required"));
     }
 
+    // Fleet-wide internals are not scoped to the caller's devices, so only accounts listed in
+    // security.operatorEmails may read them.
+    public StorageService.UserRow requireOperator(String cookieHeader) {
+        var user = requireUser(cookieHeader);
+        if (!operatorEmails.contains(user.email().toLowerCase())) {
+            throw ApiException.forbidden("operator_required");
+        }
+        return user;
+    }
+
     private AuthResult createSessionResult(String userId, String email) {
         Instant expiresAt = Instant.now().plus(appConfig.session().ttlHours(), ChronoUnit.HOURS);
         String sessionId = storage.createSession(userId, expiresAt);
@@ -4,6 +4,7 @@ import com.smartfeeder.config.AppConfig;
 import com.smartfeeder.security.HmacService;
 import com.smartfeeder.security.SecretHashService;
 import java.time.Instant;
+import java.util.function.Supplier;
 import ru.tinkoff.kora.common.Component;
 
 @Component
@@ -13,6 +14,9 @@ public final class DeviceAuthService {
         boolean registerNonce(String deviceId, String nonce, long tsEpoch);
     }
 
+    public record DeviceCredentials(HmacService.MacKey macKey, boolean secretIntegrityValid) {
+    }
+
     private final AppConfig appConfig;
     private final HmacService hmacService;
     private final SecretHashService secretHashService;
@@ -29,10 +33,21 @@ public final class DeviceAuthService {
         return appConfig.deviceAuth().signatureEnabled();
     }
 
+    public boolean isCanonicalFallbackEnabled() {
+        return appConfig.deviceAuth().canonicalSignatureFallback();
+    }
+
     public boolean isNonceEnabled() {
         return isSignatureEnabled();
     }
 
+    public DeviceCredentials credentials(String secretHash, String decryptedSecret) {
+        return new DeviceCredentials(
+            hmacService.keyFor(decryptedSecret),
+            secretHashService.sha256Hex(decryptedSecret).equals(secretHash)
+        );
+    }
+
     public void validate(String deviceId,
                          String headerDeviceId,
                          String nonce,
@@ -45,6 +60,35 @@ public final class DeviceAuthService {
         if (!isSignatureEnabled()) {
             return;
         }
+        validate(deviceId, headerDeviceId, nonce, signature, requestTs, canonicalBody,
+            credentials(secretHash, decryptedSecret), nonceStore);
+    }
+
+    public void validate(String deviceId,
+                         String headerDeviceId,
+                         String nonce,
+                         String signature,
+                         long requestTs,
+                         byte[] canonicalBody,
+                         DeviceCredentials credentials,
+                         NonceStore nonceStore) {
+        validate(deviceId, headerDeviceId, nonce, signature, requestTs, canonicalBody, null, credentials, nonceStore);
+    }
+
+    // signedBody is normally the body as received; fallbackBody, when given, is tried only if that does not
+    // verify (clients that sign a canonical re-serialization but send different bytes).
+    public void validate(String deviceId,
+                         String headerDeviceId,
+                         String nonce,
+                         String signature,
+                         long requestTs,
+                         byte[] signedBody,
+                         Supplier<byte[]> fallbackBody,
+                         DeviceCredentials credentials,
+                         NonceStore nonceStore) {
+        if (!isSignatureEnabled()) {
+            return;
+        }
 
         if (headerDeviceId == null || headerDeviceId.isBlank() || !deviceId.equals(headerDeviceId.trim())) {
             throw ApiException.unauthorized("invalid_device_header");
@@ -62,19 +106,22 @@ public final class DeviceAuthService {
             throw ApiException.forbidden("timestamp_out_of_window");
         }
 
+        if (!credentials.secretIntegrityValid()) {
+            throw ApiException.forbidden("secret_integrity_check_failed");
+        }
+
+        // Signature is checked before the nonce is recorded so unsigned traffic cannot
+        // consume nonces and a failed check can be retried with a reloaded secret.
+        if (!hmacService.verifyHex(signedBody, credentials.macKey(), signature)
+            && (fallbackBody == null || !hmacService.verifyHex(fallbackBody.get(), credentials.macKey(), signature))) {
+            throw ApiException.forbidden("invalid_signature");
+        }
+
         long minTs = now - appConfig.deviceAuth().nonceWindowSec();
         nonceStore.purgeOldNonce(minTs);
 
         if (!nonceStore.registerNonce(deviceId, nonce, requestTs)) {
             throw ApiException.forbidden("replay_detected");
         }
-
-        if (!secretHashService.sha256Hex(decryptedSecret).equals(secretHash)) {
-            throw ApiException.forbidden("secret_integrity_check_failed");
-        }
-
-        if (!hmacService.verifyHex(canonicalBody, decryptedSecret, signature)) {
-            throw ApiException.forbidden("invalid_signature");
-        }
     }
 }
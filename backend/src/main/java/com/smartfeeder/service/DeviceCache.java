@@ -0,0 +1,161 @@
+package com.smartfeeder.service;
+
+import com.smartfeeder.config.AppConfig;
+import com.smartfeeder.dao.StorageService;
+import com.smartfeeder.security.SecretCryptoService;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import ru.tinkoff.kora.common.Component;
+
+@Component
+public final class DeviceCache {
+    // Any request with a wrong signature for a known id looks like a secret rotated on another node, so a
+    // mismatch reloads an entry at most once per this age instead of on every bad request.
+    static final long MISMATCH_RELOAD_MIN_AGE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    public record Entry(StorageService.DeviceRow device,
+                        DeviceAuthService.DeviceCredentials credentials,
+                        long loadedAtNanos,
+                        long expiresAtNanos,
+                        boolean fromCache) {
+    }
+
+    public record Stats(int size, int maxSize, long hits, long misses, long evictions, long mismatchReloads) {
+    }
+
+    private final Function<String, Optional<StorageService.DeviceRow>> loader;
+    private final SecretCryptoService secretCryptoService;
+    private final DeviceAuthService deviceAuthService;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // In-flight loads by device; invalidate() drops the token so the load it raced is not cached.
+    private final ConcurrentHashMap<String, Object> loads = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder mismatchReloads = new LongAdder();
+
+    public DeviceCache(StorageService storage,
+                       SecretCryptoService secretCryptoService,
+                       DeviceAuthService deviceAuthService,
+                       AppConfig appConfig) {
+        this(
+            storage::findDeviceById,
+            secretCryptoService,
+            deviceAuthService,
+            appConfig.deviceCache().maxSize(),
+            appConfig.deviceCache().ttlSec(),
+            System::nanoTime
+        );
+    }
+
+    DeviceCache(Function<String, Optional<StorageService.DeviceRow>> loader,
+                SecretCryptoService secretCryptoService,
+                DeviceAuthService deviceAuthService,
+                int maxSize,
+                int ttlSec,
+                LongSupplier nanoClock) {
+        this.loader = loader;
+        this.secretCryptoService = secretCryptoService;
+        this.deviceAuthService = deviceAuthService;
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, ttlSec));
+        this.nanoClock = nanoClock;
+    }
+
+    public Optional<Entry> get(String deviceId) {
+        long now = nanoClock.getAsLong();
+        Entry cached = entries.get(deviceId);
+        if (cached != null) {
+            if (cached.expiresAtNanos() - now > 0) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            if (entries.remove(deviceId, cached)) {
+                evictions.increment();
+            }
+        }
+
+        misses.increment();
+        Object load = new Object();
+        loads.put(deviceId, load);
+        try {
+            var device = loader.apply(deviceId);
+            if (device.isEmpty()) {
+                return Optional.empty();
+            }
+
+            var row = device.get();
+            String secret = secretCryptoService.decrypt(row.encryptedSecret());
+            var credentials = deviceAuthService.credentials(row.secretHash(), secret);
+            var stored = new Entry(row, credentials, now, now + ttlNanos, true);
+
+            // Published before the token check: an invalidate() that lands after the check removes the entry
+            // itself, one that lands before it makes us take the entry back. Either way the row is served once.
+            entries.put(deviceId, stored);
+            if (loads.remove(deviceId, load)) {
+                if (entries.size() > maxSize) {
+                    evict(now);
+                }
+            } else {
+                entries.remove(deviceId, stored);
+            }
+            return Optional.of(new Entry(row, credentials, now, stored.expiresAtNanos(), false));
+        } finally {
+            loads.remove(deviceId, load);
+        }
+    }
+
+    // Reloads an entry whose secret no longer verifies, unless it is younger than the minimum age or another
+    // request already replaced it. Empty means the mismatch stands.
+    public Optional<Entry> reloadAfterMismatch(String deviceId, Entry stale) {
+        if (nanoClock.getAsLong() - stale.loadedAtNanos() < MISMATCH_RELOAD_MIN_AGE_NANOS) {
+            return Optional.empty();
+        }
+        if (!stale.fromCache() || !entries.remove(deviceId, stale)) {
+            return Optional.empty();
+        }
+        mismatchReloads.increment();
+        return get(deviceId);
+    }
+
+    public void invalidate(String deviceId) {
+        loads.remove(deviceId);
+        entries.remove(deviceId);
+    }
+
+    public Stats stats() {
+        return new Stats(entries.size(), maxSize, hits.sum(), misses.sum(), evictions.sum(), mismatchReloads.sum());
+    }
+
+    private synchronized void evict(long now) {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+
+        // Evict down to 90% so the sweep is amortized over many inserts instead of running on each one.
+        int target = maxSize - maxSize / 10;
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAtNanos() - now <= 0) {
+                it.remove();
+                evictions.increment();
+            }
+        }
+
+        it = entries.values().iterator();
+        while (entries.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+}
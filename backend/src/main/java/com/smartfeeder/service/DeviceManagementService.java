@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.tinkoff.kora.common.Component;
@@ -19,33 +20,61 @@ import ru.tinkoff.kora.common.Component;
 public final class DeviceManagementService {
     private static final Logger logger = LoggerFactory.getLogger(DeviceManagementService.class);
 
+    public record LogPage(List<AdminApi.FeedLogRecord> items, String nextCursor) {
+    }
+
     private final StorageService storage;
     private final RandomSecretService randomSecretService;
     private final SecretHashService secretHashService;
     private final SecretCryptoService secretCryptoService;
+    private final DeviceCache deviceCache;
+    private final DeviceStatusTable deviceStatusTable;
+    private final PollIntervalPolicy pollIntervalPolicy;
+    private final FeedStatsRollup feedStatsRollup;
+    private final TelemetryStore telemetryStore;
 
     public DeviceManagementService(StorageService storage,
                                    RandomSecretService randomSecretService,
                                    SecretHashService secretHashService,
-                                   SecretCryptoService secretCryptoService) {
+                                   SecretCryptoService secretCryptoService,
+                                   DeviceCache deviceCache,
+                                   DeviceStatusTable deviceStatusTable,
+                                   PollIntervalPolicy pollIntervalPolicy,
+                                   FeedStatsRollup feedStatsRollup,
+                                   TelemetryStore telemetryStore) {
         this.storage = storage;
         this.randomSecretService = randomSecretService;
         this.secretHashService = secretHashService;
         this.secretCryptoService = secretCryptoService;
+        this.deviceCache = deviceCache;
+        this.deviceStatusTable = deviceStatusTable;
+        this.pollIntervalPolicy = pollIntervalPolicy;
+        this.feedStatsRollup = feedStatsRollup;
+        this.telemetryStore = telemetryStore;
     }
 
     public List<AdminApi.DeviceSummary> listDevices(String userId) {
         Instant now = Instant.now();
         List<AdminApi.DeviceSummary> rows = new ArrayList<>();
         for (var row : storage.listDevicesByUser(userId)) {
-            boolean online = row.lastSeenAt() != null && row.lastSeenAt().isAfter(now.minus(Duration.ofMinutes(2)));
+            Instant lastSeenAt = row.lastSeenAt();
+            Integer rssi = row.rssi();
+            String firmware = row.firmwareVersion();
+            var fresh = freshStatus(row.id(), lastSeenAt);
+            if (fresh.isPresent()) {
+                lastSeenAt = fresh.get().seenAt();
+                rssi = fresh.get().rssi();
+                firmware = fresh.get().firmwareVersion();
+            }
+
+            boolean online = isOnline(row.id(), lastSeenAt, now);
             rows.add(new AdminApi.DeviceSummary(
                 row.id(),
                 row.name(),
                 online,
-                row.lastSeenAt(),
-                row.rssi(),
-                row.firmwareVersion()
+                lastSeenAt,
+                rssi,
+                firmware
             ));
         }
         return rows;
@@ -82,6 +111,7 @@ public final class DeviceManagementService {
 
         String secret = randomSecretService.generateSecret();
         storage.rotateDeviceSecret(deviceId, secretHashService.sha256Hex(secret), secretCryptoService.encrypt(secret));
+        deviceCache.invalidate(deviceId);
         storage.insertFeedLog(deviceId, Instant.now(), "INFO", "Secret rotated", "{}");
 
         return new AdminApi.DeviceSecretResponse(
@@ -94,6 +124,8 @@ public final class DeviceManagementService {
     public AdminApi.DeviceDetails getDeviceDetails(String userId, String deviceId) {
         var device = storage.findDeviceByIdAndUser(deviceId, userId)
             .orElseThrow(() -> ApiException.notFound("device_not_found"));
+        // An open device page usually precedes commands; the next poll answer shortens the device's interval.
+        pollIntervalPolicy.markActive(deviceId);
 
         List<AdminApi.ProfileRecord> profiles = new ArrayList<>();
         for (var profile : storage.listProfilesByDevice(deviceId)) {
@@ -116,12 +148,20 @@ public final class DeviceManagementService {
             ));
         }
 
+        Instant lastSeenAt = device.lastSeenAt();
+        String statusJson = device.lastStatusJson();
+        var fresh = freshStatus(deviceId, lastSeenAt);
+        if (fresh.isPresent()) {
+            lastSeenAt = fresh.get().seenAt();
+            statusJson = fresh.get().statusJson();
+        }
+
         Instant now = Instant.now();
-        boolean online = device.lastSeenAt() != null && device.lastSeenAt().isAfter(now.minus(Duration.ofMinutes(2)));
+        boolean online = isOnline(deviceId, lastSeenAt, now);
 
         Map<String, Object> status = Map.of();
-        if (device.lastStatusJson() != null && !device.lastStatusJson().isBlank()) {
-            status = Jsons.mapper().convertValue(parseJsonObject(device.lastStatusJson()), Map.class);
+        if (statusJson != null && !statusJson.isBlank()) {
+            status = Jsons.mapper().convertValue(parseJsonObject(statusJson), Map.class);
         }
 
         String activeProfileName = storage.getActiveProfileName(deviceId).orElse(null);
@@ -130,7 +170,7 @@ public final class DeviceManagementService {
             device.id(),
             device.name(),
             online,
-            device.lastSeenAt(),
+            lastSeenAt,
             status,
             activeProfileName,
             profiles,
@@ -152,6 +192,7 @@ public final class DeviceManagementService {
         }
 
         var row = storage.createProfile(deviceId, normalizedName, defaultPortionMs);
+        deviceCache.invalidate(deviceId);
         return new AdminApi.ProfileRecord(row.id(), row.name(), row.defaultPortionMs());
     }
 
@@ -166,6 +207,7 @@ public final class DeviceManagementService {
         storage.updateProfile(profileId, userId, name == null ? null : normalizeProfileName(name), defaultPortionMs);
 
         var updated = storage.findProfileByIdAndUser(profileId, userId).orElse(beforeUpdate);
+        deviceCache.invalidate(updated.deviceId());
         if (defaultPortionMs != null) {
             storage.enqueueCommand(
                 updated.deviceId(),
@@ -179,10 +221,11 @@ public final class DeviceManagementService {
     }
 
     public void deleteProfile(String userId, String profileId) {
-        storage.findProfileByIdAndUser(profileId, userId)
+        var profile = storage.findProfileByIdAndUser(profileId, userId)
             .orElseThrow(() -> ApiException.notFound("profile_not_found"));
 
         storage.deleteProfile(profileId, userId);
+        deviceCache.invalidate(profile.deviceId());
     }
 
     public void replaceSchedule(String userId, String profileId, List<AdminApi.ScheduleEventCreate> events) {
@@ -196,6 +239,7 @@ public final class DeviceManagementService {
         }
 
         storage.replaceSchedule(profileId, toSave);
+        deviceCache.invalidate(profile.deviceId());
         storage.enqueueCommand(
             profile.deviceId(),
             "SET_SCHEDULE",
@@ -221,6 +265,7 @@ public final class DeviceManagementService {
             .orElseThrow(() -> ApiException.notFound("profile_not_found"));
 
         storage.setActiveProfile(deviceId, profile.id());
+        deviceCache.invalidate(deviceId);
         storage.enqueueCommand(deviceId, "SET_PROFILE", Jsons.stringify(Map.of("profileName", profile.name())));
         storage.insertFeedLog(deviceId, Instant.now(), "PROFILE_CHANGED", "Active profile changed to " + profile.name(), "{}");
     }
@@ -249,18 +294,89 @@ public final class DeviceManagementService {
 
         List<AdminApi.FeedLogRecord> result = new ArrayList<>();
         for (var row : storage.listFeedLogs(deviceId, type, query, boundedSize, offset)) {
-            result.add(new AdminApi.FeedLogRecord(
-                row.id(),
-                row.ts(),
-                row.type(),
-                row.message(),
-                Jsons.mapper().convertValue(parseJsonObject(row.metaJson()), Map.class)
-            ));
+            result.add(toLogRecord(row));
         }
 
         return result;
     }
 
+    // Keyset variant: cursor is null for the newest page, nextCursor is null on the last one.
+    public LogPage listLogsAfter(String userId,
+                                 String deviceId,
+                                 String type,
+                                 String query,
+                                 Instant from,
+                                 Instant to,
+                                 String cursor,
+                                 int size) {
+        storage.findDeviceByIdAndUser(deviceId, userId)
+            .orElseThrow(() -> ApiException.notFound("device_not_found"));
+
+        int boundedSize = Math.max(1, Math.min(size, 200));
+        StorageService.FeedLogKey after = cursor == null || cursor.isBlank() ? null : FeedLogCursor.decode(cursor);
+
+        // One extra row tells whether another page exists without a count query.
+        var rows = storage.listFeedLogsAfter(deviceId, type, query, from, to, after, boundedSize + 1);
+        List<AdminApi.FeedLogRecord> items = new ArrayList<>(Math.min(rows.size(), boundedSize));
+        for (int i = 0; i < rows.size() && i < boundedSize; i++) {
+            items.add(toLogRecord(rows.get(i)));
+        }
+        String nextCursor = null;
+        if (rows.size() > boundedSize) {
+            var last = rows.get(boundedSize - 1);
+            nextCursor = FeedLogCursor.encode(new StorageService.FeedLogKey(last.ts(), UUID.fromString(last.id())));
+        }
+        return new LogPage(items, nextCursor);
+    }
+
+    public List<AdminApi.FeedStatsBucket> feedStats(String userId,
+                                                    String deviceId,
+                                                    String granularity,
+                                                    Instant from,
+                                                    Instant to) {
+        storage.findDeviceByIdAndUser(deviceId, userId)
+            .orElseThrow(() -> ApiException.notFound("device_not_found"));
+
+        boolean daily = switch (granularity == null ? "day" : granularity.trim().toLowerCase()) {
+            case "day" -> true;
+            case "hour" -> false;
+            default -> throw ApiException.badRequest("invalid_granularity");
+        };
+        Instant end = to == null ? Instant.now() : to;
+        Instant start = from == null ? end.minus(daily ? Duration.ofDays(30) : Duration.ofHours(48)) : from;
+        if (!start.isBefore(end) || Duration.between(start, end).compareTo(Duration.ofDays(366)) > 0) {
+            throw ApiException.badRequest("invalid_time_range");
+        }
+        return feedStatsRollup.read(deviceId, daily, start, end);
+    }
+
+    public List<AdminApi.TelemetrySample> telemetry(String userId,
+                                                    String deviceId,
+                                                    Instant from,
+                                                    Instant to,
+                                                    Integer limit) {
+        storage.findDeviceByIdAndUser(deviceId, userId)
+            .orElseThrow(() -> ApiException.notFound("device_not_found"));
+
+        Instant end = to == null ? Instant.now() : to;
+        Instant start = from == null ? end.minus(Duration.ofHours(24)) : from;
+        if (!start.isBefore(end) || Duration.between(start, end).compareTo(Duration.ofDays(31)) > 0) {
+            throw ApiException.badRequest("invalid_time_range");
+        }
+        int boundedLimit = Math.max(1, Math.min(limit == null ? 5_000 : limit, 20_000));
+        return telemetryStore.read(deviceId, start, end, boundedLimit);
+    }
+
+    private AdminApi.FeedLogRecord toLogRecord(StorageService.FeedLogRow row) {
+        return new AdminApi.FeedLogRecord(
+            row.id(),
+            row.ts(),
+            row.type(),
+            row.message(),
+            Jsons.mapper().convertValue(parseJsonObject(row.metaJson()), Map.class)
+        );
+    }
+
     private int resolvePortion(String deviceId, Integer requestedPortionMs) {
         if (requestedPortionMs != null) {
             if (requestedPortionMs <= 0) {
@@ -309,6 +425,17 @@ public final class DeviceManagementService {
         return value.trim();
     }
 
+    // Polls land in the status table first; the devices row catches up on the next flush.
+    private Optional<StorageService.DeviceStatusUpdate> freshStatus(String deviceId, Instant persistedSeenAt) {
+        return deviceStatusTable.find(deviceId)
+            .filter(s -> persistedSeenAt == null || s.seenAt().isAfter(persistedSeenAt));
+    }
+
+    // Idle devices back off to pollInterval.maxSec, so a fixed threshold would show them offline between polls.
+    private boolean isOnline(String deviceId, Instant lastSeenAt, Instant now) {
+        return lastSeenAt != null && lastSeenAt.plus(pollIntervalPolicy.onlineWindow(deviceId, lastSeenAt)).isAfter(now);
+    }
+
     private static String normalizeDeviceId(String value) {
         if (value == null || value.isBlank()) {
             throw ApiException.badRequest("device_id_required");
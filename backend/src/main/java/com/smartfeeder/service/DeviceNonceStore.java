@@ -0,0 +1,155 @@
+package com.smartfeeder.service;
+
+import com.smartfeeder.config.AppConfig;
+import com.smartfeeder.dao.StorageService;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.kora.application.graph.Lifecycle;
+import ru.tinkoff.kora.common.Component;
+
+@Component
+public final class DeviceNonceStore implements DeviceAuthService.NonceStore, Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceNonceStore.class);
+
+    private static final int WRITE_BEHIND_CAPACITY = 100_000;
+    private static final int WRITE_BEHIND_BATCH = 1_000;
+
+    enum Mode {
+        MEMORY,
+        MEMORY_WRITE_BEHIND,
+        POSTGRES
+    }
+
+    private final StorageService storage;
+    private final Mode mode;
+    private final int windowSec;
+    private final long dbPurgeIntervalSec;
+    private final NonceReplayIndex index;
+    private final BlockingQueue<StorageService.NonceInput> writeBehind = new ArrayBlockingQueue<>(WRITE_BEHIND_CAPACITY);
+    private final AtomicLong purgeHorizon = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong lastDbPurgeEpoch = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+
+    public DeviceNonceStore(StorageService storage, AppConfig appConfig, MigrationRunner migrationRunner) {
+        this.storage = storage;
+        this.mode = parseMode(appConfig.deviceAuth().nonceStore());
+        this.windowSec = appConfig.deviceAuth().nonceWindowSec();
+        this.dbPurgeIntervalSec = Math.max(1, windowSec / 8);
+        this.index = NonceReplayIndex.forWindow(windowSec);
+    }
+
+    @Override
+    public void purgeOldNonce(long minEpochExclusive) {
+        purgeHorizon.accumulateAndGet(minEpochExclusive, Math::max);
+        if (mode == Mode.POSTGRES) {
+            purgeDbIfDue();
+        } else {
+            index.purgeOlderThan(minEpochExclusive);
+        }
+    }
+
+    @Override
+    public boolean registerNonce(String deviceId, String nonce, long tsEpoch) {
+        return switch (mode) {
+            case POSTGRES -> storage.registerNonce(deviceId, nonce, tsEpoch);
+            case MEMORY -> index.register(deviceId, nonce, tsEpoch);
+            case MEMORY_WRITE_BEHIND -> {
+                if (!index.register(deviceId, nonce, tsEpoch)) {
+                    yield false;
+                }
+                if (!writeBehind.offer(new StorageService.NonceInput(deviceId, nonce, tsEpoch))) {
+                    logger.warn("Nonce write-behind queue is full, nonce for {} kept in memory only", deviceId);
+                }
+                yield true;
+            }
+        };
+    }
+
+    public int size() {
+        return mode == Mode.POSTGRES ? -1 : index.size();
+    }
+
+    @Override
+    public void init() {
+        if (mode != Mode.MEMORY_WRITE_BEHIND) {
+            return;
+        }
+
+        long minTs = Instant.now().getEpochSecond() - windowSec;
+        var recent = storage.listNoncesSince(minTs);
+        for (var n : recent) {
+            index.register(n.deviceId(), n.nonce(), n.tsEpoch());
+        }
+        logger.info("Nonce index warmed with {} persisted nonces", recent.size());
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "nonce-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSafely, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void release() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        flushSafely();
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+            purgeDbIfDue();
+        } catch (Exception e) {
+            logger.warn("Nonce write-behind flush failed", e);
+        }
+    }
+
+    private void flush() {
+        List<StorageService.NonceInput> batch = new ArrayList<>(WRITE_BEHIND_BATCH);
+        while (writeBehind.drainTo(batch, WRITE_BEHIND_BATCH) > 0) {
+            for (var conflict : storage.insertNonces(batch)) {
+                // Another node accepted the same nonce first; the replay can only be reported after the fact.
+                logger.warn("Nonce replay detected across nodes for device {}", conflict.deviceId());
+            }
+            batch.clear();
+        }
+    }
+
+    private void purgeDbIfDue() {
+        long horizon = purgeHorizon.get();
+        if (horizon == Long.MIN_VALUE) {
+            return;
+        }
+        long now = Instant.now().getEpochSecond();
+        long last = lastDbPurgeEpoch.get();
+        if (now - last >= dbPurgeIntervalSec && lastDbPurgeEpoch.compareAndSet(last, now)) {
+            storage.purgeOldNonce(horizon);
+        }
+    }
+
+    private static Mode parseMode(String value) {
+        if (value == null || value.isBlank()) {
+            return Mode.MEMORY;
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "memory" -> Mode.MEMORY;
+            case "memory-write-behind" -> Mode.MEMORY_WRITE_BEHIND;
+            case "postgres" -> Mode.POSTGRES;
+            default -> throw new IllegalStateException("Unknown app.deviceAuth.nonceStore: " + value);
+        };
+    }
+}
@@ -1,15 +1,30 @@
 package com.smartfeeder.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.smartfeeder.config.AppConfig;
 import com.smartfeeder.dao.StorageService;
 import com.smartfeeder.domain.PollApi;
-import com.smartfeeder.security.SecretCryptoService;
+import com.smartfeeder.util.Cbors;
 import com.smartfeeder.util.Jsons;
+import com.smartfeeder.util.Uuids;
+import java.io.IOException;
+import java.sql.SQLTransientConnectionException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.tinkoff.kora.common.Component;
@@ -17,106 +32,458 @@ import ru.tinkoff.kora.common.Component;
 @Component
 public final class DevicePollService {
     private static final Logger logger = LoggerFactory.getLogger(DevicePollService.class);
+    private static final int COMMANDS_PER_POLL = 10;
+
+    // An authenticated poll with its status and logs in storage form.
+    private record PreparedPoll(String deviceId,
+                                StorageService.DeviceRow device,
+                                PollApi.PollRequest request,
+                                String statusJson,
+                                String firmware,
+                                Integer rssi,
+                                List<StorageService.FeedLogInput> logs) {
+
+        boolean needsConfig() {
+            return request.configVersion() == null || request.configVersion() != device.configVersion();
+        }
+    }
+
+    private record BatchPoll(int slot, PollRequestParser.BatchItem item, String deviceId) {
+    }
 
     private final StorageService storage;
-    private final AppConfig appConfig;
     private final PollRateLimiter pollRateLimiter;
     private final DeviceAuthService deviceAuthService;
-    private final SecretCryptoService secretCryptoService;
+    private final DeviceCache deviceCache;
+    private final DeviceNonceStore nonceStore;
+    private final FeedLogWriter feedLogWriter;
+    private final DeviceStatusTable deviceStatusTable;
+    private final LongPollService longPollService;
+    private final PollIntervalPolicy pollIntervalPolicy;
+    private final PollAdmissionLimiter pollAdmissionLimiter;
+    private final FeedStatsRollup feedStatsRollup;
+    private final TelemetryStore telemetryStore;
+    private final int maxBatchPolls;
+    private final ConcurrentHashMap<String, LongAdder> rejections = new ConcurrentHashMap<>();
 
     public DevicePollService(StorageService storage,
-                             AppConfig appConfig,
                              PollRateLimiter pollRateLimiter,
                              DeviceAuthService deviceAuthService,
-                             SecretCryptoService secretCryptoService) {
+                             DeviceCache deviceCache,
+                             DeviceNonceStore nonceStore,
+                             FeedLogWriter feedLogWriter,
+                             DeviceStatusTable deviceStatusTable,
+                             LongPollService longPollService,
+                             PollIntervalPolicy pollIntervalPolicy,
+                             PollAdmissionLimiter pollAdmissionLimiter,
+                             FeedStatsRollup feedStatsRollup,
+                             TelemetryStore telemetryStore,
+                             AppConfig appConfig) {
         this.storage = storage;
-        this.appConfig = appConfig;
         this.pollRateLimiter = pollRateLimiter;
         this.deviceAuthService = deviceAuthService;
-        this.secretCryptoService = secretCryptoService;
+        this.deviceCache = deviceCache;
+        this.nonceStore = nonceStore;
+        this.feedLogWriter = feedLogWriter;
+        this.deviceStatusTable = deviceStatusTable;
+        this.longPollService = longPollService;
+        this.pollIntervalPolicy = pollIntervalPolicy;
+        this.pollAdmissionLimiter = pollAdmissionLimiter;
+        this.feedStatsRollup = feedStatsRollup;
+        this.telemetryStore = telemetryStore;
+        this.maxBatchPolls = Math.max(1, appConfig.deviceBatch().maxPolls());
+    }
+
+    // With a long-poll wait, an answer that carries nothing new is held back until a command for the device is
+    // enqueued or the wait runs out; the poll itself (status, logs, acks) is handled before parking either way.
+    public CompletionStage<PollApi.PollResponse> handlePoll(byte[] body,
+                                                            PollEncoding encoding,
+                                                            String headerDeviceId,
+                                                            String nonce,
+                                                            String signature,
+                                                            String longPoll) {
+        var parsed = PollRequestParser.parse(body, encoding);
+        PollApi.PollResponse response = handlePoll(parsed, headerDeviceId, nonce, signature);
+        int waitSec = longPollService.waitSec(longPoll);
+        if (waitSec == 0 || !response.commands().isEmpty() || response.config() != null) {
+            return CompletableFuture.completedFuture(response);
+        }
+        String deviceId = parsed.request().deviceId().trim();
+        return longPollService.park(deviceId, waitSec)
+            .thenApply(woken -> woken ? deliverPending(deviceId, response) : withServerTime(response, response.intervalSec(), List.of()));
+    }
+
+    public PollApi.PollResponse handlePoll(byte[] body,
+                                           PollEncoding encoding,
+                                           String headerDeviceId,
+                                           String nonce,
+                                           String signature) {
+        return handlePoll(PollRequestParser.parse(body, encoding), headerDeviceId, nonce, signature);
     }
 
     public PollApi.PollResponse handlePoll(PollApi.PollRequest request,
                                            String headerDeviceId,
                                            String nonce,
                                            String signature) {
+        return handlePoll(new PollRequestParser.ParsedPoll(request, null, PollEncoding.JSON, null, null), headerDeviceId, nonce, signature);
+    }
+
+    private PollApi.PollResponse handlePoll(PollRequestParser.ParsedPoll parsed,
+                                            String headerDeviceId,
+                                            String nonce,
+                                            String signature) {
+        String deviceId = requireDeviceId(parsed);
+        checkRateLimit(deviceId);
+        return withAdmission(() -> handleAdmitted(parsed, deviceId, headerDeviceId, nonce, signature));
+    }
+
+    // Polls of many devices in one request: a gateway in front of several feeders, or feeders flushing what they
+    // buffered offline. Every poll is rate limited, authenticated and answered on its own, as on /api/device/poll;
+    // the admitted ones share one admission permit and one transaction with a single status update, COPY of all
+    // logs, ack update, command claim and config query. Batches are never parked for long-poll.
+    public PollApi.PollBatchResponse handleBatch(byte[] body, PollEncoding encoding) {
+        var items = PollRequestParser.parseBatch(body, encoding, maxBatchPolls);
+        PollApi.PollBatchResult[] results = new PollApi.PollBatchResult[items.size()];
+        List<BatchPoll> accepted = new ArrayList<>(items.size());
+        Set<String> deviceIds = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            var item = items.get(i);
+            try {
+                if (item.error() != null) {
+                    throw item.error();
+                }
+                String deviceId = requireDeviceId(item.parsed());
+                // One answer per device: commands and config could not be split between two of its polls.
+                if (!deviceIds.add(deviceId)) {
+                    throw ApiException.badRequest("duplicate_device");
+                }
+                checkRateLimit(deviceId);
+                accepted.add(new BatchPoll(i, item, deviceId));
+            } catch (ApiException e) {
+                results[i] = failed(batchDeviceId(item), e);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return new PollApi.PollBatchResponse(Arrays.asList(results));
+        }
+        return new PollApi.PollBatchResponse(withAdmission(() -> handleAdmittedBatch(accepted, results)));
+    }
+
+    private <T> T withAdmission(Supplier<T> work) {
+        if (!pollAdmissionLimiter.tryAcquire()) {
+            countRejection("overloaded");
+            throw ApiException.serviceUnavailable("overloaded", pollAdmissionLimiter.retryAfterSec());
+        }
+        try {
+            return work.get();
+        } catch (IllegalStateException e) {
+            // The pool ran dry despite admission (admin traffic, background writers): shed, do not fail.
+            if (e.getCause() instanceof SQLTransientConnectionException) {
+                countRejection("database_busy");
+                throw ApiException.serviceUnavailable("database_busy", pollAdmissionLimiter.retryAfterSec());
+            }
+            throw e;
+        } finally {
+            pollAdmissionLimiter.release();
+        }
+    }
+
+    private static String requireDeviceId(PollRequestParser.ParsedPoll parsed) {
+        PollApi.PollRequest request = parsed.request();
         if (request == null || request.deviceId() == null || request.deviceId().isBlank()) {
             throw ApiException.badRequest("device_id_required");
         }
+        return request.deviceId().trim();
+    }
 
-        String deviceId = request.deviceId().trim();
-
-        if (!pollRateLimiter.allow(deviceId)) {
+    // Runs before any device lookup; the firmware for overrides comes from earlier authenticated polls.
+    private void checkRateLimit(String deviceId) {
+        var decision = pollRateLimiter.allow(deviceId, deviceStatusTable.lastFirmware(deviceId));
+        if (!decision.allowed()) {
+            countRejection("rate_limit_" + decision.source().name().toLowerCase());
             throw ApiException.tooManyRequests("poll_rate_limit_exceeded");
         }
+    }
 
-        var device = storage.findDeviceById(deviceId)
-            .orElseThrow(() -> ApiException.unauthorized("unknown_device"));
+    private PollApi.PollResponse handleAdmitted(PollRequestParser.ParsedPoll parsed,
+                                                String deviceId,
+                                                String headerDeviceId,
+                                                String nonce,
+                                                String signature) {
+        PreparedPoll poll = prepare(parsed, deviceId, headerDeviceId, nonce, signature);
 
-        String deviceSecret = secretCryptoService.decrypt(device.encryptedSecret());
-        deviceAuthService.validate(
-            deviceId,
-            headerDeviceId,
-            nonce,
-            signature,
-            request.ts(),
-            Jsons.bytes(request),
-            device.secretHash(),
-            deviceSecret,
-            new DeviceAuthService.NonceStore() {
-                @Override
-                public void purgeOldNonce(long minEpochExclusive) {
-                    storage.purgeOldNonce(minEpochExclusive);
-                }
+        List<PollApi.PollCommand> commands = new ArrayList<>();
+        PollApi.PollConfig config = null;
+        Instant seenAt = Instant.now();
+        try (var session = storage.openPollSession()) {
+            deviceStatusTable.record(deviceId, seenAt, poll.statusJson(), poll.firmware(), poll.rssi());
+            if (!deviceStatusTable.isCoalesced()) {
+                session.updateDeviceStatus(deviceId, seenAt, poll.statusJson(), poll.firmware());
+            }
+            session.insertFeedLogs(deviceId, feedLogWriter.submit(deviceId, poll.logs()));
+            session.ackCommands(deviceId, poll.request().ack());
 
-                @Override
-                public boolean registerNonce(String d, String n, long ts) {
-                    return storage.registerNonce(d, n, ts);
-                }
+            fetchCommands(session, deviceId, commands);
+
+            if (poll.needsConfig()) {
+                config = toPollConfig(session.loadDeviceConfig(deviceId));
             }
-        );
+            session.commit();
+        }
+        return respond(poll, seenAt, commands, config);
+    }
 
-        String statusJson = Jsons.stringify(request.status() == null ? Map.of() : request.status());
-        String firmware = request.status() == null ? null : request.status().fw();
+    private List<PollApi.PollBatchResult> handleAdmittedBatch(List<BatchPoll> accepted,
+                                                              PollApi.PollBatchResult[] results) {
+        List<PreparedPoll> polls = new ArrayList<>(accepted.size());
+        List<Integer> slots = new ArrayList<>(accepted.size());
+        for (BatchPoll batchPoll : accepted) {
+            var item = batchPoll.item();
+            try {
+                polls.add(prepare(item.parsed(), batchPoll.deviceId(), item.deviceId(), item.nonce(), item.signature()));
+                slots.add(batchPoll.slot());
+            } catch (ApiException e) {
+                results[batchPoll.slot()] = failed(batchPoll.deviceId(), e);
+            }
+        }
+        if (polls.isEmpty()) {
+            return Arrays.asList(results);
+        }
 
-        storage.updateDeviceStatus(deviceId, Instant.now(), statusJson, firmware);
+        Instant seenAt = Instant.now();
+        List<String> deviceIds = new ArrayList<>(polls.size());
+        List<StorageService.DeviceStatusUpdate> statuses = new ArrayList<>(polls.size());
+        List<StorageService.FeedLogRecord> logs = new ArrayList<>();
+        Map<String, List<String>> acks = new HashMap<>();
+        List<String> configDeviceIds = new ArrayList<>();
+        for (PreparedPoll poll : polls) {
+            String deviceId = poll.deviceId();
+            deviceIds.add(deviceId);
+            deviceStatusTable.record(deviceId, seenAt, poll.statusJson(), poll.firmware(), poll.rssi());
+            statuses.add(new StorageService.DeviceStatusUpdate(deviceId, seenAt, poll.statusJson(), poll.firmware(), poll.rssi()));
+            for (var log : feedLogWriter.submit(deviceId, poll.logs())) {
+                logs.add(new StorageService.FeedLogRecord(Uuids.timeOrdered(), deviceId, log));
+            }
+            if (poll.request().ack() != null) {
+                acks.put(deviceId, poll.request().ack());
+            }
+            if (poll.needsConfig()) {
+                configDeviceIds.add(deviceId);
+            }
+        }
+
+        Map<String, List<StorageService.CommandRow>> claimed;
+        Map<String, StorageService.DeviceConfigRows> configs;
+        try (var session = storage.openPollSession()) {
+            if (!deviceStatusTable.isCoalesced()) {
+                session.updateDeviceStatuses(statuses);
+            }
+            session.copyFeedLogs(logs);
+            session.ackCommands(acks);
+            claimed = session.fetchPendingAndMarkSent(deviceIds, COMMANDS_PER_POLL);
+            configs = session.loadDeviceConfigs(configDeviceIds);
+            session.commit();
+        }
+
+        for (int i = 0; i < polls.size(); i++) {
+            PreparedPoll poll = polls.get(i);
+            PollApi.PollConfig config = poll.needsConfig()
+                ? toPollConfig(configs.getOrDefault(poll.deviceId(), new StorageService.DeviceConfigRows(null, List.of(), List.of())))
+                : null;
+            List<PollApi.PollCommand> commands = toCommands(claimed.getOrDefault(poll.deviceId(), List.of()));
+            results[slots.get(i)] = new PollApi.PollBatchResult(poll.deviceId(), 200, respond(poll, seenAt, commands, config), null);
+        }
+        return Arrays.asList(results);
+    }
+
+    private PreparedPoll prepare(PollRequestParser.ParsedPoll parsed,
+                                 String deviceId,
+                                 String headerDeviceId,
+                                 String nonce,
+                                 String signature) {
+        PollApi.PollRequest request = parsed.request();
+        // The signature covers the bytes on the wire; a canonical re-serialization is only built, when enabled,
+        // for clients whose signed form differs from what they sent.
+        byte[] signedBody = null;
+        Supplier<byte[]> fallbackBody = null;
+        if (deviceAuthService.isSignatureEnabled()) {
+            signedBody = parsed.body() != null ? parsed.body() : Jsons.bytes(request);
+            fallbackBody = parsed.body() != null && deviceAuthService.isCanonicalFallbackEnabled()
+                ? () -> canonicalBytes(parsed.body(), parsed.encoding())
+                : null;
+        }
+        StorageService.DeviceRow device;
+        try {
+            device = authenticate(deviceId, headerDeviceId, nonce, signature, request.ts(), signedBody, fallbackBody).device();
+        } catch (ApiException e) {
+            countRejection(e.publicMessage());
+            throw e;
+        }
+
+        String statusJson = parsed.statusJson() != null
+            ? parsed.statusJson()
+            : Jsons.stringify(request.status() == null ? Map.of() : request.status());
+        String firmware = request.status() == null ? null : request.status().fw();
+        Integer rssi = request.status() == null ? null : request.status().rssi();
 
         List<StorageService.FeedLogInput> logs = new ArrayList<>();
         if (request.log() != null) {
-            for (var item : request.log()) {
+            for (int i = 0; i < request.log().size(); i++) {
+                var item = request.log().get(i);
                 Instant ts = item.ts() > 0 ? Instant.ofEpochSecond(item.ts()) : Instant.now();
                 logs.add(new StorageService.FeedLogInput(
                     ts,
                     sanitizeLogType(item.type()),
                     item.msg() == null ? "" : item.msg(),
-                    Jsons.stringify(item.meta() == null ? Map.of() : item.meta())
+                    parsed.logMetaJson() != null
+                        ? parsed.logMetaJson().get(i)
+                        : Jsons.stringify(item.meta() == null ? Map.of() : item.meta())
                 ));
             }
         }
-        storage.insertFeedLogs(deviceId, logs);
+        return new PreparedPoll(deviceId, device, request, statusJson, firmware, rssi, logs);
+    }
+
+    private PollApi.PollResponse respond(PreparedPoll poll,
+                                         Instant seenAt,
+                                         List<PollApi.PollCommand> commands,
+                                         PollApi.PollConfig config) {
+        String deviceId = poll.deviceId();
+        PollApi.PollRequest request = poll.request();
+        feedStatsRollup.record(deviceId, seenAt, poll.rssi(), request.status() == null ? null : request.status().error(), poll.logs());
+        telemetryStore.record(deviceId, seenAt, request.status());
 
-        if (request.ack() != null && !request.ack().isEmpty()) {
-            storage.ackCommands(deviceId, request.ack());
+        // Anything delivered or acked means the device is being managed right now; a non-empty queue left behind
+        // (more than one batch, or enqueued on another node) counts too.
+        boolean active = !commands.isEmpty()
+            || config != null
+            || request.ack() != null && !request.ack().isEmpty()
+            || storage.pendingCommands().isReady() && storage.pendingCommands().mayHavePending(deviceId);
+        return new PollApi.PollResponse(
+            Instant.now().getEpochSecond(),
+            pollIntervalPolicy.next(deviceId, active),
+            commands,
+            poll.device().configVersion(),
+            config
+        );
+    }
+
+    private static PollApi.PollBatchResult failed(String deviceId, ApiException e) {
+        return new PollApi.PollBatchResult(deviceId, e.status(), null, e.publicMessage());
+    }
+
+    private static String batchDeviceId(PollRequestParser.BatchItem item) {
+        if (item.parsed() != null && item.parsed().request().deviceId() != null) {
+            return item.parsed().request().deviceId().trim();
         }
+        return item.deviceId();
+    }
 
+    // Runs on the long-poll wake executor, so it goes through admission like any poll. Without a permit or a
+    // connection the command stays PENDING: answer as parked and bring the device back at the active interval.
+    private PollApi.PollResponse deliverPending(String deviceId, PollApi.PollResponse parked) {
         List<PollApi.PollCommand> commands = new ArrayList<>();
-        for (var row : storage.fetchPendingAndMarkSent(deviceId, 10)) {
+        try {
+            withAdmission(() -> {
+                try (var session = storage.openPollSession()) {
+                    fetchCommands(session, deviceId, commands);
+                    session.commit();
+                }
+                return null;
+            });
+        } catch (ApiException | IllegalStateException e) {
+            logger.debug("Woken long-poll for {} answered without commands: {}", deviceId, e.getMessage());
+            return withServerTime(parked, pollIntervalPolicy.next(deviceId, true), List.of());
+        }
+        int intervalSec = commands.isEmpty() ? parked.intervalSec() : pollIntervalPolicy.next(deviceId, true);
+        return withServerTime(parked, intervalSec, commands);
+    }
+
+    private void fetchCommands(StorageService.PollSession session, String deviceId, List<PollApi.PollCommand> commands) {
+        commands.addAll(toCommands(session.fetchPendingAndMarkSent(deviceId, COMMANDS_PER_POLL)));
+    }
+
+    private List<PollApi.PollCommand> toCommands(List<StorageService.CommandRow> rows) {
+        List<PollApi.PollCommand> commands = new ArrayList<>(rows.size());
+        for (var row : rows) {
             commands.add(new PollApi.PollCommand(
                 row.id(),
                 row.commandType(),
                 parsePayload(row.payloadJson())
             ));
         }
+        return commands;
+    }
+
+    private static PollApi.PollResponse withServerTime(PollApi.PollResponse response,
+                                                       int intervalSec,
+                                                       List<PollApi.PollCommand> commands) {
+        return new PollApi.PollResponse(
+            Instant.now().getEpochSecond(),
+            intervalSec,
+            commands,
+            response.configVersion(),
+            response.config()
+        );
+    }
+
+    public Map<String, Long> rejectionCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        rejections.forEach((reason, count) -> counts.put(reason, count.sum()));
+        return counts;
+    }
+
+    private void countRejection(String reason) {
+        rejections.computeIfAbsent(reason, r -> new LongAdder()).increment();
+    }
+
+    private DeviceCache.Entry authenticate(String deviceId,
+                                           String headerDeviceId,
+                                           String nonce,
+                                           String signature,
+                                           long requestTs,
+                                           byte[] signedBody,
+                                           Supplier<byte[]> fallbackBody) {
+        var entry = deviceCache.get(deviceId)
+            .orElseThrow(() -> ApiException.unauthorized("unknown_device"));
+        try {
+            deviceAuthService.validate(deviceId, headerDeviceId, nonce, signature, requestTs, signedBody, fallbackBody,
+                entry.credentials(), nonceStore);
+            return entry;
+        } catch (ApiException e) {
+            // The secret may have been rotated on another node since it was cached.
+            if (!"invalid_signature".equals(e.publicMessage())) {
+                throw e;
+            }
+            var reloaded = deviceCache.reloadAfterMismatch(deviceId, entry).orElseThrow(() -> e);
+            deviceAuthService.validate(deviceId, headerDeviceId, nonce, signature, requestTs, signedBody, fallbackBody,
+                reloaded.credentials(), nonceStore);
+            return reloaded;
+        }
+    }
 
-        String activeProfile = storage.getActiveProfileName(deviceId).orElse(null);
+    // The canonical form is the sorted-key JSON of the request for either wire encoding, so a device can
+    // sign the same bytes whether it sends JSON or CBOR.
+    private static byte[] canonicalBytes(byte[] body, PollEncoding encoding) {
+        ObjectMapper mapper = encoding == PollEncoding.CBOR ? Cbors.mapper() : Jsons.mapper();
+        try {
+            return Jsons.bytes(mapper
+                .readerFor(PollApi.PollRequest.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValue(body));
+        } catch (IOException e) {
+            return body;
+        }
+    }
 
+    private static PollApi.PollConfig toPollConfig(StorageService.DeviceConfigRows rows) {
         List<PollApi.ProfileConfig> profiles = new ArrayList<>();
-        for (var p : storage.listProfilesByDevice(deviceId)) {
+        for (var p : rows.profiles()) {
             profiles.add(new PollApi.ProfileConfig(p.name(), p.defaultPortionMs()));
         }
 
         List<PollApi.ScheduleConfig> schedule = new ArrayList<>();
-        for (var s : storage.listScheduleByDevice(deviceId)) {
+        for (var s : rows.schedule()) {
             schedule.add(new PollApi.ScheduleConfig(
                 s.profileName(),
                 s.hh(),
@@ -125,12 +492,7 @@ public final class DevicePollService {
             ));
         }
 
-        return new PollApi.PollResponse(
-            Instant.now().getEpochSecond(),
-            appConfig.deviceAuth().pollIntervalSec(),
-            commands,
-            new PollApi.PollConfig(activeProfile, profiles, schedule)
-        );
+        return new PollApi.PollConfig(rows.activeProfileName(), profiles, schedule);
     }
 
     private Map<String, Object> parsePayload(String json) {
@@ -0,0 +1,173 @@
+package com.smartfeeder.service;
+
+import com.smartfeeder.config.AppConfig;
+import com.smartfeeder.dao.StorageService;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.kora.application.graph.Lifecycle;
+import ru.tinkoff.kora.common.Component;
+
+@Component
+public final class DeviceStatusTable implements Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceStatusTable.class);
+
+    static final int FLUSH_CHUNK = 1_000;
+
+    public record Stats(boolean coalesced,
+                        int devices,
+                        int dirty,
+                        long recorded,
+                        long flushes,
+                        long flushedRows,
+                        double lastFlushMs) {
+    }
+
+    private final Consumer<List<StorageService.DeviceStatusUpdate>> writer;
+    private final boolean coalesced;
+    private final int flushIntervalSec;
+    private final ConcurrentHashMap<String, StorageService.DeviceStatusUpdate> latest = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, StorageService.DeviceStatusUpdate> dirty = new ConcurrentHashMap<>();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+
+    public DeviceStatusTable(StorageService storage, AppConfig appConfig) {
+        this(
+            storage::updateDeviceStatuses,
+            appConfig.deviceStatus().writeMode(),
+            appConfig.deviceStatus().flushIntervalSec()
+        );
+    }
+
+    DeviceStatusTable(Consumer<List<StorageService.DeviceStatusUpdate>> writer, String writeMode, int flushIntervalSec) {
+        this.writer = writer;
+        this.coalesced = parseCoalesced(writeMode);
+        this.flushIntervalSec = Math.max(1, flushIntervalSec);
+    }
+
+    public boolean isCoalesced() {
+        return coalesced;
+    }
+
+    public void record(String deviceId, Instant seenAt, String statusJson, String firmwareVersion, Integer rssi) {
+        var update = new StorageService.DeviceStatusUpdate(deviceId, seenAt, statusJson, firmwareVersion, rssi);
+        latest.merge(deviceId, update, DeviceStatusTable::newer);
+        if (coalesced) {
+            dirty.merge(deviceId, update, DeviceStatusTable::newer);
+        }
+        recorded.increment();
+    }
+
+    public Optional<StorageService.DeviceStatusUpdate> find(String deviceId) {
+        return Optional.ofNullable(latest.get(deviceId));
+    }
+
+    public String lastFirmware(String deviceId) {
+        var status = latest.get(deviceId);
+        return status == null ? null : status.firmwareVersion();
+    }
+
+    public Stats stats() {
+        return new Stats(
+            coalesced,
+            latest.size(),
+            dirty.size(),
+            recorded.sum(),
+            flushes.sum(),
+            flushedRows.sum(),
+            lastFlushNanos.get() / 1e6
+        );
+    }
+
+    @Override
+    public void init() {
+        if (!coalesced) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "device-status-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSafely, flushIntervalSec, flushIntervalSec, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void release() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        flushSafely();
+    }
+
+    synchronized void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // Entries stay dirty and are retried on the next tick.
+            logger.warn("Device status flush failed, {} devices pending", dirty.size(), e);
+        }
+    }
+
+    private void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        long started = System.nanoTime();
+        List<StorageService.DeviceStatusUpdate> chunk = new ArrayList<>(FLUSH_CHUNK);
+        for (Map.Entry<String, StorageService.DeviceStatusUpdate> e : dirty.entrySet()) {
+            chunk.add(e.getValue());
+            if (chunk.size() == FLUSH_CHUNK) {
+                write(chunk);
+                chunk.clear();
+            }
+        }
+        write(chunk);
+        flushes.increment();
+        lastFlushNanos.set(System.nanoTime() - started);
+    }
+
+    private void write(List<StorageService.DeviceStatusUpdate> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        writer.accept(chunk);
+        flushedRows.add(chunk.size());
+        for (var update : chunk) {
+            // A poll that landed during the write keeps the device dirty.
+            dirty.remove(update.deviceId(), update);
+        }
+    }
+
+    private static StorageService.DeviceStatusUpdate newer(StorageService.DeviceStatusUpdate current,
+                                                           StorageService.DeviceStatusUpdate next) {
+        return next.seenAt().isBefore(current.seenAt()) ? current : next;
+    }
+
+    private static boolean parseCoalesced(String value) {
+        if (value == null || value.isBlank()) {
+            return true;
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "coalesced" -> true;
+            case "sync" -> false;
+            default -> throw new IllegalStateException("Unknown app.deviceStatus.writeMode: " + value);
+        };
+    }
+}
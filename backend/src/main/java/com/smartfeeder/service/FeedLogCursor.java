@@ -0,0 +1,34 @@
+package com.smartfeeder.service;
+
+import com.smartfeeder.dao.StorageService;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+// Opaque page token for the admin log list: the (ts, id) of the last row shown, base64url so it survives a
+// query string untouched. ts keeps its nanos so rows sharing a second are not skipped or repeated.
+final class FeedLogCursor {
+    private FeedLogCursor() {
+    }
+
+    static String encode(StorageService.FeedLogKey key) {
+        String raw = key.ts().getEpochSecond() + "." + key.ts().getNano() + "." + key.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static StorageService.FeedLogKey decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            String[] parts = raw.split("\\.", 3);
+            if (parts.length != 3) {
+                throw ApiException.badRequest("invalid_cursor");
+            }
+            Instant ts = Instant.ofEpochSecond(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+            return new StorageService.FeedLogKey(ts, UUID.fromString(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw ApiException.badRequest("invalid_cursor");
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.smartfeeder.service;
+
+import com.smartfeeder.config.AppConfig;
+import com.smartfeeder.dao.StorageService;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.kora.application.graph.Lifecycle;
+import ru.tinkoff.kora.common.Component;
+import ru.tinkoff.kora.common.annotation.Root;
+
+// Keeps feed_logs partitioned by UTC day or ISO week: the current period and partitionPremake after it exist
+// before any log lands there, and partitions that ended more than retentionDays ago are dropped whole instead of
+// being deleted row by row. Periods are cut around whatever partitions already exist, so switching between day and
+// week, or the legacy partition left by V5, never produces overlapping ranges.
+@Component
+@Root
+public final class FeedLogPartitionManager implements Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(FeedLogPartitionManager.class);
+    private static final DateTimeFormatter NAME_DATE = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    public record Stats(String interval, int premake, int retentionDays, int partitions, long created, long dropped) {
+    }
+
+    private final StorageService storage;
+    private final boolean weekly;
+    private final int premake;
+    private final int retentionDays;
+    private final int checkIntervalMin;
+    private final LongAdder created = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile int partitions;
+    private ScheduledExecutorService scheduler;
+
+    public FeedLogPartitionManager(StorageService storage, AppConfig appConfig, MigrationRunner migrationRunner) {
+        this(
+            storage,
+            parseWeekly(appConfig.feedLogs().partitionInterval()),
+            appConfig.feedLogs().partitionPremake(),
+            appConfig.feedLogs().retentionDays(),
+            appConfig.feedLogs().partitionCheckIntervalMin()
+        );
+    }
+
+    FeedLogPartitionManager(StorageService storage, boolean weekly, int premake, int retentionDays, int checkIntervalMin) {
+        this.storage = storage;
+        this.weekly = weekly;
+        this.premake = Math.max(1, premake);
+        this.retentionDays = Math.max(0, retentionDays);
+        this.checkIntervalMin = Math.max(1, checkIntervalMin);
+    }
+
+    @Override
+    public void init() {
+        // Without the partitions for today logs still land in feed_logs_default, so a failure here is not fatal.
+        maintainSafely();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "feed-log-partitions");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintainSafely, checkIntervalMin, checkIntervalMin, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void release() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public Stats stats() {
+        return new Stats(weekly ? "week" : "day", premake, retentionDays, partitions, created.sum(), dropped.sum());
+    }
+
+    void maintain(Instant now) {
+        List<StorageService.FeedLogPartition> existing = storage.listFeedLogPartitions();
+        for (var partition : missing(existing, now)) {
+            if (storage.createFeedLogPartition(partition)) {
+                created.increment();
+                logger.info("Created feed_logs partition {} [{}, {})", partition.name(), partition.from(), partition.to());
+            }
+        }
+        if (retentionDays > 0) {
+            for (var partition : expired(existing, now)) {
+                storage.dropFeedLogPartition(partition.name());
+                dropped.increment();
+                logger.info("Dropped expired feed_logs partition {} (ended {})", partition.name(), partition.to());
+            }
+            int deleted = storage.deleteDefaultFeedLogsBefore(retentionCutoff(now));
+            if (deleted > 0) {
+                logger.info("Deleted {} expired rows from feed_logs_default", deleted);
+            }
+        }
+        partitions = storage.listFeedLogPartitions().size();
+    }
+
+    // Gaps between existing partitions over the current period and the premake ones after it.
+    List<StorageService.FeedLogPartition> missing(List<StorageService.FeedLogPartition> existing, Instant now) {
+        List<StorageService.FeedLogPartition> sorted = new ArrayList<>(existing);
+        sorted.sort(Comparator.comparing(StorageService.FeedLogPartition::from,
+            Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        List<StorageService.FeedLogPartition> result = new ArrayList<>();
+        Instant start = periodStart(now);
+        for (int i = 0; i <= premake; i++) {
+            Instant end = next(start);
+            Instant cursor = start;
+            for (var partition : sorted) {
+                if (!cursor.isBefore(end)) {
+                    break;
+                }
+                boolean overlaps = (partition.from() == null || partition.from().isBefore(end))
+                    && (partition.to() == null || partition.to().isAfter(cursor));
+                if (!overlaps) {
+                    continue;
+                }
+                if (partition.from() != null && partition.from().isAfter(cursor)) {
+                    result.add(period(cursor, partition.from()));
+                }
+                cursor = partition.to() == null ? end : max(cursor, partition.to());
+            }
+            if (cursor.isBefore(end)) {
+                result.add(period(cursor, end));
+            }
+            start = end;
+        }
+        return result;
+    }
+
+    List<StorageService.FeedLogPartition> expired(List<StorageService.FeedLogPartition> existing, Instant now) {
+        Instant cutoff = retentionCutoff(now);
+        List<StorageService.FeedLogPartition> result = new ArrayList<>();
+        for (var partition : existing) {
+            if (partition.to() != null && !partition.to().isAfter(cutoff)) {
+                result.add(partition);
+            }
+        }
+        return result;
+    }
+
+    private Instant retentionCutoff(Instant now) {
+        return now.truncatedTo(ChronoUnit.DAYS).minus(Duration.ofDays(retentionDays));
+    }
+
+    private Instant periodStart(Instant now) {
+        LocalDate day = LocalDate.ofInstant(now, ZoneOffset.UTC);
+        if (weekly) {
+            day = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private Instant next(Instant start) {
+        return start.plus(Duration.ofDays(weekly ? 7 : 1));
+    }
+
+    private static StorageService.FeedLogPartition period(Instant from, Instant to) {
+        return new StorageService.FeedLogPartition("feed_logs_p" + NAME_DATE.format(from), from, to);
+    }
+
+    private static Instant max(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private void maintainSafely() {
+        try {
+            maintain(Instant.now());
+        } catch (Exception e) {
+            logger.warn("feed_logs partition maintenance failed", e);
+        }
+    }
+
+    private static boolean parseWeekly(String value) {
+        if (value == null || value.isBlank()) {
+            return false;
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "day" -> false;
+            case "week" -> true;
+            default -> throw new IllegalStateException("Unknown app.feedLogs.partitionInterval: " + value);
+        };
+    }
+}
@@ -0,0 +1,162 @@
+package com.smartfeeder.service;
+
+import com.smartfeeder.config.AppConfig;
+import com.smartfeeder.dao.StorageService;
+import com.smartfeeder.util.Uuids;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.kora.application.graph.Lifecycle;
+import ru.tinkoff.kora.common.Component;
+
+@Component
+public final class FeedLogWriter implements Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(FeedLogWriter.class);
+
+    public record Stats(boolean async,
+                        int queueDepth,
+                        int capacity,
+                        long enqueued,
+                        long syncFallbacks,
+                        long flushes,
+                        long flushedRows,
+                        long failedRows,
+                        double lastFlushMs,
+                        double maxFlushMs,
+                        double avgFlushMs) {
+    }
+
+    private final StorageService storage;
+    private final boolean async;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final MpscRingBuffer<StorageService.FeedLogRecord> buffer;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder syncFallbacks = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final LongAdder flushNanosTotal = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private ScheduledExecutorService scheduler;
+
+    public FeedLogWriter(StorageService storage, AppConfig appConfig) {
+        this.storage = storage;
+        this.async = parseAsync(appConfig.feedLogs().writeMode());
+        this.batchSize = Math.max(1, appConfig.feedLogs().batchSize());
+        this.flushIntervalMs = Math.max(1, appConfig.feedLogs().flushIntervalMs());
+        this.buffer = new MpscRingBuffer<>(Math.max(1, appConfig.feedLogs().bufferSize()));
+    }
+
+    // Returns the logs that could not be buffered; the caller writes them synchronously,
+    // which slows the submitting poll down while the writer catches up.
+    public List<StorageService.FeedLogInput> submit(String deviceId, List<StorageService.FeedLogInput> logs) {
+        if (!async || logs.isEmpty()) {
+            return logs;
+        }
+        for (int i = 0; i < logs.size(); i++) {
+            if (!buffer.offer(new StorageService.FeedLogRecord(Uuids.timeOrdered(), deviceId, logs.get(i)))) {
+                enqueued.add(i);
+                syncFallbacks.add(logs.size() - i);
+                return logs.subList(i, logs.size());
+            }
+        }
+        enqueued.add(logs.size());
+        return List.of();
+    }
+
+    public Stats stats() {
+        long count = flushes.sum();
+        return new Stats(
+            async,
+            buffer.size(),
+            buffer.capacity(),
+            enqueued.sum(),
+            syncFallbacks.sum(),
+            count,
+            flushedRows.sum(),
+            failedRows.sum(),
+            lastFlushNanos / 1e6,
+            maxFlushNanos.get() / 1e6,
+            count == 0 ? 0 : flushNanosTotal.sum() / 1e6 / count
+        );
+    }
+
+    @Override
+    public void init() {
+        if (!async) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "feed-log-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::drain, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void release() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+            logger.warn("Feed log writer did not stop in time, {} buffered rows are lost", buffer.size());
+            return;
+        }
+        // Producers are gone by now; whatever is still buffered is written from the shutdown thread.
+        drain();
+        logger.info("Feed log writer stopped: {}", stats());
+    }
+
+    private void drain() {
+        List<StorageService.FeedLogRecord> batch = new ArrayList<>(Math.min(batchSize, buffer.capacity()));
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<StorageService.FeedLogRecord> batch) {
+        long started = System.nanoTime();
+        try {
+            storage.copyFeedLogs(batch);
+            flushedRows.add(batch.size());
+        } catch (Exception e) {
+            logger.warn("Feed log COPY of {} rows failed, retrying row by row", batch.size(), e);
+            try {
+                int inserted = storage.insertFeedLogsOfExistingDevices(batch);
+                flushedRows.add(inserted);
+                failedRows.add(batch.size() - inserted);
+            } catch (Exception retryError) {
+                failedRows.add(batch.size());
+                logger.error("Dropping {} feed log rows", batch.size(), retryError);
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        flushes.increment();
+        flushNanosTotal.add(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        lastFlushNanos = elapsed;
+    }
+
+    private static boolean parseAsync(String value) {
+        if (value == null || value.isBlank()) {
+            return true;
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "async" -> true;
+            case "sync" -> false;
+            default -> throw new IllegalStateException("Unknown app.feedLogs.writeMode: " + value);
+        };
+    }
+}
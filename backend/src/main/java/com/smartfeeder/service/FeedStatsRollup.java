@@ -0,0 +1,289 @@
+package com.smartfeeder.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.smartfeeder.config.AppConfig;
+import com.smartfeeder.dao.StorageService;
+import com.smartfeeder.domain.AdminApi;
+import com.smartfeeder.util.Jsons;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+import java.util.function.ToIntFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.kora.application.graph.Lifecycle;
+import ru.tinkoff.kora.common.Component;
+
+// Hourly per-device feeding and link statistics, accumulated in memory as polls come in and added onto
+// feed_stats_hourly every flushIntervalSec. Feeds and ERROR logs count in the hour of the log's ts, polls and RSSI
+// in the hour the server saw them. Errors are keyed by the status error code, or for ERROR log rows by meta.code
+// (plain "ERROR" without one).
+@Component
+public final class FeedStatsRollup implements Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(FeedStatsRollup.class);
+    private static final TypeReference<Map<String, Long>> ERRORS_TYPE = new TypeReference<>() {
+    };
+
+    public record Stats(boolean enabled, int pendingBuckets, long flushes, long flushedRows, long failedFlushes) {
+    }
+
+    private record Key(String deviceId, Instant hour) {
+    }
+
+    // storage::listFeedStats outside of tests.
+    interface RowReader {
+        List<StorageService.FeedStatsRow> read(String deviceId, Instant from, Instant to);
+    }
+
+    // Only mutated inside ConcurrentHashMap.compute, so never while a flush holds it.
+    private static final class Bucket {
+        int polls;
+        int autoFeeds;
+        int manualFeeds;
+        long portionMs;
+        Map<String, Long> errors;
+        Integer rssiMin;
+        Integer rssiMax;
+        long rssiSum;
+        int rssiSamples;
+
+        void error(String code) {
+            if (errors == null) {
+                errors = new TreeMap<>();
+            }
+            errors.merge(code, 1L, Long::sum);
+        }
+
+        void add(StorageService.FeedStatsRow row) {
+            polls += row.polls();
+            autoFeeds += row.autoFeeds();
+            manualFeeds += row.manualFeeds();
+            portionMs += row.portionMs();
+            for (var e : parseErrors(row.errorsJson()).entrySet()) {
+                if (errors == null) {
+                    errors = new TreeMap<>();
+                }
+                errors.merge(e.getKey(), e.getValue(), Long::sum);
+            }
+            rssiMin = combine(rssiMin, row.rssiMin(), Math::min);
+            rssiMax = combine(rssiMax, row.rssiMax(), Math::max);
+            rssiSum += row.rssiSum();
+            rssiSamples += row.rssiSamples();
+        }
+
+        StorageService.FeedStatsRow toRow(String deviceId, Instant bucketStart) {
+            return new StorageService.FeedStatsRow(deviceId, bucketStart, polls, autoFeeds, manualFeeds, portionMs,
+                Jsons.stringify(errors == null ? Map.of() : errors), rssiMin, rssiMax, rssiSum, rssiSamples);
+        }
+    }
+
+    private final ToIntFunction<List<StorageService.FeedStatsRow>> writer;
+    private final RowReader reader;
+    private final boolean enabled;
+    private final int flushIntervalSec;
+    private final ConcurrentHashMap<Key, Bucket> pending = new ConcurrentHashMap<>();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private ScheduledExecutorService scheduler;
+
+    public FeedStatsRollup(StorageService storage, AppConfig appConfig) {
+        this(
+            storage::upsertFeedStats,
+            storage::listFeedStats,
+            appConfig.feedStats().enabled(),
+            appConfig.feedStats().flushIntervalSec()
+        );
+    }
+
+    FeedStatsRollup(ToIntFunction<List<StorageService.FeedStatsRow>> writer,
+                    RowReader reader,
+                    boolean enabled,
+                    int flushIntervalSec) {
+        this.writer = writer;
+        this.reader = reader;
+        this.enabled = enabled;
+        this.flushIntervalSec = Math.max(1, flushIntervalSec);
+    }
+
+    public void record(String deviceId,
+                       Instant seenAt,
+                       Integer rssi,
+                       String statusError,
+                       List<StorageService.FeedLogInput> logs) {
+        if (!enabled) {
+            return;
+        }
+        pending.compute(new Key(deviceId, hour(seenAt)), (key, bucket) -> {
+            Bucket b = bucket == null ? new Bucket() : bucket;
+            b.polls++;
+            if (rssi != null) {
+                b.rssiMin = combine(b.rssiMin, rssi, Math::min);
+                b.rssiMax = combine(b.rssiMax, rssi, Math::max);
+                b.rssiSum += rssi;
+                b.rssiSamples++;
+            }
+            if (statusError != null && !statusError.isBlank()) {
+                b.error(statusError.trim());
+            }
+            return b;
+        });
+        for (var log : logs) {
+            switch (log.type()) {
+                case "AUTO_FEED", "MANUAL_FEED", "ERROR" -> recordLog(deviceId, log);
+                default -> {
+                }
+            }
+        }
+    }
+
+    // Hourly rows as stored, or folded into UTC days; the current flush interval is not in them yet.
+    public List<AdminApi.FeedStatsBucket> read(String deviceId, boolean daily, Instant from, Instant to) {
+        Map<Instant, Bucket> buckets = new LinkedHashMap<>();
+        for (var row : reader.read(deviceId, from, to)) {
+            Instant start = daily ? row.bucketStart().truncatedTo(ChronoUnit.DAYS) : row.bucketStart();
+            buckets.computeIfAbsent(start, s -> new Bucket()).add(row);
+        }
+        List<AdminApi.FeedStatsBucket> result = new ArrayList<>(buckets.size());
+        for (var e : buckets.entrySet()) {
+            Bucket b = e.getValue();
+            result.add(new AdminApi.FeedStatsBucket(
+                e.getKey(),
+                b.polls,
+                b.autoFeeds + b.manualFeeds,
+                b.autoFeeds,
+                b.manualFeeds,
+                b.portionMs,
+                b.errors == null ? Map.of() : b.errors,
+                b.rssiMin,
+                b.rssiSamples == 0 ? null : (double) b.rssiSum / b.rssiSamples,
+                b.rssiMax
+            ));
+        }
+        return result;
+    }
+
+    public Stats stats() {
+        return new Stats(enabled, pending.size(), flushes.sum(), flushedRows.sum(), failedFlushes.sum());
+    }
+
+    @Override
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "feed-stats-rollup");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSafely, flushIntervalSec, flushIntervalSec, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void release() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        flushSafely();
+    }
+
+    void flush() {
+        List<StorageService.FeedStatsRow> rows = new ArrayList<>();
+        for (Key key : pending.keySet()) {
+            Bucket bucket = pending.remove(key);
+            if (bucket != null) {
+                rows.add(bucket.toRow(key.deviceId(), key.hour()));
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            flushedRows.add(writer.applyAsInt(rows));
+            flushes.increment();
+        } catch (RuntimeException e) {
+            failedFlushes.increment();
+            // Put the counts back so the next flush retries them on top of whatever came in meanwhile.
+            for (var row : rows) {
+                pending.compute(new Key(row.deviceId(), row.bucketStart()), (key, bucket) -> {
+                    Bucket b = bucket == null ? new Bucket() : bucket;
+                    b.add(row);
+                    return b;
+                });
+            }
+            throw e;
+        }
+    }
+
+    private void recordLog(String deviceId, StorageService.FeedLogInput log) {
+        JsonNode meta = parseMeta(log.metaJson());
+        pending.compute(new Key(deviceId, hour(log.ts())), (key, bucket) -> {
+            Bucket b = bucket == null ? new Bucket() : bucket;
+            switch (log.type()) {
+                case "AUTO_FEED" -> {
+                    b.autoFeeds++;
+                    b.portionMs += Math.max(0, meta.path("portionMs").asLong(0));
+                }
+                case "MANUAL_FEED" -> {
+                    b.manualFeeds++;
+                    b.portionMs += Math.max(0, meta.path("portionMs").asLong(0));
+                }
+                default -> b.error(meta.path("code").isTextual() ? meta.path("code").asText() : "ERROR");
+            }
+            return b;
+        });
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.warn("Feed stats rollup flush failed, {} buckets kept for retry", pending.size(), e);
+        }
+    }
+
+    private static Integer combine(Integer current, Integer value, BinaryOperator<Integer> pick) {
+        if (current == null) {
+            return value;
+        }
+        return value == null ? current : pick.apply(current, value);
+    }
+
+    private static Instant hour(Instant ts) {
+        return ts.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static JsonNode parseMeta(String metaJson) {
+        try {
+            return metaJson == null ? Jsons.mapper().missingNode() : Jsons.mapper().readTree(metaJson);
+        } catch (IOException e) {
+            return Jsons.mapper().missingNode();
+        }
+    }
+
+    private static Map<String, Long> parseErrors(String errorsJson) {
+        if (errorsJson == null || errorsJson.isBlank()) {
+            return Map.of();
+        }
+        try {
+            return Jsons.mapper().readValue(errorsJson, ERRORS_TYPE);
+        } catch (IOException e) {
+            return Map.of();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.smartfeeder.service;
+
+import com.smartfeeder.config.AppConfig;
+import com.smartfeeder.dao.CommandNotificationBus;
+import com.smartfeeder.dao.StorageService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.kora.application.graph.Lifecycle;
+import ru.tinkoff.kora.common.Component;
+
+@Component
+public final class LongPollService implements Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(LongPollService.class);
+
+    private static final int LISTEN_POLL_MS = 1_000;
+    private static final int LISTEN_RETRY_MS = 5_000;
+
+    public record Stats(int maxWaitSec,
+                        boolean listening,
+                        int parked,
+                        long woken,
+                        long timedOut,
+                        CommandNotificationBus.Stats bus) {
+    }
+
+    private final StorageService storage;
+    private final int maxWaitSec;
+    private final boolean listenNotify;
+    private final AtomicInteger parked = new AtomicInteger();
+    private final LongAdder woken = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private volatile boolean listening;
+    private volatile boolean running;
+    private volatile boolean stopping;
+    private ExecutorService executor;
+    private Thread listener;
+
+    public LongPollService(StorageService storage, AppConfig appConfig) {
+        this.storage = storage;
+        this.maxWaitSec = Math.max(0, appConfig.longPoll().maxWaitSec());
+        this.listenNotify = appConfig.longPoll().listenNotify();
+    }
+
+    // X-Long-Poll: seconds the device is willing to wait, capped by app.longPoll.maxWaitSec.
+    public int waitSec(String header) {
+        if (maxWaitSec == 0 || header == null || header.isBlank()) {
+            return 0;
+        }
+        try {
+            return Math.min(maxWaitSec, Math.max(0, Integer.parseInt(header.trim())));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Completes with true once a command for the device is enqueued, false after waitSec or on shutdown. Neither
+    // holds a thread while parked; completion runs on the wake executor so the caller may go back to the database.
+    public CompletableFuture<Boolean> park(String deviceId, int waitSec) {
+        CommandNotificationBus bus = storage.commandNotifications();
+        CompletableFuture<Boolean> waiter = bus.subscribe(deviceId);
+        // A command enqueued between the poll's fetch and subscribe() has already been published.
+        if (storage.pendingCommands().isReady() && storage.pendingCommands().mayHavePending(deviceId)) {
+            bus.unsubscribe(deviceId, waiter);
+            return CompletableFuture.completedFuture(true);
+        }
+        parked.incrementAndGet();
+        return waiter
+            .completeOnTimeout(false, waitSec, TimeUnit.SECONDS)
+            .thenApplyAsync(wake -> {
+                parked.decrementAndGet();
+                if (wake) {
+                    woken.increment();
+                } else {
+                    timedOut.increment();
+                    bus.unsubscribe(deviceId, waiter);
+                }
+                // Shutdown wakes every parked poll at once; they answer as parked rather than each claiming.
+                return wake && !stopping;
+            }, executor);
+    }
+
+    public Stats stats() {
+        return new Stats(maxWaitSec, listening, parked.get(), woken.sum(), timedOut.sum(),
+            storage.commandNotifications().stats());
+    }
+
+    @Override
+    public void init() {
+        if (maxWaitSec == 0) {
+            return;
+        }
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "long-poll-wake-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        if (!listenNotify) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "command-notify-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void release() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener.join(LISTEN_POLL_MS * 5L);
+        }
+        if (executor == null) {
+            return;
+        }
+        // Parked polls answer right away instead of hanging until the server is gone.
+        stopping = true;
+        storage.commandNotifications().wakeAll();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void listen() {
+        while (running) {
+            try (var commands = storage.listenCommandNotifications()) {
+                listening = true;
+                logger.info("Listening for command notifications from other nodes");
+                while (running) {
+                    commands.poll(LISTEN_POLL_MS);
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                // Until this reconnects, commands from other nodes are only seen after the next reconciliation.
+                logger.warn("Command notification listener failed, retrying in {} ms", LISTEN_RETRY_MS, e);
+            } finally {
+                listening = false;
+            }
+            try {
+                Thread.sleep(LISTEN_RETRY_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
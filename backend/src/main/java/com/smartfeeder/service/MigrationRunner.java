@@ -7,6 +7,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import org.flywaydb.core.Flyway;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +39,11 @@ public final class MigrationRunner {
             logger.warn("Flyway didn't create required tables, applying SQL fallback migrations");
             runSqlScript(dbClient, "/db/migration/V1__init.sql");
             runSqlScript(dbClient, "/db/migration/V2__seed_base.sql");
+            runSqlScript(dbClient, "/db/migration/V3__device_config_version.sql");
+            runSqlScript(dbClient, "/db/migration/V4__feed_logs_keyset.sql");
+            runSqlScript(dbClient, "/db/migration/V5__feed_logs_partitioned.sql");
+            runSqlScript(dbClient, "/db/migration/V6__feed_stats_hourly.sql");
+            runSqlScript(dbClient, "/db/migration/V7__device_telemetry_chunks.sql");
         }
     }
 
@@ -72,7 +79,7 @@ public final class MigrationRunner {
         }
 
         String cleaned = script.replaceAll("(?m)^\\s*--.*$", "");
-        String[] statements = cleaned.split(";");
+        List<String> statements = splitStatements(cleaned);
 
         try (Connection connection = dbClient.getConnection()) {
             connection.setAutoCommit(false);
@@ -90,4 +97,26 @@ public final class MigrationRunner {
             throw new IllegalStateException("Cannot execute fallback migrations", e);
         }
     }
+
+    // Splits on ';' outside $$-quoted bodies, so DO blocks stay one statement.
+    static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean dollarQuoted = false;
+        for (int i = 0; i < script.length(); i++) {
+            char c = script.charAt(i);
+            if (c == '$' && i + 1 < script.length() && script.charAt(i + 1) == '$') {
+                dollarQuoted = !dollarQuoted;
+                current.append("$$");
+                i++;
+            } else if (c == ';' && !dollarQuoted) {
+                statements.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        statements.add(current.toString());
+        return statements;
+    }
 }
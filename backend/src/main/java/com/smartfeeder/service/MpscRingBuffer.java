@@ -0,0 +1,73 @@
+package com.smartfeeder.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bounded multi-producer single-consumer queue: producers claim a slot with one CAS on the tail,
+// per-slot sequence numbers publish the element to the consumer and hand the slot back afterwards.
+public final class MpscRingBuffer<T> {
+    private final int mask;
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public MpscRingBuffer(int minCapacity) {
+        if (minCapacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int capacity = minCapacity <= 2 ? 2 : Integer.highestOneBit(minCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(T element) {
+        while (true) {
+            long pos = tail.get();
+            int slot = (int) (pos & mask);
+            long diff = sequences.get(slot) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.lazySet(slot, element);
+                    sequences.set(slot, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    // Consumer side only.
+    public int drainTo(List<? super T> target, int max) {
+        int drained = 0;
+        long pos = head.get();
+        while (drained < max) {
+            int slot = (int) (pos & mask);
+            if (sequences.get(slot) != pos + 1) {
+                break;
+            }
+            target.add(slots.get(slot));
+            slots.lazySet(slot, null);
+            sequences.set(slot, pos + mask + 1);
+            pos++;
+            drained++;
+        }
+        head.lazySet(pos);
+        return drained;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
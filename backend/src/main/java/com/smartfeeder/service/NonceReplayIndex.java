@@ -0,0 +1,80 @@
+package com.smartfeeder.service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public final class NonceReplayIndex {
+    private record Bucket(long id, Set<String> keys) {
+    }
+
+    private final int bucketSec;
+    private final AtomicReferenceArray<Bucket> ring;
+
+    public NonceReplayIndex(int windowSec, int bucketSec) {
+        if (windowSec <= 0 || bucketSec <= 0) {
+            throw new IllegalArgumentException("windowSec and bucketSec must be positive");
+        }
+        this.bucketSec = bucketSec;
+        // Accepted request timestamps lie within windowSec on either side of now.
+        this.ring = new AtomicReferenceArray<>(2 * windowSec / bucketSec + 2);
+    }
+
+    public static NonceReplayIndex forWindow(int windowSec) {
+        return new NonceReplayIndex(windowSec, Math.max(1, windowSec / 8));
+    }
+
+    public boolean register(String deviceId, String nonce, long tsEpoch) {
+        String key = deviceId + '\n' + nonce;
+        long bucketId = Math.floorDiv(tsEpoch, bucketSec);
+
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket b = ring.get(i);
+            if (b != null && b.id() != bucketId && b.keys().contains(key)) {
+                return false;
+            }
+        }
+
+        Bucket bucket = bucket(bucketId);
+        return bucket != null && bucket.keys().add(key);
+    }
+
+    public void purgeOlderThan(long minEpochExclusive) {
+        long minId = Math.floorDiv(minEpochExclusive, bucketSec);
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket b = ring.get(i);
+            if (b != null && b.id() < minId) {
+                ring.compareAndSet(i, b, null);
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket b = ring.get(i);
+            if (b != null) {
+                size += b.keys().size();
+            }
+        }
+        return size;
+    }
+
+    private Bucket bucket(long id) {
+        int slot = (int) Math.floorMod(id, (long) ring.length());
+        while (true) {
+            Bucket current = ring.get(slot);
+            if (current != null && current.id() == id) {
+                return current;
+            }
+            if (current != null && current.id() > id) {
+                // Older than anything the ring still covers: cannot prove it is fresh.
+                return null;
+            }
+            Bucket fresh = new Bucket(id, ConcurrentHashMap.newKeySet());
+            if (ring.compareAndSet(slot, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+}
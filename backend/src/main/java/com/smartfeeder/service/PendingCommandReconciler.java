@@ -0,0 +1,63 @@
+package com.smartfeeder.service;
+
+import com.smartfeeder.config.AppConfig;
+import com.smartfeeder.dao.StorageService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.kora.application.graph.Lifecycle;
+import ru.tinkoff.kora.common.Component;
+import ru.tinkoff.kora.common.annotation.Root;
+
+@Component
+@Root
+public final class PendingCommandReconciler implements Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(PendingCommandReconciler.class);
+
+    private final StorageService storage;
+    private final int intervalSec;
+    private ScheduledExecutorService scheduler;
+
+    public PendingCommandReconciler(StorageService storage, AppConfig appConfig, MigrationRunner migrationRunner) {
+        this.storage = storage;
+        this.intervalSec = Math.max(1, appConfig.commandQueue().reconcileIntervalSec());
+    }
+
+    @Override
+    public void init() {
+        // Until the first clean pass the index is not authoritative and polls keep querying the queue.
+        reconcileSafely();
+        if (storage.pendingCommands().isReady()) {
+            logger.info("Pending command index warmed: {}", storage.pendingCommands().stats());
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pending-command-reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcileSafely, intervalSec, intervalSec, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void release() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void reconcileSafely() {
+        try {
+            int skipped = storage.reconcilePendingCommands();
+            if (skipped > 0) {
+                logger.debug("Pending command reconciliation skipped {} devices changed during the pass", skipped);
+            }
+        } catch (Exception e) {
+            logger.warn("Pending command reconciliation failed", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.smartfeeder.service;
+
+import com.smartfeeder.config.AppConfig;
+import com.smartfeeder.config.DbConfig;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import ru.tinkoff.kora.common.Component;
+
+// Caps concurrent polls doing database work below the pool size, so a mass reconnect queues for at most
+// queueWaitMs and is then shed with a jittered retry delay instead of timing out inside Hikari. Admin and auth
+// routes do not pass through here and keep adminReservedConnections of the pool for themselves; the periodic
+// background writers borrow up to backgroundReservedConnections. The command LISTEN session is outside the pool.
+@Component
+public final class PollAdmissionLimiter {
+    public record Stats(int permits, int inFlight, long admitted, long shed) {
+    }
+
+    private final int permits;
+    private final Semaphore semaphore;
+    private final long queueWaitMs;
+    private final int retryAfterMinSec;
+    private final int retryAfterMaxSec;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    public PollAdmissionLimiter(AppConfig appConfig, DbConfig dbConfig) {
+        this(appConfig, dbConfig.maxPoolSize());
+    }
+
+    private PollAdmissionLimiter(AppConfig appConfig, int poolSize) {
+        AppConfig.AdmissionConfig config = appConfig.admission();
+        this.permits = config.pollPermits() > 0
+            ? config.pollPermits()
+            : Math.max(1, poolSize - config.adminReservedConnections() - config.backgroundReservedConnections());
+        this.semaphore = new Semaphore(permits);
+        this.queueWaitMs = Math.max(0, config.queueWaitMs());
+        this.retryAfterMinSec = Math.max(1, config.retryAfterMinSec());
+        this.retryAfterMaxSec = Math.max(retryAfterMinSec, config.retryAfterMaxSec());
+    }
+
+    public static PollAdmissionLimiter of(AppConfig appConfig, int poolSize) {
+        return new PollAdmissionLimiter(appConfig, poolSize);
+    }
+
+    public boolean tryAcquire() {
+        boolean acquired;
+        try {
+            acquired = queueWaitMs == 0
+                ? semaphore.tryAcquire()
+                : semaphore.tryAcquire(queueWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (acquired) {
+            admitted.increment();
+        } else {
+            shed.increment();
+        }
+        return acquired;
+    }
+
+    public void release() {
+        semaphore.release();
+    }
+
+    // Spread uniformly so shed devices do not come back in the same second.
+    public int retryAfterSec() {
+        return ThreadLocalRandom.current().nextInt(retryAfterMinSec, retryAfterMaxSec + 1);
+    }
+
+    public Stats stats() {
+        return new Stats(permits, permits - semaphore.availablePermits(), admitted.sum(), shed.sum());
+    }
+}
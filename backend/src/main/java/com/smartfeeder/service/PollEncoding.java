@@ -0,0 +1,46 @@
+package com.smartfeeder.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.smartfeeder.util.Cbors;
+import com.smartfeeder.util.Jsons;
+import java.util.Locale;
+
+// Wire encodings of /api/device/poll. Both carry the PollApi records with the same field names.
+public enum PollEncoding {
+    JSON("application/json"),
+    CBOR("application/cbor");
+
+    private final String mediaType;
+
+    PollEncoding(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    JsonFactory factory() {
+        return this == CBOR ? Cbors.mapper().getFactory() : Jsons.mapper().getFactory();
+    }
+
+    // Anything that is not CBOR is read as JSON, as before content negotiation existed.
+    public static PollEncoding ofContentType(String contentType) {
+        return matches(contentType, CBOR) ? CBOR : JSON;
+    }
+
+    // Accept wins when it names one of the encodings; otherwise the response mirrors the request.
+    public static PollEncoding forResponse(String accept, PollEncoding request) {
+        if (matches(accept, CBOR)) {
+            return CBOR;
+        }
+        if (matches(accept, JSON)) {
+            return JSON;
+        }
+        return request;
+    }
+
+    private static boolean matches(String header, PollEncoding encoding) {
+        return header != null && header.toLowerCase(Locale.ROOT).contains(encoding.mediaType);
+    }
+}
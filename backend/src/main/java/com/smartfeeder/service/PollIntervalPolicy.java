@@ -0,0 +1,149 @@
+package com.smartfeeder.service;
+
+import com.smartfeeder.config.AppConfig;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import ru.tinkoff.kora.common.Component;
+
+// Per-device PollResponse.intervalSec. A device that just got commands/config, acked or is open in the admin UI
+// polls every minSec for activeWindowSec; after that each idle poll doubles the interval from the base
+// (deviceAuth.pollIntervalSec) up to maxSec. Every answer is spread by +-jitterPercent so a fleet that
+// reconnects together does not keep polling in lockstep.
+@Component
+public final class PollIntervalPolicy {
+    private static final int MAX_SHIFT = 16;
+    // Past the interval a device was told to wait: the long-poll hold, network retries and clock skew between nodes.
+    static final int ONLINE_GRACE_SEC = 60;
+
+    public record Stats(String mode, int devices, int active) {
+    }
+
+    // lastSec/issuedAtMillis: the interval this node last answered the device with, and when.
+    private record State(int idleStreak, long activeUntilMillis, int lastSec, long issuedAtMillis) {
+    }
+
+    private final boolean adaptive;
+    private final int baseSec;
+    private final int minSec;
+    private final int maxSec;
+    private final long activeWindowMillis;
+    private final int jitterPercent;
+    private final int longestSec;
+    private final LongSupplier millisClock;
+    private final DoubleSupplier random;
+    private final ConcurrentHashMap<String, State> devices = new ConcurrentHashMap<>();
+
+    public PollIntervalPolicy(AppConfig appConfig) {
+        this(
+            parseAdaptive(appConfig.pollInterval().mode()),
+            appConfig.deviceAuth().pollIntervalSec(),
+            appConfig.pollInterval().minSec(),
+            appConfig.pollInterval().maxSec(),
+            appConfig.pollInterval().activeWindowSec(),
+            appConfig.pollInterval().jitterPercent(),
+            System::currentTimeMillis,
+            () -> ThreadLocalRandom.current().nextDouble()
+        );
+    }
+
+    PollIntervalPolicy(boolean adaptive,
+                       int baseSec,
+                       int minSec,
+                       int maxSec,
+                       int activeWindowSec,
+                       int jitterPercent,
+                       LongSupplier millisClock,
+                       DoubleSupplier random) {
+        this.adaptive = adaptive;
+        this.baseSec = Math.max(1, baseSec);
+        this.minSec = Math.max(1, Math.min(minSec, this.baseSec));
+        this.maxSec = Math.max(this.baseSec, maxSec);
+        this.activeWindowMillis = Math.max(0, activeWindowSec) * 1000L;
+        this.jitterPercent = Math.max(0, Math.min(jitterPercent, 50));
+        this.longestSec = adaptive ? (int) Math.ceil(this.maxSec * (1 + this.jitterPercent / 100.0)) : this.baseSec;
+        this.millisClock = millisClock;
+        this.random = random;
+    }
+
+    public void markActive(String deviceId) {
+        if (adaptive) {
+            long activeUntil = millisClock.getAsLong() + activeWindowMillis;
+            devices.compute(deviceId, (id, current) -> current == null
+                ? new State(0, activeUntil, 0, 0)
+                : new State(0, activeUntil, current.lastSec(), current.issuedAtMillis()));
+        }
+    }
+
+    public int next(String deviceId, boolean active) {
+        if (!adaptive) {
+            return baseSec;
+        }
+        long now = millisClock.getAsLong();
+        State state = devices.compute(deviceId, (id, current) -> {
+            int idleStreak;
+            long activeUntil;
+            if (active) {
+                idleStreak = 0;
+                activeUntil = now + activeWindowMillis;
+            } else if (current == null) {
+                idleStreak = 0;
+                activeUntil = 0;
+            } else if (current.activeUntilMillis() > now) {
+                idleStreak = current.idleStreak();
+                activeUntil = current.activeUntilMillis();
+            } else {
+                // The first poll after the active window starts again from the base interval.
+                idleStreak = current.activeUntilMillis() == 0 ? Math.min(current.idleStreak() + 1, MAX_SHIFT) : 0;
+                activeUntil = 0;
+            }
+            int interval = activeUntil > now ? minSec : (int) Math.min(maxSec, (long) baseSec << idleStreak);
+            return new State(idleStreak, activeUntil, jitter(interval), now);
+        });
+        return state.lastSec();
+    }
+
+    // How long after lastSeenAt the device still counts as online. The interval this node gave it is used only if
+    // that answer is not older than lastSeenAt; a later poll may have been answered by another node with a longer
+    // one, so otherwise it is the longest interval any node can give.
+    public Duration onlineWindow(String deviceId, Instant lastSeenAt) {
+        State state = adaptive ? devices.get(deviceId) : null;
+        int sec = state != null && state.lastSec() > 0 && state.issuedAtMillis() >= lastSeenAt.toEpochMilli()
+            ? state.lastSec()
+            : longestSec;
+        return Duration.ofSeconds(sec + ONLINE_GRACE_SEC);
+    }
+
+    public Stats stats() {
+        long now = millisClock.getAsLong();
+        int active = 0;
+        for (State state : devices.values()) {
+            if (state.activeUntilMillis() > now) {
+                active++;
+            }
+        }
+        return new Stats(adaptive ? "adaptive" : "fixed", devices.size(), active);
+    }
+
+    private int jitter(int interval) {
+        if (jitterPercent == 0) {
+            return interval;
+        }
+        double factor = 1 + (random.getAsDouble() * 2 - 1) * jitterPercent / 100.0;
+        return Math.max(1, (int) Math.round(interval * factor));
+    }
+
+    private static boolean parseAdaptive(String value) {
+        if (value == null || value.isBlank()) {
+            return true;
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "adaptive" -> true;
+            case "fixed" -> false;
+            default -> throw new IllegalStateException("Unknown app.pollInterval.mode: " + value);
+        };
+    }
+}
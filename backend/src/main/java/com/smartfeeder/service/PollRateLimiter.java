@@ -1,31 +1,214 @@
 package com.smartfeeder.service;
 
 import com.smartfeeder.config.AppConfig;
-import java.time.Instant;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 import ru.tinkoff.kora.common.Component;
 
 @Component
 public final class PollRateLimiter {
-    private final int maxPerMinute;
-    private final ConcurrentHashMap<String, CounterWindow> state = new ConcurrentHashMap<>();
+    // One slot is a packed long: 24-bit key fingerprint | 40-bit algorithm state; 0 means empty.
+    // A key probes only the 8 slots (one cache line) of its bucket.
+    private static final int BUCKET_SLOTS = 8;
+    private static final int STATE_BITS = 40;
+
+    public enum LimitSource {
+        DEFAULT,
+        DEVICE,
+        FIRMWARE
+    }
+
+    public record Decision(boolean allowed, LimitSource source) {
+    }
+
+    public record Stats(String algorithm, int slots, int liveKeys, long overflows) {
+    }
+
+    private static final Map<LimitSource, Decision> ALLOWED = decisions(true);
+    private static final Map<LimitSource, Decision> REJECTED = decisions(false);
+
+    private final RateLimitAlgorithm algorithm;
+    private final int defaultLimit;
+    private final Map<String, Integer> deviceLimits = new HashMap<>();
+    private final Map<String, Integer> firmwareLimits = new HashMap<>();
+    private final LongSupplier millisClock;
+    private final AtomicLongArray slots;
+    private final int bucketMask;
+    private final LongAdder overflows = new LongAdder();
 
     public PollRateLimiter(AppConfig appConfig) {
-        this.maxPerMinute = appConfig.deviceAuth().maxPollPerMinute();
+        this(
+            RateLimitAlgorithm.parse(appConfig.deviceAuth().rateLimitAlgorithm()),
+            appConfig.deviceAuth().maxPollPerMinute(),
+            appConfig.deviceAuth().rateLimitOverrides(),
+            appConfig.rateLimit().slots(),
+            System::currentTimeMillis
+        );
+    }
+
+    public static PollRateLimiter of(RateLimitAlgorithm algorithm, int maxPerMinute, int minSlots) {
+        return new PollRateLimiter(algorithm, maxPerMinute, "", minSlots, System::currentTimeMillis);
+    }
+
+    PollRateLimiter(RateLimitAlgorithm algorithm,
+                    int maxPerMinute,
+                    String overrides,
+                    int minSlots,
+                    LongSupplier millisClock) {
+        this.algorithm = algorithm;
+        this.defaultLimit = clampLimit(maxPerMinute);
+        parseOverrides(overrides, deviceLimits, firmwareLimits);
+        this.millisClock = millisClock;
+        int buckets = Math.max(1, Integer.highestOneBit(Math.max(BUCKET_SLOTS, minSlots) - 1) << 1) / BUCKET_SLOTS;
+        this.slots = new AtomicLongArray(buckets * BUCKET_SLOTS);
+        this.bucketMask = buckets - 1;
     }
 
     public boolean allow(String key) {
-        long currentMinute = Instant.now().getEpochSecond() / 60;
-        CounterWindow updated = state.compute(key, (k, current) -> {
-            if (current == null || current.minute != currentMinute) {
-                return new CounterWindow(currentMinute, 1);
+        return allow(key, null).allowed();
+    }
+
+    // firmwareVersion must come from an authenticated source, not from the request being limited.
+    public Decision allow(String deviceId, String firmwareVersion) {
+        LimitSource source = LimitSource.DEFAULT;
+        int limit = defaultLimit;
+        Integer deviceLimit = deviceLimits.isEmpty() ? null : deviceLimits.get(deviceId);
+        Integer firmwareLimit = firmwareVersion == null || firmwareLimits.isEmpty() ? null : firmwareLimits.get(firmwareVersion);
+        if (deviceLimit != null) {
+            source = LimitSource.DEVICE;
+            limit = deviceLimit;
+        } else if (firmwareLimit != null) {
+            source = LimitSource.FIRMWARE;
+            limit = firmwareLimit;
+        }
+        return (acquire(deviceId, limit) ? ALLOWED : REJECTED).get(source);
+    }
+
+    private boolean acquire(String key, int limit) {
+        if (limit <= 0) {
+            return false;
+        }
+        long hash = hash(key);
+        long fingerprint = (hash >>> STATE_BITS) == 0 ? 1 : hash >>> STATE_BITS;
+        int base = ((int) hash & bucketMask) * BUCKET_SLOTS;
+        long now = millisClock.getAsLong();
+
+        while (true) {
+            int reusable = -1;
+            boolean raced = false;
+            for (int i = base; i < base + BUCKET_SLOTS; i++) {
+                long v = slots.get(i);
+                if (v == 0) {
+                    if (reusable < 0) {
+                        reusable = i;
+                    }
+                    continue;
+                }
+                long state = v & RateLimitAlgorithm.STATE_MASK;
+                if (v >>> STATE_BITS != fingerprint) {
+                    if (reusable < 0 && algorithm.isStale(state, now)) {
+                        reusable = i;
+                    }
+                    continue;
+                }
+                long next = algorithm.next(state, true, now, limit);
+                if (next < 0) {
+                    return false;
+                }
+                if (slots.compareAndSet(i, v, fingerprint << STATE_BITS | next)) {
+                    return true;
+                }
+                raced = true;
+                break;
             }
-            return new CounterWindow(current.minute, current.count + 1);
-        });
+            if (raced) {
+                continue;
+            }
+
+            if (reusable < 0) {
+                // Every slot of the bucket is in use by another key: fail open rather than
+                // block a device because of unrelated (possibly bogus) callers.
+                overflows.increment();
+                return true;
+            }
+            long v = slots.get(reusable);
+            boolean free = v == 0
+                || (v >>> STATE_BITS != fingerprint && algorithm.isStale(v & RateLimitAlgorithm.STATE_MASK, now));
+            if (free && slots.compareAndSet(reusable, v, fingerprint << STATE_BITS | algorithm.next(0, false, now, limit))) {
+                return true;
+            }
+        }
+    }
+
+    public Stats stats() {
+        long now = millisClock.getAsLong();
+        int live = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            long v = slots.get(i);
+            if (v != 0 && !algorithm.isStale(v & RateLimitAlgorithm.STATE_MASK, now)) {
+                live++;
+            }
+        }
+        return new Stats(algorithm.name(), slots.length(), live, overflows.sum());
+    }
+
+    // "device:feeder-001=30,firmware:1.2.0=10"
+    static void parseOverrides(String value, Map<String, Integer> deviceLimits, Map<String, Integer> firmwareLimits) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        for (String item : value.split(",")) {
+            String entry = item.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int colon = entry.indexOf(':');
+            int eq = entry.lastIndexOf('=');
+            if (colon <= 0 || eq <= colon + 1 || eq == entry.length() - 1) {
+                throw new IllegalStateException("Invalid app.deviceAuth.rateLimitOverrides entry: " + entry);
+            }
+            String scope = entry.substring(0, colon).trim();
+            String key = entry.substring(colon + 1, eq).trim();
+            int limit;
+            try {
+                limit = clampLimit(Integer.parseInt(entry.substring(eq + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("Invalid app.deviceAuth.rateLimitOverrides entry: " + entry, e);
+            }
+            switch (scope) {
+                case "device" -> deviceLimits.put(key, limit);
+                case "firmware" -> firmwareLimits.put(key, limit);
+                default -> throw new IllegalStateException("Invalid app.deviceAuth.rateLimitOverrides scope: " + scope);
+            }
+        }
+    }
+
+    private static int clampLimit(int limit) {
+        return Math.min(limit, RateLimitAlgorithm.MAX_LIMIT);
+    }
 
-        return updated.count <= maxPerMinute;
+    private static Map<LimitSource, Decision> decisions(boolean allowed) {
+        Map<LimitSource, Decision> map = new EnumMap<>(LimitSource.class);
+        for (LimitSource source : LimitSource.values()) {
+            map.put(source, new Decision(allowed, source));
+        }
+        return map;
     }
 
-    private record CounterWindow(long minute, int count) {
+    // 64-bit FNV-1a over the UTF-16 chars with a final avalanche; allocation-free.
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
     }
 }
@@ -0,0 +1,285 @@
+package com.smartfeeder.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.smartfeeder.domain.PollApi;
+import com.smartfeeder.util.Jsons;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Single streaming pass over the poll body as received. For JSON, log[].meta is kept as a slice of the original
+// bytes, and so is status when it holds only PollStatus fields; for CBOR meta is streamed straight into JSON text.
+// Neither goes through a Map.
+final class PollRequestParser {
+    private static final String EMPTY_OBJECT = "{}";
+
+    private record StatusRead(PollApi.PollStatus status, boolean onlyKnownFields) {
+    }
+
+    record ParsedPoll(PollApi.PollRequest request,
+                      byte[] body,
+                      PollEncoding encoding,
+                      String statusJson,
+                      List<String> logMetaJson) {
+    }
+
+    // deviceId/nonce/sign stand in for the X-Device-Id/X-Nonce/X-Sign headers of a single poll; a poll that
+    // cannot be parsed carries its error instead.
+    record BatchItem(String deviceId, String nonce, String signature, ParsedPoll parsed, ApiException error) {
+    }
+
+    private PollRequestParser() {
+    }
+
+    static ParsedPoll parse(byte[] body) {
+        return parse(body, PollEncoding.JSON);
+    }
+
+    static ParsedPoll parse(byte[] body, PollEncoding encoding) {
+        if (body == null || body.length == 0) {
+            throw ApiException.badRequest("request_body_required");
+        }
+        try (JsonParser p = encoding.factory().createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw ApiException.badRequest("invalid_json");
+            }
+            String deviceId = null;
+            long ts = 0;
+            PollApi.PollStatus status = null;
+            String statusJson = EMPTY_OBJECT;
+            List<PollApi.PollLogItem> log = null;
+            List<String> logMetaJson = new ArrayList<>();
+            List<String> ack = null;
+            Long configVersion = null;
+
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken token = p.nextToken();
+                switch (field) {
+                    case "deviceId" -> deviceId = nullableString(p);
+                    case "ts" -> ts = longValue(p);
+                    case "status" -> {
+                        if (token == JsonToken.START_OBJECT) {
+                            // Ends up in last_status_json and the admin UI, so only PollStatus fields are kept: any
+                            // other key means the record is re-serialized instead of sliced.
+                            int start = (int) p.currentTokenLocation().getByteOffset();
+                            StatusRead read = readStatus(p);
+                            status = read.status();
+                            statusJson = read.onlyKnownFields() && encoding == PollEncoding.JSON
+                                ? slice(body, start, (int) p.currentLocation().getByteOffset())
+                                : Jsons.stringify(status);
+                        } else if (token != JsonToken.VALUE_NULL) {
+                            throw ApiException.badRequest("invalid_json");
+                        }
+                    }
+                    case "log" -> {
+                        if (token == JsonToken.START_ARRAY) {
+                            log = new ArrayList<>();
+                            while (p.nextToken() != JsonToken.END_ARRAY) {
+                                log.add(readLogItem(p, body, encoding, logMetaJson));
+                            }
+                        } else if (token != JsonToken.VALUE_NULL) {
+                            throw ApiException.badRequest("invalid_json");
+                        }
+                    }
+                    case "ack" -> {
+                        if (token == JsonToken.START_ARRAY) {
+                            ack = new ArrayList<>();
+                            while (p.nextToken() != JsonToken.END_ARRAY) {
+                                ack.add(nullableString(p));
+                            }
+                        } else if (token != JsonToken.VALUE_NULL) {
+                            throw ApiException.badRequest("invalid_json");
+                        }
+                    }
+                    case "configVersion" -> configVersion = token == JsonToken.VALUE_NULL ? null : longValue(p);
+                    default -> p.skipChildren();
+                }
+            }
+            if (p.currentToken() != JsonToken.END_OBJECT || p.nextToken() != null) {
+                throw ApiException.badRequest("invalid_json");
+            }
+            var request = new PollApi.PollRequest(deviceId, ts, status, log, ack, configVersion);
+            return new ParsedPoll(request, body, encoding, statusJson, logMetaJson);
+        } catch (IOException e) {
+            throw ApiException.badRequest("invalid_json");
+        }
+    }
+
+    // {"polls": [{"deviceId", "nonce", "sign", "poll"}]}. Each poll keeps its own bytes, as a JSON object sliced
+    // from the body or a CBOR byte string, so its signature is checked exactly as for a single poll.
+    static List<BatchItem> parseBatch(byte[] body, PollEncoding encoding, int maxPolls) {
+        if (body == null || body.length == 0) {
+            throw ApiException.badRequest("request_body_required");
+        }
+        try (JsonParser p = encoding.factory().createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw ApiException.badRequest("invalid_json");
+            }
+            List<BatchItem> items = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken token = p.nextToken();
+                if (field.equals("polls") && token == JsonToken.START_ARRAY) {
+                    items = new ArrayList<>();
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        if (items.size() == maxPolls) {
+                            throw ApiException.badRequest("batch_too_large");
+                        }
+                        items.add(readBatchItem(p, body, encoding));
+                    }
+                } else if (field.equals("polls")) {
+                    throw ApiException.badRequest("invalid_json");
+                } else {
+                    p.skipChildren();
+                }
+            }
+            if (p.currentToken() != JsonToken.END_OBJECT || p.nextToken() != null) {
+                throw ApiException.badRequest("invalid_json");
+            }
+            if (items == null || items.isEmpty()) {
+                throw ApiException.badRequest("polls_required");
+            }
+            return items;
+        } catch (IOException e) {
+            throw ApiException.badRequest("invalid_json");
+        }
+    }
+
+    private static BatchItem readBatchItem(JsonParser p, byte[] body, PollEncoding encoding) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            throw ApiException.badRequest("invalid_json");
+        }
+        String deviceId = null;
+        String nonce = null;
+        String signature = null;
+        byte[] poll = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken token = p.nextToken();
+            switch (field) {
+                case "deviceId" -> deviceId = nullableString(p);
+                case "nonce" -> nonce = nullableString(p);
+                case "sign" -> signature = nullableString(p);
+                case "poll" -> {
+                    if (token == JsonToken.START_OBJECT && encoding == PollEncoding.JSON) {
+                        int start = (int) p.currentTokenLocation().getByteOffset();
+                        p.skipChildren();
+                        poll = Arrays.copyOfRange(body, start, (int) p.currentLocation().getByteOffset());
+                    } else if (token == JsonToken.VALUE_EMBEDDED_OBJECT && encoding == PollEncoding.CBOR) {
+                        poll = p.getBinaryValue();
+                    } else if (token != JsonToken.VALUE_NULL) {
+                        throw ApiException.badRequest("invalid_json");
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        try {
+            return new BatchItem(deviceId, nonce, signature, parse(poll, encoding), null);
+        } catch (ApiException e) {
+            return new BatchItem(deviceId, nonce, signature, null, e);
+        }
+    }
+
+    private static StatusRead readStatus(JsonParser p) throws IOException {
+        String fw = null;
+        long uptimeSec = 0;
+        int rssi = 0;
+        String error = null;
+        Long lastFeedTs = null;
+        boolean onlyKnownFields = true;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken token = p.nextToken();
+            switch (field) {
+                case "fw" -> fw = nullableString(p);
+                case "uptimeSec" -> uptimeSec = longValue(p);
+                case "rssi" -> rssi = intValue(p);
+                case "error" -> error = nullableString(p);
+                case "lastFeedTs" -> lastFeedTs = token == JsonToken.VALUE_NULL ? null : longValue(p);
+                default -> {
+                    onlyKnownFields = false;
+                    p.skipChildren();
+                }
+            }
+        }
+        return new StatusRead(new PollApi.PollStatus(fw, uptimeSec, rssi, error, lastFeedTs), onlyKnownFields);
+    }
+
+    // meta stays null in the item; its JSON goes to logMetaJson at the same index.
+    private static PollApi.PollLogItem readLogItem(JsonParser p,
+                                                   byte[] body,
+                                                   PollEncoding encoding,
+                                                   List<String> logMetaJson) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            throw ApiException.badRequest("invalid_json");
+        }
+        long ts = 0;
+        String type = null;
+        String msg = null;
+        String metaJson = EMPTY_OBJECT;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken token = p.nextToken();
+            switch (field) {
+                case "ts" -> ts = longValue(p);
+                case "type" -> type = nullableString(p);
+                case "msg" -> msg = nullableString(p);
+                case "meta" -> {
+                    if (token == JsonToken.START_OBJECT && encoding == PollEncoding.CBOR) {
+                        metaJson = toJson(p);
+                    } else if (token == JsonToken.START_OBJECT) {
+                        int start = (int) p.currentTokenLocation().getByteOffset();
+                        p.skipChildren();
+                        metaJson = slice(body, start, (int) p.currentLocation().getByteOffset());
+                    } else if (token != JsonToken.VALUE_NULL) {
+                        throw ApiException.badRequest("invalid_json");
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        logMetaJson.add(metaJson);
+        return new PollApi.PollLogItem(ts, type, msg, null);
+    }
+
+    private static String nullableString(JsonParser p) throws IOException {
+        return switch (p.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_STRING -> p.getText();
+            default -> throw ApiException.badRequest("invalid_json");
+        };
+    }
+
+    private static long longValue(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.VALUE_NUMBER_INT) {
+            throw ApiException.badRequest("invalid_json");
+        }
+        return p.getLongValue();
+    }
+
+    private static int intValue(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.VALUE_NUMBER_INT) {
+            throw ApiException.badRequest("invalid_json");
+        }
+        return p.getIntValue();
+    }
+
+    private static String toJson(JsonParser p) throws IOException {
+        StringWriter out = new StringWriter(64);
+        try (JsonGenerator g = Jsons.mapper().getFactory().createGenerator(out)) {
+            g.copyCurrentStructure(p);
+        }
+        return out.toString();
+    }
+
+    private static String slice(byte[] body, int start, int end) {
+        return new String(body, start, end - start, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,98 @@
+package com.smartfeeder.service;
+
+// Each algorithm keeps its whole per-key state in 40 bits so it fits a PollRateLimiter slot next to the key fingerprint.
+// next() returns the state after admitting one more request, or -1 to reject.
+public enum RateLimitAlgorithm {
+    // minute (28 bits) | count (12 bits)
+    FIXED_WINDOW {
+        @Override
+        long next(long state, boolean present, long nowMs, int limit) {
+            long minute = (nowMs / 60_000) & 0xFFFFFFFL;
+            long count = present && state >>> 12 == minute ? state & COUNT_MASK : 0;
+            return count >= limit ? -1 : minute << 12 | (count + 1);
+        }
+
+        @Override
+        boolean isStale(long state, long nowMs) {
+            return state >>> 12 != ((nowMs / 60_000) & 0xFFFFFFFL);
+        }
+    },
+
+    // GCRA form of a token bucket holding `limit` tokens refilled evenly over a minute:
+    // the state is the theoretical arrival time in milliseconds, modulo 2^40.
+    TOKEN_BUCKET {
+        @Override
+        long next(long state, boolean present, long nowMs, int limit) {
+            long interval = Math.max(1, 60_000L / limit);
+            long burst = (limit - 1) * interval;
+            long now = nowMs & STATE_MASK;
+            long tat = present && signed40(state - now) > 0 ? state : now;
+            if (signed40(tat - now) > burst) {
+                return -1;
+            }
+            return (tat + interval) & STATE_MASK;
+        }
+
+        @Override
+        boolean isStale(long state, long nowMs) {
+            return signed40(state - (nowMs & STATE_MASK)) <= 0;
+        }
+    },
+
+    // Previous/current minute counters; the previous one is weighted by the part of it still inside
+    // the trailing 60 seconds. window (16 bits) | previous (12 bits) | current (12 bits)
+    SLIDING_WINDOW {
+        @Override
+        long next(long state, boolean present, long nowMs, int limit) {
+            long window = (nowMs / 60_000) & 0xFFFFL;
+            long previous = 0;
+            long current = 0;
+            if (present) {
+                long stateWindow = state >>> 24;
+                if (stateWindow == window) {
+                    previous = (state >>> 12) & COUNT_MASK;
+                    current = state & COUNT_MASK;
+                } else if (stateWindow == ((window - 1) & 0xFFFFL)) {
+                    previous = state & COUNT_MASK;
+                }
+            }
+            double elapsed = (nowMs % 60_000) / 60_000.0;
+            if (previous * (1 - elapsed) + current >= limit || current >= COUNT_MASK) {
+                return -1;
+            }
+            return window << 24 | previous << 12 | (current + 1);
+        }
+
+        @Override
+        boolean isStale(long state, long nowMs) {
+            long window = (nowMs / 60_000) & 0xFFFFL;
+            long stateWindow = state >>> 24;
+            return stateWindow != window && stateWindow != ((window - 1) & 0xFFFFL);
+        }
+    };
+
+    static final long STATE_MASK = (1L << 40) - 1;
+    static final long COUNT_MASK = (1L << 12) - 1;
+    static final int MAX_LIMIT = (int) COUNT_MASK;
+
+    abstract long next(long state, boolean present, long nowMs, int limit);
+
+    // A stale state admits nothing the empty state would not, so the slot may be handed to another key.
+    abstract boolean isStale(long state, long nowMs);
+
+    static RateLimitAlgorithm parse(String value) {
+        if (value == null || value.isBlank()) {
+            return TOKEN_BUCKET;
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "fixed-window" -> FIXED_WINDOW;
+            case "token-bucket" -> TOKEN_BUCKET;
+            case "sliding-window" -> SLIDING_WINDOW;
+            default -> throw new IllegalStateException("Unknown app.deviceAuth.rateLimitAlgorithm: " + value);
+        };
+    }
+
+    private static long signed40(long value) {
+        return value << 24 >> 24;
+    }
+}
@@ -0,0 +1,75 @@
+package com.smartfeeder.service;
+
+import com.smartfeeder.dao.DbClient;
+import com.smartfeeder.dao.StorageService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import ru.tinkoff.kora.common.Component;
+
+@Component
+public final class RuntimeStatsService {
+    private final DeviceCache deviceCache;
+    private final DeviceNonceStore nonceStore;
+    private final DbClient dbClient;
+    private final StorageService storage;
+    private final FeedLogWriter feedLogWriter;
+    private final DeviceStatusTable deviceStatusTable;
+    private final PollRateLimiter pollRateLimiter;
+    private final DevicePollService devicePollService;
+    private final LongPollService longPollService;
+    private final PollIntervalPolicy pollIntervalPolicy;
+    private final PollAdmissionLimiter pollAdmissionLimiter;
+    private final FeedLogPartitionManager feedLogPartitionManager;
+    private final FeedStatsRollup feedStatsRollup;
+    private final TelemetryStore telemetryStore;
+
+    public RuntimeStatsService(DeviceCache deviceCache,
+                               DeviceNonceStore nonceStore,
+                               DbClient dbClient,
+                               StorageService storage,
+                               FeedLogWriter feedLogWriter,
+                               DeviceStatusTable deviceStatusTable,
+                               PollRateLimiter pollRateLimiter,
+                               DevicePollService devicePollService,
+                               LongPollService longPollService,
+                               PollIntervalPolicy pollIntervalPolicy,
+                               PollAdmissionLimiter pollAdmissionLimiter,
+                               FeedLogPartitionManager feedLogPartitionManager,
+                               FeedStatsRollup feedStatsRollup,
+                               TelemetryStore telemetryStore) {
+        this.deviceCache = deviceCache;
+        this.nonceStore = nonceStore;
+        this.dbClient = dbClient;
+        this.storage = storage;
+        this.feedLogWriter = feedLogWriter;
+        this.deviceStatusTable = deviceStatusTable;
+        this.pollRateLimiter = pollRateLimiter;
+        this.devicePollService = devicePollService;
+        this.longPollService = longPollService;
+        this.pollIntervalPolicy = pollIntervalPolicy;
+        this.pollAdmissionLimiter = pollAdmissionLimiter;
+        this.feedLogPartitionManager = feedLogPartitionManager;
+        this.feedStatsRollup = feedStatsRollup;
+        this.telemetryStore = telemetryStore;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("deviceCache", deviceCache.stats());
+        stats.put("nonceIndexSize", nonceStore.size());
+        stats.put("dbConnectionAcquisitions", dbClient.acquisitions());
+        stats.put("dbAcquireGuard", dbClient.stats());
+        stats.put("pendingCommands", storage.pendingCommands().stats());
+        stats.put("feedLogs", feedLogWriter.stats());
+        stats.put("feedLogPartitions", feedLogPartitionManager.stats());
+        stats.put("feedStats", feedStatsRollup.stats());
+        stats.put("telemetry", telemetryStore.stats());
+        stats.put("deviceStatus", deviceStatusTable.stats());
+        stats.put("pollRateLimiter", pollRateLimiter.stats());
+        stats.put("pollRejections", devicePollService.rejectionCounts());
+        stats.put("longPoll", longPollService.stats());
+        stats.put("pollInterval", pollIntervalPolicy.stats());
+        stats.put("pollAdmission", pollAdmissionLimiter.stats());
+        return stats;
+    }
+}
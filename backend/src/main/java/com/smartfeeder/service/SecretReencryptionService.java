@@ -0,0 +1,107 @@
+package com.smartfeeder.service;
+
+import com.smartfeeder.config.AppConfig;
+import com.smartfeeder.dao.StorageService;
+import com.smartfeeder.security.SecretCryptoService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.kora.application.graph.Lifecycle;
+import ru.tinkoff.kora.common.Component;
+import ru.tinkoff.kora.common.annotation.Root;
+
+@Component
+@Root
+public final class SecretReencryptionService implements Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(SecretReencryptionService.class);
+
+    public record PassResult(int scanned, int reencrypted, int failed) {
+    }
+
+    private final StorageService storage;
+    private final SecretCryptoService secretCryptoService;
+    private final int intervalSec;
+    private final int batchSize;
+    private ScheduledExecutorService scheduler;
+
+    public SecretReencryptionService(StorageService storage,
+                                     SecretCryptoService secretCryptoService,
+                                     AppConfig appConfig,
+                                     MigrationRunner migrationRunner) {
+        this.storage = storage;
+        this.secretCryptoService = secretCryptoService;
+        this.intervalSec = appConfig.security().reencryptIntervalSec();
+        this.batchSize = Math.max(1, appConfig.security().reencryptBatchSize());
+    }
+
+    @Override
+    public void init() {
+        if (intervalSec <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "secret-reencryption");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.schedule(this::runSafely, Math.min(intervalSec, 30), TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void release() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // One keyset pass over all devices, rewriting secrets not yet in the current key's envelope.
+    public PassResult reencryptAll() {
+        int scanned = 0;
+        int reencrypted = 0;
+        int failed = 0;
+        String afterId = "";
+        while (true) {
+            var batch = storage.listDeviceSecrets(afterId, batchSize);
+            for (var row : batch) {
+                scanned++;
+                if (row.encryptedSecret() == null || !secretCryptoService.needsReencryption(row.encryptedSecret())) {
+                    continue;
+                }
+                try {
+                    byte[] replacement = secretCryptoService.encrypt(secretCryptoService.decrypt(row.encryptedSecret()));
+                    if (storage.replaceEncryptedSecret(row.id(), row.encryptedSecret(), replacement)) {
+                        reencrypted++;
+                    }
+                } catch (IllegalStateException e) {
+                    failed++;
+                    logger.warn("Cannot re-encrypt secret of device {}", row.id(), e);
+                }
+            }
+            if (batch.size() < batchSize) {
+                return new PassResult(scanned, reencrypted, failed);
+            }
+            afterId = batch.get(batch.size() - 1).id();
+        }
+    }
+
+    private void runSafely() {
+        try {
+            PassResult result = reencryptAll();
+            if (result.reencrypted() > 0 || result.failed() > 0) {
+                logger.info("Device secret re-encryption to key version {}: {}",
+                    secretCryptoService.currentKeyVersion(), result);
+            }
+            // Rows only fall behind the current key on a restart with a new key, so a clean pass ends the job.
+            if (result.failed() == 0) {
+                return;
+            }
+        } catch (Exception e) {
+            logger.warn("Device secret re-encryption failed", e);
+        }
+        scheduler.schedule(this::runSafely, intervalSec, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,155 @@
+package com.smartfeeder.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Column-wise binary layout of one telemetry chunk: ts (epoch seconds) and uptimeSec as delta-of-delta, rssi as
+// delta, all zigzag varints, and the error code as runs over a per-chunk dictionary. A device polling on a steady
+// interval costs about 3 bytes per sample.
+public final class TelemetryChunkCodec {
+    private static final int VERSION = 1;
+
+    public record Samples(int count, long[] tsSec, int[] rssi, long[] uptimeSec, String[] error) {
+    }
+
+    private TelemetryChunkCodec() {
+    }
+
+    public static byte[] encode(Samples samples) {
+        int count = samples.count();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + count * 4);
+        out.write(VERSION);
+        writeVarLong(out, count);
+
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String code = samples.error()[i];
+            if (code != null && dictionary.putIfAbsent(code, codes.size()) == null) {
+                codes.add(code);
+            }
+        }
+        writeVarLong(out, codes.size());
+        for (String code : codes) {
+            byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        writeDeltaOfDelta(out, samples.tsSec(), count);
+        int previousRssi = 0;
+        for (int i = 0; i < count; i++) {
+            writeVarLong(out, zigzag(samples.rssi()[i] - previousRssi));
+            previousRssi = samples.rssi()[i];
+        }
+        writeDeltaOfDelta(out, samples.uptimeSec(), count);
+
+        // Runs of (dictionary index + 1, 0 for no error, run length).
+        int i = 0;
+        while (i < count) {
+            String code = samples.error()[i];
+            int run = 1;
+            while (i + run < count && equal(code, samples.error()[i + run])) {
+                run++;
+            }
+            writeVarLong(out, code == null ? 0 : dictionary.get(code) + 1);
+            writeVarLong(out, run);
+            i += run;
+        }
+        return out.toByteArray();
+    }
+
+    public static Samples decode(byte[] data) {
+        int[] pos = {0};
+        if (data.length == 0 || data[pos[0]++] != VERSION) {
+            throw new IllegalArgumentException("Unsupported telemetry chunk version");
+        }
+        int count = (int) readVarLong(data, pos);
+        String[] codes = new String[(int) readVarLong(data, pos)];
+        for (int c = 0; c < codes.length; c++) {
+            int length = (int) readVarLong(data, pos);
+            codes[c] = new String(data, pos[0], length, StandardCharsets.UTF_8);
+            pos[0] += length;
+        }
+
+        long[] tsSec = readDeltaOfDelta(data, pos, count);
+        int[] rssi = new int[count];
+        int previousRssi = 0;
+        for (int i = 0; i < count; i++) {
+            previousRssi += (int) unzigzag(readVarLong(data, pos));
+            rssi[i] = previousRssi;
+        }
+        long[] uptimeSec = readDeltaOfDelta(data, pos, count);
+
+        String[] error = new String[count];
+        int i = 0;
+        while (i < count) {
+            int index = (int) readVarLong(data, pos);
+            int run = (int) readVarLong(data, pos);
+            for (int r = 0; r < run; r++) {
+                error[i++] = index == 0 ? null : codes[index - 1];
+            }
+        }
+        return new Samples(count, tsSec, rssi, uptimeSec, error);
+    }
+
+    private static void writeDeltaOfDelta(ByteArrayOutputStream out, long[] values, int count) {
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < count; i++) {
+            long delta = values[i] - previous;
+            writeVarLong(out, zigzag(delta - previousDelta));
+            previous = values[i];
+            previousDelta = delta;
+        }
+    }
+
+    private static long[] readDeltaOfDelta(byte[] data, int[] pos, int count) {
+        long[] values = new long[count];
+        long previous = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < count; i++) {
+            previousDelta += unzigzag(readVarLong(data, pos));
+            previous += previousDelta;
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] data, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[pos[0]++];
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,332 @@
+package com.smartfeeder.service;
+
+import com.smartfeeder.config.AppConfig;
+import com.smartfeeder.dao.StorageService;
+import com.smartfeeder.domain.AdminApi;
+import com.smartfeeder.domain.PollApi;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.kora.application.graph.Lifecycle;
+import ru.tinkoff.kora.common.Component;
+
+// PollStatus history (rssi, uptimeSec, error) per device. A poll appends to the device's open chunk of primitive
+// columns in memory; the chunk is sealed at chunkMaxSamples or chunkMaxAgeSec and every flushIntervalSec the sealed
+// chunks are encoded with TelemetryChunkCodec and inserted in one batch, so a poll costs an array append instead of
+// a JSONB row update. Open and unwritten chunks live only on the node that took the polls: a crash loses at most
+// chunkMaxAgeSec of history, and reads merge them with what is stored.
+@Component
+public final class TelemetryStore implements Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryStore.class);
+
+    private static final int FLUSH_CHUNK = 500;
+    // While the database is down sealed chunks queue up; past this many each flush drops the oldest.
+    private static final int MAX_PENDING_CHUNKS = 50_000;
+    private static final long RETENTION_CHECK_MILLIS = Duration.ofHours(1).toMillis();
+
+    public record Stats(boolean enabled,
+                        int openChunks,
+                        int pendingChunks,
+                        long samples,
+                        long writtenChunks,
+                        long writtenBytes,
+                        long droppedChunks,
+                        long failedFlushes) {
+    }
+
+    private record Sealed(String deviceId, TelemetryChunkCodec.Samples samples) {
+    }
+
+    // storage::listTelemetryChunks outside of tests.
+    interface ChunkReader {
+        List<StorageService.TelemetryChunkRow> read(String deviceId, Instant from, Instant to);
+    }
+
+    // Only mutated inside ConcurrentHashMap.compute.
+    private static final class OpenChunk {
+        final long openedAtMillis;
+        int count;
+        long[] tsSec = new long[16];
+        int[] rssi = new int[16];
+        long[] uptimeSec = new long[16];
+        String[] error = new String[16];
+
+        OpenChunk(long openedAtMillis) {
+            this.openedAtMillis = openedAtMillis;
+        }
+
+        void add(long ts, int rssiValue, long uptime, String errorCode) {
+            if (count == tsSec.length) {
+                int size = count * 2;
+                tsSec = Arrays.copyOf(tsSec, size);
+                rssi = Arrays.copyOf(rssi, size);
+                uptimeSec = Arrays.copyOf(uptimeSec, size);
+                error = Arrays.copyOf(error, size);
+            }
+            tsSec[count] = ts;
+            rssi[count] = rssiValue;
+            uptimeSec[count] = uptime;
+            error[count] = errorCode;
+            count++;
+        }
+
+        TelemetryChunkCodec.Samples samples() {
+            return new TelemetryChunkCodec.Samples(
+                count,
+                Arrays.copyOf(tsSec, count),
+                Arrays.copyOf(rssi, count),
+                Arrays.copyOf(uptimeSec, count),
+                Arrays.copyOf(error, count)
+            );
+        }
+    }
+
+    private final Consumer<List<StorageService.TelemetryChunkRow>> writer;
+    private final ChunkReader reader;
+    private final Consumer<Instant> retention;
+    private final boolean enabled;
+    private final int chunkMaxSamples;
+    private final long chunkMaxAgeMillis;
+    private final int flushIntervalSec;
+    private final int retentionDays;
+    private final LongSupplier millisClock;
+    private final ConcurrentHashMap<String, OpenChunk> open = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Sealed> sealed = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger sealedCount = new AtomicInteger();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder writtenChunks = new LongAdder();
+    private final LongAdder writtenBytes = new LongAdder();
+    private final LongAdder droppedChunks = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private long lastRetentionMillis;
+    private ScheduledExecutorService scheduler;
+
+    public TelemetryStore(StorageService storage, AppConfig appConfig) {
+        this(
+            storage::insertTelemetryChunks,
+            storage::listTelemetryChunks,
+            storage::deleteTelemetryChunksBefore,
+            appConfig.telemetry().enabled(),
+            appConfig.telemetry().chunkMaxSamples(),
+            appConfig.telemetry().chunkMaxAgeSec(),
+            appConfig.telemetry().flushIntervalSec(),
+            appConfig.telemetry().retentionDays(),
+            System::currentTimeMillis
+        );
+    }
+
+    TelemetryStore(Consumer<List<StorageService.TelemetryChunkRow>> writer,
+                   ChunkReader reader,
+                   Consumer<Instant> retention,
+                   boolean enabled,
+                   int chunkMaxSamples,
+                   int chunkMaxAgeSec,
+                   int flushIntervalSec,
+                   int retentionDays,
+                   LongSupplier millisClock) {
+        this.writer = writer;
+        this.reader = reader;
+        this.retention = retention;
+        this.enabled = enabled;
+        this.chunkMaxSamples = Math.max(1, chunkMaxSamples);
+        this.chunkMaxAgeMillis = Math.max(1, chunkMaxAgeSec) * 1000L;
+        this.flushIntervalSec = Math.max(1, flushIntervalSec);
+        this.retentionDays = retentionDays;
+        this.millisClock = millisClock;
+    }
+
+    public void record(String deviceId, Instant seenAt, PollApi.PollStatus status) {
+        if (!enabled || status == null) {
+            return;
+        }
+        String error = status.error() == null || status.error().isBlank() ? null : status.error().trim();
+        open.compute(deviceId, (id, chunk) -> {
+            OpenChunk c = chunk == null ? new OpenChunk(millisClock.getAsLong()) : chunk;
+            c.add(seenAt.getEpochSecond(), status.rssi(), status.uptimeSec(), error);
+            if (c.count >= chunkMaxSamples) {
+                seal(id, c);
+                return null;
+            }
+            return c;
+        });
+        samples.increment();
+    }
+
+    // Samples with from <= ts < to in ts order; past limit only the newest are kept.
+    public List<AdminApi.TelemetrySample> read(String deviceId, Instant from, Instant to, int limit) {
+        List<AdminApi.TelemetrySample> result = new ArrayList<>();
+        long fromSec = from.getEpochSecond();
+        long toSec = to.getEpochSecond();
+        for (var row : reader.read(deviceId, from, to)) {
+            collect(TelemetryChunkCodec.decode(row.data()), fromSec, toSec, result);
+        }
+        for (Sealed chunk : sealed) {
+            if (chunk.deviceId().equals(deviceId)) {
+                collect(chunk.samples(), fromSec, toSec, result);
+            }
+        }
+        TelemetryChunkCodec.Samples[] current = new TelemetryChunkCodec.Samples[1];
+        open.computeIfPresent(deviceId, (id, chunk) -> {
+            current[0] = chunk.samples();
+            return chunk;
+        });
+        if (current[0] != null) {
+            collect(current[0], fromSec, toSec, result);
+        }
+        // A chunk written while this read ran can show up both stored and still queued.
+        List<AdminApi.TelemetrySample> sorted = result.stream()
+            .sorted(Comparator.comparing(AdminApi.TelemetrySample::ts))
+            .distinct()
+            .toList();
+        return sorted.size() > limit ? sorted.subList(sorted.size() - limit, sorted.size()) : sorted;
+    }
+
+    public Stats stats() {
+        return new Stats(
+            enabled,
+            open.size(),
+            sealedCount.get(),
+            samples.sum(),
+            writtenChunks.sum(),
+            writtenBytes.sum(),
+            droppedChunks.sum(),
+            failedFlushes.sum()
+        );
+    }
+
+    @Override
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "telemetry-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSafely, flushIntervalSec, flushIntervalSec, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void release() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        sealOlderThan(Long.MAX_VALUE);
+        flushSafely();
+    }
+
+    // Single writer: only the flusher thread (or release after it stopped) removes from the sealed queue.
+    void flush() {
+        long now = millisClock.getAsLong();
+        sealOlderThan(now - chunkMaxAgeMillis);
+        while (sealedCount.get() > MAX_PENDING_CHUNKS && sealed.poll() != null) {
+            sealedCount.decrementAndGet();
+            droppedChunks.increment();
+        }
+        List<StorageService.TelemetryChunkRow> batch = new ArrayList<>(FLUSH_CHUNK);
+        Iterator<Sealed> it = sealed.iterator();
+        while (it.hasNext()) {
+            batch.add(encode(it.next()));
+            if (batch.size() == FLUSH_CHUNK || !it.hasNext()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        if (retentionDays > 0 && now - lastRetentionMillis >= RETENTION_CHECK_MILLIS) {
+            lastRetentionMillis = now;
+            retention.accept(Instant.ofEpochMilli(now).minus(Duration.ofDays(retentionDays)));
+        }
+    }
+
+    private void write(List<StorageService.TelemetryChunkRow> batch) {
+        try {
+            writer.accept(batch);
+        } catch (RuntimeException e) {
+            failedFlushes.increment();
+            throw e;
+        }
+        for (var row : batch) {
+            sealed.poll();
+            sealedCount.decrementAndGet();
+            writtenChunks.increment();
+            writtenBytes.add(row.data().length);
+        }
+    }
+
+    private void sealOlderThan(long openedBeforeMillis) {
+        for (String deviceId : open.keySet()) {
+            open.computeIfPresent(deviceId, (id, chunk) -> {
+                if (chunk.openedAtMillis > openedBeforeMillis) {
+                    return chunk;
+                }
+                seal(id, chunk);
+                return null;
+            });
+        }
+    }
+
+    private void seal(String deviceId, OpenChunk chunk) {
+        sealed.add(new Sealed(deviceId, chunk.samples()));
+        sealedCount.incrementAndGet();
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.warn("Telemetry flush failed, {} chunks kept for retry", sealedCount.get(), e);
+        }
+    }
+
+    private static StorageService.TelemetryChunkRow encode(Sealed chunk) {
+        long[] ts = chunk.samples().tsSec();
+        long min = ts[0];
+        long max = ts[0];
+        for (long value : ts) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        return new StorageService.TelemetryChunkRow(
+            chunk.deviceId(),
+            Instant.ofEpochSecond(min),
+            Instant.ofEpochSecond(max),
+            chunk.samples().count(),
+            TelemetryChunkCodec.encode(chunk.samples())
+        );
+    }
+
+    private static void collect(TelemetryChunkCodec.Samples chunk,
+                                long fromSec,
+                                long toSec,
+                                List<AdminApi.TelemetrySample> into) {
+        for (int i = 0; i < chunk.count(); i++) {
+            long ts = chunk.tsSec()[i];
+            if (ts >= fromSec && ts < toSec) {
+                into.add(new AdminApi.TelemetrySample(
+                    Instant.ofEpochSecond(ts),
+                    chunk.rssi()[i],
+                    chunk.uptimeSec()[i],
+                    chunk.error()[i]
+                ));
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.smartfeeder.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+// CBOR counterpart of Jsons: same records, same field names and order, binary encoding.
+public final class Cbors {
+    private static final ObjectMapper MAPPER = new ObjectMapper(new CBORFactory())
+        .registerModule(new JavaTimeModule())
+        .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+        .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+
+    private Cbors() {
+    }
+
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    public static byte[] bytes(Object value) {
+        try {
+            return MAPPER.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize cbor", e);
+        }
+    }
+}
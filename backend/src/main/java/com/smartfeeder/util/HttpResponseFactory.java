@@ -22,6 +22,14 @@ public final class HttpResponseFactory {
         );
     }
 
+    public HttpServerResponse cbor(int statusCode, Object value) {
+        return new SimpleHttpServerResponse(
+            statusCode,
+            HttpHeaders.of("Content-Type", "application/cbor"),
+            HttpBody.of("application/cbor", Cbors.bytes(value))
+        );
+    }
+
     public HttpServerResponse jsonWithCookie(int statusCode, Object value, String cookieHeader) {
         return new SimpleHttpServerResponse(
             statusCode,
@@ -33,6 +41,17 @@ public final class HttpResponseFactory {
         );
     }
 
+    public HttpServerResponse jsonWithHeader(int statusCode, Object value, String name, String headerValue) {
+        return new SimpleHttpServerResponse(
+            statusCode,
+            HttpHeaders.of(
+                "Content-Type", "application/json; charset=utf-8",
+                name, headerValue
+            ),
+            HttpBody.plaintext(Jsons.stringify(value))
+        );
+    }
+
     public HttpServerResponse noContentWithCookie(String cookieHeader) {
         return new SimpleHttpServerResponse(
             204,
@@ -42,11 +61,42 @@ public final class HttpResponseFactory {
     }
 
     public HttpServerResponse fromException(ApiException e) {
-        return json(e.status(), Map.of("error", e.publicMessage()));
+        if (e.retryAfterSec() <= 0) {
+            return json(e.status(), Map.of("error", e.publicMessage()));
+        }
+        return new SimpleHttpServerResponse(
+            e.status(),
+            HttpHeaders.of(
+                "Content-Type", "application/json; charset=utf-8",
+                "Retry-After", Integer.toString(e.retryAfterSec())
+            ),
+            HttpBody.plaintext(Jsons.stringify(errorBody(e)))
+        );
+    }
+
+    public HttpServerResponse cborFromException(ApiException e) {
+        if (e.retryAfterSec() <= 0) {
+            return cbor(e.status(), errorBody(e));
+        }
+        return new SimpleHttpServerResponse(
+            e.status(),
+            HttpHeaders.of(
+                "Content-Type", "application/cbor",
+                "Retry-After", Integer.toString(e.retryAfterSec())
+            ),
+            HttpBody.of("application/cbor", Cbors.bytes(errorBody(e)))
+        );
     }
 
     public HttpServerResponse internalError(Exception e) {
         logger.error("Unhandled server error", e);
         return json(500, Map.of("error", "internal_error"));
     }
+
+    // Devices read intervalSec from any poll answer, so a shed poll carries the retry delay there as well.
+    private static Map<String, Object> errorBody(ApiException e) {
+        return e.retryAfterSec() > 0
+            ? Map.of("error", e.publicMessage(), "intervalSec", e.retryAfterSec())
+            : Map.of("error", e.publicMessage());
+    }
 }
@@ -0,0 +1,18 @@
+-- Cost on a large feed_logs: each CREATE INDEX reads the whole table and holds a SHARE lock for the build, so log
+-- reads go on but every insert from polls waits until it finishes. The B-tree is a sequential scan plus a sort; the
+-- trigram GIN build is several times slower and can run for hours on hundreds of GB (a larger maintenance_work_mem
+-- shortens both). Either apply it in a maintenance window, or build both indexes beforehand without blocking
+-- writes, under the same names, and this migration skips them:
+--   CREATE INDEX CONCURRENTLY idx_feed_logs_keyset ON feed_logs(device_id, ts DESC, id DESC);
+--   CREATE INDEX CONCURRENTLY idx_feed_logs_message_trgm ON feed_logs USING gin (device_id, message gin_trgm_ops);
+-- (after CREATE EXTENSION pg_trgm and btree_gin; a concurrent build that failed leaves an INVALID index, which has
+-- to be dropped before retrying). V5 then renames them onto feed_logs_legacy.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+-- Keyset pages walk (ts, id) backwards; id breaks ties between log rows with the same ts.
+CREATE INDEX IF NOT EXISTS idx_feed_logs_keyset ON feed_logs(device_id, ts DESC, id DESC);
+DROP INDEX IF EXISTS idx_feed_logs_lookup;
+
+-- Backs message ILIKE '%q%' within one device for queries of 3+ characters.
+CREATE INDEX IF NOT EXISTS idx_feed_logs_message_trgm ON feed_logs USING gin (device_id, message gin_trgm_ops);
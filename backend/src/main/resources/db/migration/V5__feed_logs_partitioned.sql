@@ -0,0 +1,62 @@
+-- feed_logs becomes range-partitioned by ts. The existing table is kept as one partition for everything before
+-- tomorrow (UTC); FeedLogPartitionManager creates the periods after that and drops expired ones.
+--
+-- Cost on a large feed_logs: rows dated tomorrow or later are found per device through the (device_id, ts) index
+-- and moved without reading the rest. The one full read is VALIDATE of the ts bound, a single sequential scan
+-- (about table size / disk read throughput: roughly 10 minutes for 300 GB at 500 MB/s); ATTACH then relies on the
+-- constraint and does not scan again. Everything runs in one transaction holding ACCESS EXCLUSIVE on the table from
+-- the first RENAME, so log reads and writes wait until it commits: apply it in a maintenance window.
+ALTER TABLE feed_logs RENAME TO feed_logs_legacy;
+ALTER INDEX idx_feed_logs_keyset RENAME TO idx_feed_logs_legacy_keyset;
+ALTER INDEX idx_feed_logs_message_trgm RENAME TO idx_feed_logs_legacy_message_trgm;
+-- Nothing looks log rows up by id alone; (ts, id) is unique enough for paging and one B-tree less per insert.
+ALTER TABLE feed_logs_legacy DROP CONSTRAINT feed_logs_pkey;
+
+CREATE TABLE feed_logs (
+    id UUID NOT NULL,
+    device_id TEXT NOT NULL REFERENCES devices(id) ON DELETE CASCADE,
+    ts TIMESTAMPTZ NOT NULL,
+    type TEXT NOT NULL,
+    message TEXT NOT NULL,
+    meta_json JSONB NOT NULL DEFAULT '{}'::jsonb
+) PARTITION BY RANGE (ts);
+
+-- Catches rows outside every period, e.g. from a device whose clock runs far ahead.
+CREATE TABLE feed_logs_default PARTITION OF feed_logs DEFAULT;
+
+CREATE INDEX idx_feed_logs_keyset ON feed_logs(device_id, ts DESC, id DESC);
+CREATE INDEX idx_feed_logs_message_trgm ON feed_logs USING gin (device_id, message gin_trgm_ops);
+
+DO $$
+DECLARE
+    bound TIMESTAMPTZ := (date_trunc('day', now() AT TIME ZONE 'UTC') + interval '1 day') AT TIME ZONE 'UTC';
+BEGIN
+    -- Every log row belongs to a device, so walking devices reaches all rows past the bound via the index.
+    WITH moved AS (
+        DELETE FROM feed_logs_legacy
+        WHERE ctid = ANY (ARRAY(
+            SELECT l.ctid
+            FROM devices d
+            CROSS JOIN LATERAL (
+                SELECT ctid FROM feed_logs_legacy WHERE device_id = d.id AND ts >= bound
+            ) l
+        ))
+        RETURNING id, device_id, ts, type, message, meta_json
+    )
+    INSERT INTO feed_logs(id, device_id, ts, type, message, meta_json)
+    SELECT id, device_id, ts, type, message, meta_json
+    FROM moved;
+
+    -- The bound has to be a literal for ATTACH to prove the partition constraint from the CHECK.
+    EXECUTE format(
+        'ALTER TABLE feed_logs_legacy ADD CONSTRAINT feed_logs_legacy_ts_bound CHECK (ts < %L::timestamptz) NOT VALID',
+        bound
+    );
+    ALTER TABLE feed_logs_legacy VALIDATE CONSTRAINT feed_logs_legacy_ts_bound;
+
+    -- Existing indexes and the device foreign key of the old table are reused by the partitioned ones.
+    EXECUTE format('ALTER TABLE feed_logs ATTACH PARTITION feed_logs_legacy FOR VALUES FROM (MINVALUE) TO (%L)', bound);
+    -- The partition bound says the same from here on.
+    ALTER TABLE feed_logs_legacy DROP CONSTRAINT feed_logs_legacy_ts_bound;
+END
+$$;
@@ -0,0 +1,16 @@
+-- Hourly per-device rollup fed by FeedStatsRollup; daily figures are summed from it. Rows are only ever added to,
+-- so several nodes can upsert the same hour. Kept after the raw feed_logs partitions expire.
+CREATE TABLE IF NOT EXISTS feed_stats_hourly (
+    device_id TEXT NOT NULL REFERENCES devices(id) ON DELETE CASCADE,
+    bucket_start TIMESTAMPTZ NOT NULL,
+    polls INTEGER NOT NULL DEFAULT 0,
+    auto_feeds INTEGER NOT NULL DEFAULT 0,
+    manual_feeds INTEGER NOT NULL DEFAULT 0,
+    portion_ms BIGINT NOT NULL DEFAULT 0,
+    errors JSONB NOT NULL DEFAULT '{}'::jsonb,
+    rssi_min INTEGER,
+    rssi_max INTEGER,
+    rssi_sum BIGINT NOT NULL DEFAULT 0,
+    rssi_samples INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (device_id, bucket_start)
+);
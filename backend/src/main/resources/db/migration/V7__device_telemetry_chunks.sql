@@ -0,0 +1,12 @@
+-- PollStatus history from TelemetryStore: each row is one sealed per-device chunk of samples in the
+-- TelemetryChunkCodec layout. Chunks written by different nodes for the same device may overlap in time.
+CREATE TABLE IF NOT EXISTS device_telemetry_chunks (
+    id UUID PRIMARY KEY,
+    device_id TEXT NOT NULL REFERENCES devices(id) ON DELETE CASCADE,
+    start_ts TIMESTAMPTZ NOT NULL,
+    end_ts TIMESTAMPTZ NOT NULL,
+    samples INTEGER NOT NULL,
+    data BYTEA NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_device_telemetry_chunks_range ON device_telemetry_chunks(device_id, end_ts);
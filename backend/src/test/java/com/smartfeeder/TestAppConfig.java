@@ -4,10 +4,30 @@ import com.smartfeeder.config.AppConfig;
 
 public final class TestAppConfig implements AppConfig {
     private final DeviceAuthConfig deviceAuth;
+    private final PollIntervalConfig pollInterval;
+    private final AdmissionConfig admission;
+    private final DeviceCacheConfig deviceCache;
+    private final RateLimitConfig rateLimit;
+    private final CommandQueueConfig commandQueue;
+    private final LongPollConfig longPoll;
+    private final DeviceBatchConfig deviceBatch;
+    private final FeedLogsConfig feedLogs;
+    private final FeedStatsConfig feedStats;
+    private final TelemetryConfig telemetry;
+    private final DeviceStatusConfig deviceStatus;
     private final SessionConfig session;
     private final SecurityConfig security;
 
     public TestAppConfig(boolean signatureEnabled, int nonceWindowSec, String sessionSecret, String encryptionKey) {
+        this(signatureEnabled, nonceWindowSec, sessionSecret, encryptionKey, 1, "");
+    }
+
+    public TestAppConfig(boolean signatureEnabled,
+                         int nonceWindowSec,
+                         String sessionSecret,
+                         String encryptionKey,
+                         int encryptionKeyVersion,
+                         String decryptionKeys) {
         this.deviceAuth = new DeviceAuthConfig() {
             @Override
             public boolean signatureEnabled() {
@@ -28,6 +48,197 @@ public final class TestAppConfig implements AppConfig {
             public int maxPollPerMinute() {
                 return 120;
             }
+
+            @Override
+            public String rateLimitAlgorithm() {
+                return "token-bucket";
+            }
+
+            @Override
+            public String rateLimitOverrides() {
+                return "";
+            }
+
+            @Override
+            public String nonceStore() {
+                return "memory";
+            }
+
+            @Override
+            public boolean canonicalSignatureFallback() {
+                return false;
+            }
+        };
+        this.pollInterval = new PollIntervalConfig() {
+            @Override
+            public String mode() {
+                return "fixed";
+            }
+
+            @Override
+            public int minSec() {
+                return 5;
+            }
+
+            @Override
+            public int maxSec() {
+                return 600;
+            }
+
+            @Override
+            public int activeWindowSec() {
+                return 120;
+            }
+
+            @Override
+            public int jitterPercent() {
+                return 10;
+            }
+        };
+        this.admission = new AdmissionConfig() {
+            @Override
+            public int pollPermits() {
+                return 0;
+            }
+
+            @Override
+            public int adminReservedConnections() {
+                return 2;
+            }
+
+            @Override
+            public int backgroundReservedConnections() {
+                return 1;
+            }
+
+            @Override
+            public int queueWaitMs() {
+                return 0;
+            }
+
+            @Override
+            public int retryAfterMinSec() {
+                return 5;
+            }
+
+            @Override
+            public int retryAfterMaxSec() {
+                return 30;
+            }
+        };
+        this.deviceCache = new DeviceCacheConfig() {
+            @Override
+            public int maxSize() {
+                return 1000;
+            }
+
+            @Override
+            public int ttlSec() {
+                return 60;
+            }
+        };
+        this.rateLimit = () -> 1024;
+        this.commandQueue = () -> 30;
+        this.longPoll = new LongPollConfig() {
+            @Override
+            public int maxWaitSec() {
+                return 25;
+            }
+
+            @Override
+            public boolean listenNotify() {
+                return false;
+            }
+        };
+        this.deviceBatch = () -> 100;
+        this.feedLogs = new FeedLogsConfig() {
+            @Override
+            public String writeMode() {
+                return "sync";
+            }
+
+            @Override
+            public int bufferSize() {
+                return 1024;
+            }
+
+            @Override
+            public int batchSize() {
+                return 100;
+            }
+
+            @Override
+            public int flushIntervalMs() {
+                return 200;
+            }
+
+            @Override
+            public String partitionInterval() {
+                return "day";
+            }
+
+            @Override
+            public int partitionPremake() {
+                return 7;
+            }
+
+            @Override
+            public int retentionDays() {
+                return 0;
+            }
+
+            @Override
+            public int partitionCheckIntervalMin() {
+                return 60;
+            }
+        };
+        this.feedStats = new FeedStatsConfig() {
+            @Override
+            public boolean enabled() {
+                return true;
+            }
+
+            @Override
+            public int flushIntervalSec() {
+                return 10;
+            }
+        };
+        this.telemetry = new TelemetryConfig() {
+            @Override
+            public boolean enabled() {
+                return true;
+            }
+
+            @Override
+            public int chunkMaxSamples() {
+                return 720;
+            }
+
+            @Override
+            public int chunkMaxAgeSec() {
+                return 900;
+            }
+
+            @Override
+            public int flushIntervalSec() {
+                return 10;
+            }
+
+            @Override
+            public int retentionDays() {
+                return 90;
+            }
+        };
+        this.deviceStatus = new DeviceStatusConfig() {
+            @Override
+            public String writeMode() {
+                return "sync";
+            }
+
+            @Override
+            public int flushIntervalSec() {
+                return 15;
+            }
         };
         this.session = new SessionConfig() {
             @Override
@@ -50,7 +261,37 @@ public final class TestAppConfig implements AppConfig {
                 return sessionSecret;
             }
         };
-        this.security = () -> encryptionKey;
+        this.security = new SecurityConfig() {
+            @Override
+            public String encryptionKey() {
+                return encryptionKey;
+            }
+
+            @Override
+            public int encryptionKeyVersion() {
+                return encryptionKeyVersion;
+            }
+
+            @Override
+            public String decryptionKeys() {
+                return decryptionKeys;
+            }
+
+            @Override
+            public int reencryptIntervalSec() {
+                return 0;
+            }
+
+            @Override
+            public int reencryptBatchSize() {
+                return 100;
+            }
+
+            @Override
+            public String operatorEmails() {
+                return "";
+            }
+        };
     }
 
     @Override
@@ -63,6 +304,61 @@ public final class TestAppConfig implements AppConfig {
         return deviceAuth;
     }
 
+    @Override
+    public PollIntervalConfig pollInterval() {
+        return pollInterval;
+    }
+
+    @Override
+    public AdmissionConfig admission() {
+        return admission;
+    }
+
+    @Override
+    public DeviceCacheConfig deviceCache() {
+        return deviceCache;
+    }
+
+    @Override
+    public RateLimitConfig rateLimit() {
+        return rateLimit;
+    }
+
+    @Override
+    public CommandQueueConfig commandQueue() {
+        return commandQueue;
+    }
+
+    @Override
+    public LongPollConfig longPoll() {
+        return longPoll;
+    }
+
+    @Override
+    public DeviceBatchConfig deviceBatch() {
+        return deviceBatch;
+    }
+
+    @Override
+    public FeedLogsConfig feedLogs() {
+        return feedLogs;
+    }
+
+    @Override
+    public FeedStatsConfig feedStats() {
+        return feedStats;
+    }
+
+    @Override
+    public TelemetryConfig telemetry() {
+        return telemetry;
+    }
+
+    @Override
+    public DeviceStatusConfig deviceStatus() {
+        return deviceStatus;
+    }
+
     @Override
     public SessionConfig session() {
         return session;
@@ -0,0 +1,87 @@
+package com.smartfeeder.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+
+class DbClientTest {
+
+    @Test
+    void acquireGuardWaitsForReleasedConnectionsAndTimesOut() throws Exception {
+        AtomicInteger closed = new AtomicInteger();
+        DbClient client = DbClient.of(dataSource(closed), 1, 50);
+
+        Connection first = client.getConnection();
+        assertThatThrownBy(client::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        assertThat(client.stats().acquireTimeouts()).isEqualTo(1);
+
+        first.close();
+        first.close();
+        assertThat(closed.get()).isEqualTo(2);
+        assertThat(client.stats().availablePermits()).isEqualTo(1);
+
+        try (Connection second = client.getConnection()) {
+            assertThat(second.getAutoCommit()).isTrue();
+            assertThat(client.stats().availablePermits()).isZero();
+        }
+        assertThat(client.stats().availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentClosesReturnThePermitOnce() throws Exception {
+        DbClient client = DbClient.of(dataSource(new AtomicInteger()), 2, 50);
+
+        for (int round = 0; round < 200; round++) {
+            Connection connection = client.getConnection();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] closers = new Thread[4];
+            for (int i = 0; i < closers.length; i++) {
+                closers[i] = new Thread(() -> {
+                    try {
+                        start.await();
+                        connection.close();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                closers[i].start();
+            }
+            start.countDown();
+            for (Thread closer : closers) {
+                closer.join();
+            }
+            assertThat(client.stats().availablePermits()).isEqualTo(2);
+        }
+    }
+
+    private static DataSource dataSource(AtomicInteger closed) {
+        return (DataSource) Proxy.newProxyInstance(
+            DataSource.class.getClassLoader(),
+            new Class<?>[] {DataSource.class},
+            (proxy, method, args) -> {
+                if (!"getConnection".equals(method.getName())) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                return Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class},
+                    (c, m, a) -> switch (m.getName()) {
+                        case "close" -> {
+                            closed.incrementAndGet();
+                            yield null;
+                        }
+                        case "getAutoCommit" -> true;
+                        default -> throw new UnsupportedOperationException(m.getName());
+                    }
+                );
+            }
+        );
+    }
+}
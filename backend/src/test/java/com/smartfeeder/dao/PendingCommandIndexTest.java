@@ -0,0 +1,85 @@
+package com.smartfeeder.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class PendingCommandIndexTest {
+
+    @Test
+    void notAuthoritativeUntilFirstCleanReconcile() {
+        PendingCommandIndex index = new PendingCommandIndex();
+
+        assertThat(index.mayHavePending("feeder-001")).isTrue();
+
+        index.reconcile(index.snapshot(), Map.of());
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.mayHavePending("feeder-001")).isFalse();
+    }
+
+    @Test
+    void tracksEnqueueClaimAndAck() {
+        PendingCommandIndex index = new PendingCommandIndex();
+        index.reconcile(index.snapshot(), Map.of());
+
+        index.enqueued("feeder-001", Instant.ofEpochSecond(100));
+        index.enqueued("feeder-001", Instant.ofEpochSecond(200));
+        assertThat(index.mayHavePending("feeder-001")).isTrue();
+        assertThat(index.stats().oldestPendingAt()).isEqualTo(Instant.ofEpochSecond(100));
+
+        index.claimed("feeder-001", 2);
+        assertThat(index.mayHavePending("feeder-001")).isFalse();
+        assertThat(index.stats().sent()).isEqualTo(2);
+
+        index.acked("feeder-001", 2);
+        assertThat(index.stats().sent()).isZero();
+        assertThat(index.stats().pending()).isZero();
+    }
+
+    @Test
+    void claimAppliedBeforeItsEnqueueStillConverges() {
+        PendingCommandIndex index = new PendingCommandIndex();
+        index.reconcile(index.snapshot(), Map.of());
+
+        index.claimed("feeder-001", 1);
+        index.enqueued("feeder-001", Instant.ofEpochSecond(100));
+
+        assertThat(index.mayHavePending("feeder-001")).isFalse();
+        assertThat(index.stats().sent()).isEqualTo(1);
+    }
+
+    @Test
+    void ackOfCommandClaimedOnAnotherNodeDoesNotHidePendingWork() {
+        PendingCommandIndex index = new PendingCommandIndex();
+        index.reconcile(index.snapshot(), Map.of());
+
+        // The claim happened on another node; only the ack is seen here.
+        index.acked("feeder-001", 1);
+        index.enqueued("feeder-001", Instant.ofEpochSecond(100));
+
+        assertThat(index.mayHavePending("feeder-001")).isTrue();
+        assertThat(index.stats().sent()).isZero();
+    }
+
+    @Test
+    void reconcileSkipsDevicesChangedDuringTheRead() {
+        PendingCommandIndex index = new PendingCommandIndex();
+        index.reconcile(index.snapshot(), Map.of());
+        var before = index.snapshot();
+
+        // Enqueued on this node after the database read started; the read did not see it.
+        index.enqueued("feeder-001", Instant.ofEpochSecond(300));
+
+        int skipped = index.reconcile(before, Map.of(
+            "feeder-002", new PendingCommandIndex.QueueCounts(3, 1, Instant.ofEpochSecond(50))
+        ));
+
+        assertThat(skipped).isEqualTo(1);
+        assertThat(index.mayHavePending("feeder-001")).isTrue();
+        assertThat(index.mayHavePending("feeder-002")).isTrue();
+        assertThat(index.stats().pending()).isEqualTo(4);
+    }
+}
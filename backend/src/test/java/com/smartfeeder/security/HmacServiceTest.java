@@ -19,4 +19,22 @@ class HmacServiceTest {
         assertThat(hmacService.verifyHex(body, secret, sign + "00")).isFalse();
         assertThat(hmacService.verifyHex(body, "wrong-secret", sign)).isFalse();
     }
+
+    @Test
+    void reusedKeyAcceptsAnyHexCaseAndRejectsMalformedSignatures() {
+        byte[] body = "{\"deviceId\":\"feeder-001\"}".getBytes();
+        HmacService.MacKey key = hmacService.keyFor("test-secret");
+        String sign = hmacService.signHex(body, key);
+
+        assertThat(sign).isEqualTo(hmacService.signHex(body, "test-secret"));
+        for (int i = 0; i < 3; i++) {
+            assertThat(hmacService.verifyHex(body, key, sign)).isTrue();
+        }
+        assertThat(hmacService.verifyHex(body, key, " " + sign.toUpperCase() + "\n")).isTrue();
+        assertThat(hmacService.verifyHex(body, key, "zz" + sign.substring(2))).isFalse();
+        assertThat(hmacService.verifyHex(body, key, sign.substring(2))).isFalse();
+        assertThat(hmacService.verifyHex(body, key, "  ")).isFalse();
+        assertThat(hmacService.verifyHex(body, key, null)).isFalse();
+        assertThat(hmacService.verifyHex("{}".getBytes(), key, sign)).isFalse();
+    }
 }
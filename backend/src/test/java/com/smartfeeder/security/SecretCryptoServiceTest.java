@@ -1,11 +1,19 @@
 package com.smartfeeder.security;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.smartfeeder.TestAppConfig;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 import org.junit.jupiter.api.Test;
 
 class SecretCryptoServiceTest {
+    private static final String KEY_1 = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+    private static final String KEY_2 = "YWJjZGVmMDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODk=";
 
     @Test
     void encryptDecryptRoundTrip() {
@@ -21,4 +29,49 @@ class SecretCryptoServiceTest {
         assertThat(decrypted).isEqualTo(original);
         assertThat(encrypted).isNotEmpty();
     }
+
+    @Test
+    void decryptsPreviousKeyAndLegacyPayloadsAfterRotation() throws Exception {
+        SecretCryptoService v1 = crypto(KEY_1, 1, "");
+        SecretCryptoService v2 = crypto(KEY_2, 2, "1:" + KEY_1);
+
+        byte[] fromV1 = v1.encrypt("secret-one");
+        byte[] legacy = legacyEncrypt(KEY_1, "secret-legacy");
+
+        assertThat(v1.decrypt(legacy)).isEqualTo("secret-legacy");
+        assertThat(v1.needsReencryption(legacy)).isTrue();
+        assertThat(v1.needsReencryption(fromV1)).isFalse();
+
+        assertThat(v2.decrypt(fromV1)).isEqualTo("secret-one");
+        assertThat(v2.decrypt(legacy)).isEqualTo("secret-legacy");
+        assertThat(v2.needsReencryption(fromV1)).isTrue();
+
+        byte[] rewritten = v2.encrypt(v2.decrypt(fromV1));
+        assertThat(v2.needsReencryption(rewritten)).isFalse();
+        assertThat(v2.decrypt(rewritten)).isEqualTo("secret-one");
+        assertThatThrownBy(() -> v1.decrypt(rewritten)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsTamperedKeyVersion() {
+        SecretCryptoService crypto = crypto(KEY_2, 2, "1:" + KEY_2);
+        byte[] payload = crypto.encrypt("secret");
+        payload[2] = 1;
+
+        assertThatThrownBy(() -> crypto.decrypt(payload)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static SecretCryptoService crypto(String key, int version, String decryptionKeys) {
+        return new SecretCryptoService(new TestAppConfig(false, 300, "session-secret", key, version, decryptionKeys));
+    }
+
+    private static byte[] legacyEncrypt(String key, String plaintext) throws Exception {
+        byte[] iv = new byte[12];
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(Base64.getDecoder().decode(key), "AES"), new GCMParameterSpec(128, iv));
+        byte[] encrypted = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+        byte[] payload = new byte[iv.length + encrypted.length];
+        System.arraycopy(encrypted, 0, payload, iv.length, encrypted.length);
+        return payload;
+    }
 }
@@ -89,6 +89,35 @@ class DeviceAuthServiceTest {
             .hasMessageContaining("replay_detected");
     }
 
+    @Test
+    void signatureOnRejectsMismatchedSecretHashBeforeRecordingNonce() {
+        HmacService hmac = new HmacService();
+        SecretHashService hashService = new SecretHashService();
+
+        DeviceAuthService service = new DeviceAuthService(
+            new TestAppConfig(true, 300, "session", "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY="),
+            hmac,
+            hashService
+        );
+
+        byte[] body = "{\"a\":1}".getBytes();
+        String secret = "device-secret";
+        var credentials = service.credentials(hashService.sha256Hex("other-secret"), secret);
+
+        assertThatThrownBy(() -> service.validate(
+            "feeder-001",
+            "feeder-001",
+            "nonce-1",
+            hmac.signHex(body, secret),
+            java.time.Instant.now().getEpochSecond(),
+            body,
+            credentials,
+            new NoopNonceStore(false)
+        ))
+            .isInstanceOf(ApiException.class)
+            .hasMessageContaining("secret_integrity_check_failed");
+    }
+
     private record NoopNonceStore(boolean registerResult) implements DeviceAuthService.NonceStore {
         @Override
         public void purgeOldNonce(long minEpochExclusive) {
@@ -0,0 +1,140 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.smartfeeder.TestAppConfig;
+import com.smartfeeder.dao.StorageService;
+import com.smartfeeder.security.HmacService;
+import com.smartfeeder.security.SecretCryptoService;
+import com.smartfeeder.security.SecretHashService;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class DeviceCacheTest {
+    private static final String SECRET = "device-secret-0123456789";
+
+    private final TestAppConfig config =
+        new TestAppConfig(false, 300, "session", "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=");
+    private final SecretCryptoService crypto = new SecretCryptoService(config);
+    private final SecretHashService hashes = new SecretHashService();
+    private final DeviceAuthService auth = new DeviceAuthService(config, new HmacService(), hashes);
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final Map<String, Integer> loads = new HashMap<>();
+
+    @Test
+    void servesHitsFromMemoryAndLoadsMisses() {
+        DeviceCache cache = cache(100, 60, this::row);
+
+        var first = cache.get("feeder-001");
+        var second = cache.get("feeder-001");
+
+        assertThat(first).isPresent();
+        assertThat(first.get().fromCache()).isFalse();
+        assertThat(first.get().credentials().secretIntegrityValid()).isTrue();
+        assertThat(second.get().fromCache()).isTrue();
+        assertThat(loads).containsEntry("feeder-001", 1);
+        assertThat(cache.get("missing")).isEmpty();
+        assertThat(cache.stats().hits()).isEqualTo(1);
+        assertThat(cache.stats().misses()).isEqualTo(2);
+    }
+
+    @Test
+    void reloadsAfterTtl() {
+        DeviceCache cache = cache(100, 60, this::row);
+        cache.get("feeder-001");
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertThat(cache.get("feeder-001").get().fromCache()).isTrue();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(cache.get("feeder-001").get().fromCache()).isFalse();
+        assertThat(loads).containsEntry("feeder-001", 2);
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsDownToNinetyPercentWhenFull() {
+        DeviceCache cache = cache(10, 60, this::row);
+        for (int i = 0; i < 10; i++) {
+            cache.get("feeder-" + i);
+        }
+        assertThat(cache.stats().size()).isEqualTo(10);
+
+        cache.get("feeder-10");
+
+        assertThat(cache.stats().size()).isEqualTo(9);
+        assertThat(cache.stats().evictions()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidateDuringLoadServesTheRowOnceWithoutCachingIt() {
+        DeviceCache[] cache = new DeviceCache[1];
+        cache[0] = cache(100, 60, id -> {
+            if (loads.getOrDefault(id, 0) == 0) {
+                // The admin API changes this device while its row is being read.
+                cache[0].invalidate(id);
+            }
+            return row(id);
+        });
+
+        assertThat(cache[0].get("feeder-001")).isPresent();
+        assertThat(cache[0].stats().size()).isZero();
+
+        cache[0].get("feeder-001");
+        assertThat(cache[0].get("feeder-001").get().fromCache()).isTrue();
+        assertThat(loads).containsEntry("feeder-001", 2);
+    }
+
+    @Test
+    void invalidatingAnotherDeviceDuringLoadStillCaches() {
+        DeviceCache[] cache = new DeviceCache[1];
+        cache[0] = cache(100, 60, id -> {
+            cache[0].invalidate("feeder-002");
+            return row(id);
+        });
+
+        cache[0].get("feeder-001");
+
+        assertThat(cache[0].get("feeder-001").get().fromCache()).isTrue();
+    }
+
+    @Test
+    void signatureMismatchReloadsAtMostOncePerMinimumAge() {
+        DeviceCache cache = cache(100, 600, this::row);
+        cache.get("feeder-001");
+        var young = cache.get("feeder-001").get();
+
+        assertThat(cache.reloadAfterMismatch("feeder-001", young)).isEmpty();
+        assertThat(loads).containsEntry("feeder-001", 1);
+
+        clock.addAndGet(DeviceCache.MISMATCH_RELOAD_MIN_AGE_NANOS);
+        var old = cache.get("feeder-001").get();
+        assertThat(cache.reloadAfterMismatch("feeder-001", old)).isPresent();
+        // A second request that saw the same stale entry does not reload it again.
+        assertThat(cache.reloadAfterMismatch("feeder-001", old)).isEmpty();
+
+        var reloaded = cache.get("feeder-001").get();
+        assertThat(cache.reloadAfterMismatch("feeder-001", reloaded)).isEmpty();
+        assertThat(loads).containsEntry("feeder-001", 2);
+        assertThat(cache.stats().mismatchReloads()).isEqualTo(1);
+    }
+
+    private DeviceCache cache(int maxSize, int ttlSec, Function<String, Optional<StorageService.DeviceRow>> loader) {
+        return new DeviceCache(loader, crypto, auth, maxSize, ttlSec, clock::get);
+    }
+
+    private Optional<StorageService.DeviceRow> row(String deviceId) {
+        loads.merge(deviceId, 1, Integer::sum);
+        if (deviceId.equals("missing")) {
+            return Optional.empty();
+        }
+        return Optional.of(new StorageService.DeviceRow(deviceId, "user-1", "Feeder", hashes.sha256Hex(SECRET),
+            crypto.encrypt(SECRET), null, null, null, null, 1, Instant.EPOCH));
+    }
+}
@@ -0,0 +1,113 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.smartfeeder.TestAppConfig;
+import com.smartfeeder.dao.DbClient;
+import com.smartfeeder.dao.StorageService;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+
+class DeviceStatusTableTest {
+
+    @Test
+    void keepsNewestStatusWhenPollsArriveOutOfOrder() {
+        DeviceStatusTable table = new DeviceStatusTable(
+            new StorageService(DbClient.of(null)),
+            new TestAppConfig(false, 300, "session-secret", "encryption-key")
+        );
+
+        table.record("feeder-001", Instant.ofEpochSecond(200), "{\"rssi\":-50}", "1.1.0", -50);
+        table.record("feeder-001", Instant.ofEpochSecond(100), "{\"rssi\":-70}", "1.0.0", -70);
+
+        var status = table.find("feeder-001").orElseThrow();
+        assertThat(status.seenAt()).isEqualTo(Instant.ofEpochSecond(200));
+        assertThat(status.firmwareVersion()).isEqualTo("1.1.0");
+        assertThat(status.rssi()).isEqualTo(-50);
+        // The test config writes status synchronously, so nothing is left for the flusher.
+        assertThat(table.stats().dirty()).isZero();
+        assertThat(table.find("feeder-002")).isEmpty();
+    }
+
+    @Test
+    void flushWritesDirtyDevicesInChunksOnce() {
+        List<List<StorageService.DeviceStatusUpdate>> writes = new ArrayList<>();
+        DeviceStatusTable table = coalesced(chunk -> writes.add(List.copyOf(chunk)));
+        int devices = DeviceStatusTable.FLUSH_CHUNK * 2 + 500;
+        for (int i = 0; i < devices; i++) {
+            table.record("feeder-" + i, Instant.ofEpochSecond(100), "{}", "1.0.0", -60);
+        }
+
+        table.flushSafely();
+
+        assertThat(writes).extracting(List::size)
+            .containsExactly(DeviceStatusTable.FLUSH_CHUNK, DeviceStatusTable.FLUSH_CHUNK, 500);
+        assertThat(table.stats().dirty()).isZero();
+        assertThat(table.stats().flushedRows()).isEqualTo(devices);
+
+        table.flushSafely();
+        assertThat(writes).hasSize(3);
+    }
+
+    @Test
+    void pollLandingDuringWriteKeepsDeviceDirty() {
+        List<StorageService.DeviceStatusUpdate> written = new ArrayList<>();
+        DeviceStatusTable[] table = new DeviceStatusTable[1];
+        table[0] = coalesced(chunk -> {
+            if (written.isEmpty()) {
+                table[0].record("feeder-001", Instant.ofEpochSecond(200), "{\"rssi\":-40}", "1.1.0", -40);
+            }
+            written.addAll(chunk);
+        });
+        table[0].record("feeder-001", Instant.ofEpochSecond(100), "{\"rssi\":-70}", "1.0.0", -70);
+
+        table[0].flushSafely();
+
+        assertThat(written).extracting(StorageService.DeviceStatusUpdate::seenAt)
+            .containsExactly(Instant.ofEpochSecond(100));
+        assertThat(table[0].stats().dirty()).isEqualTo(1);
+
+        table[0].flushSafely();
+
+        assertThat(written).extracting(StorageService.DeviceStatusUpdate::seenAt)
+            .containsExactly(Instant.ofEpochSecond(100), Instant.ofEpochSecond(200));
+        assertThat(table[0].stats().dirty()).isZero();
+    }
+
+    @Test
+    void failedChunkStaysDirtyAndIsRetriedOnNextFlush() {
+        List<StorageService.DeviceStatusUpdate> written = new ArrayList<>();
+        int[] calls = {0};
+        DeviceStatusTable table = coalesced(chunk -> {
+            // The second chunk of the first flush fails; the first one is already committed.
+            if (++calls[0] == 2) {
+                throw new IllegalStateException("DB operation failed: updateDeviceStatuses");
+            }
+            written.addAll(chunk);
+        });
+        int devices = DeviceStatusTable.FLUSH_CHUNK + 10;
+        for (int i = 0; i < devices; i++) {
+            table.record("feeder-" + i, Instant.ofEpochSecond(100), "{}", "1.0.0", -60);
+        }
+
+        table.flushSafely();
+
+        assertThat(written).hasSize(DeviceStatusTable.FLUSH_CHUNK);
+        assertThat(table.stats().dirty()).isEqualTo(10);
+        assertThat(table.stats().flushes()).isZero();
+
+        table.flushSafely();
+
+        assertThat(written).hasSize(devices);
+        assertThat(written).extracting(StorageService.DeviceStatusUpdate::deviceId).doesNotHaveDuplicates();
+        assertThat(table.stats().dirty()).isZero();
+        assertThat(table.stats().flushes()).isEqualTo(1);
+    }
+
+    private static DeviceStatusTable coalesced(Consumer<List<StorageService.DeviceStatusUpdate>> writer) {
+        return new DeviceStatusTable(writer, "coalesced", 15);
+    }
+}
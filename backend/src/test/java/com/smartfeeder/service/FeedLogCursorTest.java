@@ -0,0 +1,35 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.smartfeeder.dao.StorageService;
+import java.time.Instant;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class FeedLogCursorTest {
+
+    @Test
+    void roundTripsTimestampWithMicrosAndId() {
+        var key = new StorageService.FeedLogKey(
+            Instant.parse("2025-03-01T10:15:30.123456Z"),
+            UUID.fromString("0b6f3c3e-8d2a-4f61-9b1e-2f5a7c9d0e11")
+        );
+
+        String cursor = FeedLogCursor.encode(key);
+
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+        assertThat(FeedLogCursor.decode(cursor)).isEqualTo(key);
+    }
+
+    @Test
+    void rejectsTamperedCursor() {
+        assertThatThrownBy(() -> FeedLogCursor.decode("not a cursor"))
+            .isInstanceOf(ApiException.class)
+            .hasMessage("invalid_cursor");
+        assertThatThrownBy(() -> FeedLogCursor.decode("MTIzLjQ1Ng"))
+            .isInstanceOf(ApiException.class)
+            .hasMessage("invalid_cursor");
+    }
+}
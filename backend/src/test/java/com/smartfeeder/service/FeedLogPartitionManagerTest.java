@@ -0,0 +1,54 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.smartfeeder.dao.StorageService.FeedLogPartition;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FeedLogPartitionManagerTest {
+    private static final Instant NOW = Instant.parse("2026-03-04T10:15:00Z");
+
+    @Test
+    void createsDaysAfterLegacyPartition() {
+        var manager = new FeedLogPartitionManager(null, false, 2, 90, 60);
+        var legacy = new FeedLogPartition("feed_logs_legacy", null, Instant.parse("2026-03-05T00:00:00Z"));
+
+        assertThat(manager.missing(List.of(legacy), NOW)).containsExactly(
+            day("feed_logs_p20260305", "2026-03-05", "2026-03-06"),
+            day("feed_logs_p20260306", "2026-03-06", "2026-03-07")
+        );
+        var created = manager.missing(List.of(legacy), NOW);
+        assertThat(manager.missing(List.of(legacy, created.get(0), created.get(1)), NOW)).isEmpty();
+    }
+
+    @Test
+    void weeksStartAfterExistingDailyPartitions() {
+        var manager = new FeedLogPartitionManager(null, true, 1, 90, 60);
+        List<FeedLogPartition> existing = List.of(
+            day("feed_logs_p20260304", "2026-03-04", "2026-03-05"),
+            day("feed_logs_p20260305", "2026-03-05", "2026-03-06")
+        );
+
+        assertThat(manager.missing(existing, NOW)).containsExactly(
+            day("feed_logs_p20260302", "2026-03-02", "2026-03-04"),
+            day("feed_logs_p20260306", "2026-03-06", "2026-03-09"),
+            day("feed_logs_p20260309", "2026-03-09", "2026-03-16")
+        );
+    }
+
+    @Test
+    void expiresPartitionsEndedBeforeRetention() {
+        var manager = new FeedLogPartitionManager(null, false, 2, 30, 60);
+        var legacy = new FeedLogPartition("feed_logs_legacy", null, Instant.parse("2026-02-01T00:00:00Z"));
+        var old = day("feed_logs_p20260201", "2026-02-01", "2026-02-02");
+        var kept = day("feed_logs_p20260202", "2026-02-02", "2026-02-03");
+
+        assertThat(manager.expired(List.of(legacy, old, kept), NOW)).containsExactly(legacy, old);
+    }
+
+    private static FeedLogPartition day(String name, String from, String to) {
+        return new FeedLogPartition(name, Instant.parse(from + "T00:00:00Z"), Instant.parse(to + "T00:00:00Z"));
+    }
+}
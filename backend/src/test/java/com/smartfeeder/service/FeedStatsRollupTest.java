@@ -0,0 +1,156 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.smartfeeder.dao.StorageService;
+import com.smartfeeder.domain.AdminApi;
+import com.smartfeeder.util.Jsons;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import org.junit.jupiter.api.Test;
+
+class FeedStatsRollupTest {
+    private static final Instant SEEN_AT = Instant.parse("2026-03-04T10:15:00Z");
+    private static final Instant HOUR_09 = Instant.parse("2026-03-04T09:00:00Z");
+    private static final Instant HOUR_10 = Instant.parse("2026-03-04T10:00:00Z");
+
+    private final List<StorageService.FeedStatsRow> table = new ArrayList<>();
+
+    @Test
+    void countsFeedsInTheLogHourAndPollsInTheSeenHour() throws Exception {
+        FeedStatsRollup rollup = rollup(rows -> {
+            table.addAll(rows);
+            return rows.size();
+        });
+
+        rollup.record("feeder-001", SEEN_AT, -60, null, List.of(
+            new StorageService.FeedLogInput(SEEN_AT.minusSeconds(3600), "AUTO_FEED", "", "{\"portionMs\":1200}"),
+            new StorageService.FeedLogInput(SEEN_AT, "INFO", "", "{}")
+        ));
+        rollup.record("feeder-001", SEEN_AT.plusSeconds(60), -70, " JAM ", List.of(
+            new StorageService.FeedLogInput(SEEN_AT, "ERROR", "", "not json")
+        ));
+        rollup.record("feeder-002", SEEN_AT, null, null, List.of());
+        rollup.flush();
+
+        assertThat(rollup.stats().pendingBuckets()).isZero();
+        assertThat(rollup.stats().flushedRows()).isEqualTo(3);
+        assertThat(row("feeder-001", HOUR_09)).isEqualTo(
+            new StorageService.FeedStatsRow("feeder-001", HOUR_09, 0, 1, 0, 1200, "{}", null, null, 0, 0));
+        var current = row("feeder-001", HOUR_10);
+        assertThat(current.polls()).isEqualTo(2);
+        assertThat(current.autoFeeds()).isZero();
+        assertThat(errors(current)).isEqualTo(Map.of("ERROR", 1L, "JAM", 1L));
+        assertThat(current.rssiMin()).isEqualTo(-70);
+        assertThat(current.rssiMax()).isEqualTo(-60);
+        assertThat(current.rssiSum()).isEqualTo(-130);
+        assertThat(current.rssiSamples()).isEqualTo(2);
+        assertThat(row("feeder-002", HOUR_10)).isEqualTo(
+            new StorageService.FeedStatsRow("feeder-002", HOUR_10, 1, 0, 0, 0, "{}", null, null, 0, 0));
+    }
+
+    @Test
+    void failedFlushAddsItsCountsToTheNextOne() throws Exception {
+        boolean[] fail = {true};
+        FeedStatsRollup rollup = rollup(rows -> {
+            if (fail[0]) {
+                throw new IllegalStateException("database is down");
+            }
+            table.addAll(rows);
+            return rows.size();
+        });
+
+        rollup.record("feeder-001", SEEN_AT, -60, "JAM", List.of(
+            new StorageService.FeedLogInput(SEEN_AT, "MANUAL_FEED", "", "{\"portionMs\":800}"),
+            new StorageService.FeedLogInput(SEEN_AT, "ERROR", "", "{\"code\":\"MOTOR\"}")
+        ));
+        assertThatThrownBy(rollup::flush).isInstanceOf(IllegalStateException.class);
+        assertThat(rollup.stats().pendingBuckets()).isEqualTo(1);
+        assertThat(rollup.stats().failedFlushes()).isEqualTo(1);
+
+        rollup.record("feeder-001", SEEN_AT.plusSeconds(120), -50, "JAM", List.of(
+            new StorageService.FeedLogInput(SEEN_AT, "MANUAL_FEED", "", "{\"portionMs\":-5}")
+        ));
+        fail[0] = false;
+        rollup.flush();
+
+        var row = row("feeder-001", HOUR_10);
+        assertThat(row.polls()).isEqualTo(2);
+        assertThat(row.manualFeeds()).isEqualTo(2);
+        assertThat(row.portionMs()).isEqualTo(800);
+        assertThat(errors(row)).isEqualTo(Map.of("JAM", 2L, "MOTOR", 1L));
+        assertThat(row.rssiMin()).isEqualTo(-60);
+        assertThat(row.rssiMax()).isEqualTo(-50);
+        assertThat(row.rssiSamples()).isEqualTo(2);
+        assertThat(table).hasSize(1);
+    }
+
+    @Test
+    void readReturnsStoredHoursOrFoldsThemIntoUtcDays() {
+        table.add(new StorageService.FeedStatsRow("feeder-001", HOUR_09, 4, 1, 0, 1200,
+            "{\"JAM\":1}", -70, -60, -260, 4));
+        table.add(new StorageService.FeedStatsRow("feeder-001", HOUR_10, 2, 1, 1, 900,
+            "{\"JAM\":2,\"ERROR\":1}", -80, -50, -130, 2));
+        table.add(new StorageService.FeedStatsRow("feeder-001", Instant.parse("2026-03-05T00:00:00Z"), 1, 0, 0, 0,
+            "{}", null, null, 0, 0));
+        table.add(new StorageService.FeedStatsRow("feeder-002", HOUR_10, 9, 9, 9, 9, "{}", -1, -1, -9, 9));
+        FeedStatsRollup rollup = rollup(rows -> 0);
+        Instant from = Instant.parse("2026-03-04T00:00:00Z");
+        Instant to = Instant.parse("2026-03-06T00:00:00Z");
+
+        var hourly = rollup.read("feeder-001", false, from, to);
+        assertThat(hourly).extracting(AdminApi.FeedStatsBucket::bucketStart)
+            .containsExactly(HOUR_09, HOUR_10, Instant.parse("2026-03-05T00:00:00Z"));
+        assertThat(hourly.get(1)).isEqualTo(new AdminApi.FeedStatsBucket(HOUR_10, 2, 2, 1, 1, 900,
+            Map.of("ERROR", 1L, "JAM", 2L), -80, -65.0, -50));
+
+        var daily = rollup.read("feeder-001", true, from, to);
+        assertThat(daily).containsExactly(
+            new AdminApi.FeedStatsBucket(from, 6, 3, 2, 1, 2100, Map.of("ERROR", 1L, "JAM", 3L), -80, -65.0, -50),
+            new AdminApi.FeedStatsBucket(Instant.parse("2026-03-05T00:00:00Z"), 1, 0, 0, 0, 0, Map.of(),
+                null, null, null)
+        );
+        assertThat(rollup.read("feeder-001", true, HOUR_10, to)).extracting(AdminApi.FeedStatsBucket::polls)
+            .containsExactly(2, 1);
+    }
+
+    @Test
+    void disabledRollupIgnoresPolls() {
+        FeedStatsRollup rollup = new FeedStatsRollup(rows -> 0, this::list, false, 10);
+
+        rollup.record("feeder-001", SEEN_AT, -60, "JAM", List.of());
+
+        assertThat(rollup.stats().pendingBuckets()).isZero();
+    }
+
+    private FeedStatsRollup rollup(ToIntFunction<List<StorageService.FeedStatsRow>> writer) {
+        return new FeedStatsRollup(writer, this::list, true, 10);
+    }
+
+    // Stands in for feed_stats_hourly: rows of one device with from <= bucket_start < to, oldest first.
+    private List<StorageService.FeedStatsRow> list(String deviceId, Instant from, Instant to) {
+        return table.stream()
+            .filter(r -> r.deviceId().equals(deviceId))
+            .filter(r -> !r.bucketStart().isBefore(from) && r.bucketStart().isBefore(to))
+            .sorted(Comparator.comparing(StorageService.FeedStatsRow::bucketStart))
+            .toList();
+    }
+
+    private StorageService.FeedStatsRow row(String deviceId, Instant hour) {
+        return table.stream()
+            .filter(r -> r.deviceId().equals(deviceId) && r.bucketStart().equals(hour))
+            .findFirst()
+            .orElseThrow();
+    }
+
+    private static Map<String, Long> errors(StorageService.FeedStatsRow row) throws Exception {
+        return Jsons.mapper().readValue(row.errorsJson(), new TypeReference<Map<String, Long>>() {
+        });
+    }
+}
@@ -0,0 +1,53 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.smartfeeder.TestAppConfig;
+import com.smartfeeder.dao.DbClient;
+import com.smartfeeder.dao.StorageService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class LongPollServiceTest {
+
+    @Test
+    void parkedPollWakesOnPublishAndTimesOutOtherwise() throws Exception {
+        StorageService storage = new StorageService(DbClient.of(null));
+        LongPollService longPoll = new LongPollService(storage, new TestAppConfig(false, 300, "session-secret", "encryption-key"));
+        longPoll.init();
+        try {
+            assertThat(longPoll.waitSec("10")).isEqualTo(10);
+            assertThat(longPoll.waitSec("600")).isEqualTo(25);
+            assertThat(longPoll.waitSec("soon")).isZero();
+            assertThat(longPoll.waitSec(null)).isZero();
+
+            var woken = longPoll.park("feeder-001", 20);
+            var other = longPoll.park("feeder-002", 1);
+            assertThat(woken).isNotDone();
+            assertThat(storage.commandNotifications().publish("feeder-001")).isEqualTo(1);
+            assertThat(woken.get(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(other.get(5, TimeUnit.SECONDS)).isFalse();
+            assertThat(storage.commandNotifications().publish("feeder-002")).isZero();
+            assertThat(longPoll.stats().parked()).isZero();
+            assertThat(longPoll.stats().woken()).isEqualTo(1);
+            assertThat(longPoll.stats().timedOut()).isEqualTo(1);
+            assertThat(longPoll.stats().bus().waitingDevices()).isZero();
+        } finally {
+            longPoll.release();
+        }
+    }
+
+    @Test
+    void shutdownReleasesParkedPollsWithoutAskingForDelivery() throws Exception {
+        StorageService storage = new StorageService(DbClient.of(null));
+        LongPollService longPoll = new LongPollService(storage, new TestAppConfig(false, 300, "session-secret", "encryption-key"));
+        longPoll.init();
+
+        var parked = longPoll.park("feeder-001", 20);
+        longPoll.release();
+
+        assertThat(parked.get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(longPoll.stats().parked()).isZero();
+    }
+}
@@ -0,0 +1,40 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class MigrationRunnerTest {
+
+    @Test
+    void keepsDoBlocksInOneStatement() {
+        var statements = MigrationRunner.splitStatements("""
+            CREATE TABLE a (id INT);
+            DO $$
+            BEGIN
+                INSERT INTO a VALUES (1);
+                EXECUTE format('ALTER TABLE a ADD CONSTRAINT c CHECK (id < %L)', 2);
+            END
+            $$;
+            DROP TABLE a;
+            """);
+
+        assertThat(statements).extracting(String::trim).filteredOn(sql -> !sql.isEmpty()).hasSize(3);
+        assertThat(statements.get(1)).contains("INSERT INTO a VALUES (1);").endsWith("$$");
+    }
+
+    @Test
+    void splitsPartitionMigrationIntoWholeStatements() throws IOException {
+        String script;
+        try (var in = MigrationRunner.class.getResourceAsStream("/db/migration/V5__feed_logs_partitioned.sql")) {
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        var statements = MigrationRunner.splitStatements(script.replaceAll("(?m)^\\s*--.*$", ""));
+
+        assertThat(statements).filteredOn(sql -> sql.strip().startsWith("DO $$")).singleElement()
+            .satisfies(sql -> assertThat(sql.strip()).endsWith("$$"));
+    }
+}
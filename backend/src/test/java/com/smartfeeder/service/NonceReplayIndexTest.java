@@ -0,0 +1,46 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class NonceReplayIndexTest {
+
+    @Test
+    void rejectsDuplicateNoncePerDevice() {
+        NonceReplayIndex index = new NonceReplayIndex(300, 30);
+
+        assertThat(index.register("feeder-001", "n-1", 1_700_000_000)).isTrue();
+        assertThat(index.register("feeder-001", "n-1", 1_700_000_000)).isFalse();
+        assertThat(index.register("feeder-001", "n-1", 1_700_000_100)).isFalse();
+        assertThat(index.register("feeder-002", "n-1", 1_700_000_000)).isTrue();
+    }
+
+    @Test
+    void purgeDropsOnlyFullyExpiredBuckets() {
+        NonceReplayIndex index = new NonceReplayIndex(300, 30);
+        long now = 1_700_000_000;
+
+        index.register("feeder-001", "old", now - 400);
+        index.register("feeder-001", "recent", now - 10);
+
+        index.purgeOlderThan(now - 300);
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.register("feeder-001", "old", now - 10)).isTrue();
+        assertThat(index.register("feeder-001", "recent", now - 10)).isFalse();
+    }
+
+    @Test
+    void reusesRingSlotsAsWindowSlides() {
+        NonceReplayIndex index = new NonceReplayIndex(60, 10);
+        long start = 1_700_000_000;
+
+        for (long ts = start; ts < start + 3_600; ts += 5) {
+            index.purgeOlderThan(ts - 60);
+            assertThat(index.register("feeder-001", "n-" + ts, ts)).isTrue();
+        }
+
+        assertThat(index.size()).isLessThanOrEqualTo(2 * 60 / 5 + 2);
+    }
+}
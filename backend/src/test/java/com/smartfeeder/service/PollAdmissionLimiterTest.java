@@ -0,0 +1,28 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.smartfeeder.TestAppConfig;
+import org.junit.jupiter.api.Test;
+
+class PollAdmissionLimiterTest {
+
+    @Test
+    void leavesReservedConnectionsToAdminAndShedsWithJitteredRetry() {
+        // Pool of 6: two stay with admin routes, one with the background writers.
+        PollAdmissionLimiter limiter = PollAdmissionLimiter.of(new TestAppConfig(false, 300, "session-secret", "encryption-key"), 6);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.stats()).isEqualTo(new PollAdmissionLimiter.Stats(3, 3, 3, 1));
+
+        limiter.release();
+        assertThat(limiter.tryAcquire()).isTrue();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.retryAfterSec()).isBetween(5, 30);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class PollIntervalPolicyTest {
+
+    @Test
+    void backsOffWhileIdleAndShortensWhileManaged() {
+        AtomicLong now = new AtomicLong(1_700_000_000_000L);
+        PollIntervalPolicy policy = new PollIntervalPolicy(true, 60, 5, 600, 120, 10, now::get, () -> 0.5);
+
+        assertThat(policy.next("feeder-001", false)).isEqualTo(60);
+        assertThat(policy.next("feeder-001", false)).isEqualTo(120);
+        assertThat(policy.next("feeder-001", false)).isEqualTo(240);
+        assertThat(policy.next("feeder-001", false)).isEqualTo(480);
+        assertThat(policy.next("feeder-001", false)).isEqualTo(600);
+        assertThat(policy.next("feeder-001", false)).isEqualTo(600);
+
+        policy.markActive("feeder-001");
+        assertThat(policy.next("feeder-001", false)).isEqualTo(5);
+        assertThat(policy.stats().active()).isEqualTo(1);
+
+        now.addAndGet(121_000);
+        assertThat(policy.next("feeder-001", false)).isEqualTo(60);
+        assertThat(policy.next("feeder-001", false)).isEqualTo(120);
+        assertThat(policy.next("feeder-001", true)).isEqualTo(5);
+        assertThat(policy.next("feeder-002", false)).isEqualTo(60);
+    }
+
+    @Test
+    void backedOffIdleDeviceStaysOnlineUntilItsIntervalPasses() {
+        AtomicLong now = new AtomicLong(1_700_000_000_000L);
+        PollIntervalPolicy policy = new PollIntervalPolicy(true, 60, 5, 600, 120, 10, now::get, () -> 0.5);
+        for (int i = 0; i < 6; i++) {
+            now.addAndGet(1_000);
+            policy.next("feeder-001", false);
+        }
+        Instant seenAt = Instant.ofEpochMilli(now.get());
+
+        // Backed off to maxSec, so online for ten minutes past the last poll, not the old fixed two.
+        assertThat(policy.onlineWindow("feeder-001", seenAt))
+            .isEqualTo(Duration.ofSeconds(600 + PollIntervalPolicy.ONLINE_GRACE_SEC));
+
+        // Managed again: this node told it to come back in 5s.
+        policy.next("feeder-001", true);
+        assertThat(policy.onlineWindow("feeder-001", seenAt))
+            .isEqualTo(Duration.ofSeconds(5 + PollIntervalPolicy.ONLINE_GRACE_SEC));
+
+        // A later poll answered by another node, or a device this node never answered: maxSec plus full jitter.
+        assertThat(policy.onlineWindow("feeder-001", seenAt.plusSeconds(1)))
+            .isEqualTo(Duration.ofSeconds(660 + PollIntervalPolicy.ONLINE_GRACE_SEC));
+        assertThat(policy.onlineWindow("feeder-002", seenAt))
+            .isEqualTo(Duration.ofSeconds(660 + PollIntervalPolicy.ONLINE_GRACE_SEC));
+
+        PollIntervalPolicy fixed = new PollIntervalPolicy(false, 60, 5, 600, 120, 10, now::get, () -> 0.999);
+        assertThat(fixed.onlineWindow("feeder-001", seenAt))
+            .isEqualTo(Duration.ofSeconds(60 + PollIntervalPolicy.ONLINE_GRACE_SEC));
+    }
+
+    @Test
+    void jitterSpreadsIntervalsAndFixedModeDoesNot() {
+        PollIntervalPolicy low = new PollIntervalPolicy(true, 60, 5, 600, 120, 10, () -> 0L, () -> 0.0);
+        PollIntervalPolicy high = new PollIntervalPolicy(true, 60, 5, 600, 120, 10, () -> 0L, () -> 0.999);
+        PollIntervalPolicy fixed = new PollIntervalPolicy(false, 60, 5, 600, 120, 10, () -> 0L, () -> 0.0);
+
+        assertThat(low.next("feeder-001", false)).isEqualTo(54);
+        assertThat(high.next("feeder-001", false)).isEqualTo(66);
+        assertThat(fixed.next("feeder-001", true)).isEqualTo(60);
+        assertThat(fixed.stats().devices()).isZero();
+    }
+}
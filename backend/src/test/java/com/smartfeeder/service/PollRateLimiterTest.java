@@ -0,0 +1,99 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class PollRateLimiterTest {
+
+    @Test
+    void limitsPerKeyWithinAMinuteAndResetsOnTheNext() {
+        AtomicLong now = new AtomicLong(1_700_000_000_000L);
+        PollRateLimiter limiter = new PollRateLimiter(RateLimitAlgorithm.FIXED_WINDOW, 3, "", 64, now::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.allow("feeder-001")).isTrue();
+        }
+        assertThat(limiter.allow("feeder-001")).isFalse();
+        assertThat(limiter.allow("feeder-002")).isTrue();
+
+        now.addAndGet(60_000);
+        assertThat(limiter.allow("feeder-001")).isTrue();
+        assertThat(limiter.stats().liveKeys()).isEqualTo(1);
+    }
+
+    @Test
+    void memoryStaysBoundedAndStaleWindowsAreReused() {
+        AtomicLong now = new AtomicLong(1_700_000_000_000L);
+        PollRateLimiter limiter = new PollRateLimiter(RateLimitAlgorithm.FIXED_WINDOW, 1, "", 64, now::get);
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.allow("bogus-" + i);
+        }
+        assertThat(limiter.stats().slots()).isEqualTo(64);
+        assertThat(limiter.stats().overflows()).isPositive();
+
+        now.addAndGet(60_000);
+        assertThat(limiter.allow("feeder-001")).isTrue();
+        assertThat(limiter.allow("feeder-001")).isFalse();
+    }
+
+    @Test
+    void tokenBucketDoesNotDoubleBurstAcrossMinuteBoundary() {
+        AtomicLong now = new AtomicLong(1_700_000_040_000L - 1_000);
+        PollRateLimiter limiter = new PollRateLimiter(RateLimitAlgorithm.TOKEN_BUCKET, 6, "", 64, now::get);
+
+        int allowed = 0;
+        for (int i = 0; i < 12; i++) {
+            if (limiter.allow("feeder-001")) {
+                allowed++;
+            }
+        }
+        now.addAndGet(2_000);
+        for (int i = 0; i < 12; i++) {
+            if (limiter.allow("feeder-001")) {
+                allowed++;
+            }
+        }
+
+        assertThat(allowed).isEqualTo(6);
+
+        now.addAndGet(10_000);
+        assertThat(limiter.allow("feeder-001")).isTrue();
+        assertThat(limiter.allow("feeder-001")).isFalse();
+    }
+
+    @Test
+    void slidingWindowWeighsThePreviousMinute() {
+        AtomicLong now = new AtomicLong(1_700_000_040_000L - 1_000);
+        PollRateLimiter limiter = new PollRateLimiter(RateLimitAlgorithm.SLIDING_WINDOW, 10, "", 64, now::get);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.allow("feeder-001")).isTrue();
+        }
+        // 15s into the next minute three quarters of the previous one still count: 7.5 of 10.
+        now.addAndGet(16_000);
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.allow("feeder-001")).isTrue();
+        }
+        assertThat(limiter.allow("feeder-001")).isFalse();
+    }
+
+    @Test
+    void deviceOverrideWinsOverFirmwareOverride() {
+        AtomicLong now = new AtomicLong(1_700_000_000_000L);
+        PollRateLimiter limiter = new PollRateLimiter(
+            RateLimitAlgorithm.FIXED_WINDOW, 100, "device:feeder-001=1, firmware:0.9.0=2", 64, now::get);
+
+        assertThat(limiter.allow("feeder-001", "0.9.0").allowed()).isTrue();
+        var rejected = limiter.allow("feeder-001", "0.9.0");
+        assertThat(rejected.allowed()).isFalse();
+        assertThat(rejected.source()).isEqualTo(PollRateLimiter.LimitSource.DEVICE);
+
+        assertThat(limiter.allow("feeder-002", "0.9.0").allowed()).isTrue();
+        assertThat(limiter.allow("feeder-002", "0.9.0").allowed()).isTrue();
+        assertThat(limiter.allow("feeder-002", "0.9.0").source()).isEqualTo(PollRateLimiter.LimitSource.FIRMWARE);
+        assertThat(limiter.allow("feeder-003", "1.0.0").source()).isEqualTo(PollRateLimiter.LimitSource.DEFAULT);
+    }
+}
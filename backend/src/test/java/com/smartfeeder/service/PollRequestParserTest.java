@@ -0,0 +1,137 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.smartfeeder.domain.PollApi;
+import com.smartfeeder.util.Cbors;
+import com.smartfeeder.util.Jsons;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class PollRequestParserTest {
+
+    @Test
+    void keepsMetaAsSentAndDropsUnknownStatusFields() {
+        String body = """
+            {"deviceId": "feeder-001", "ts": 1700000000, "extra": {"nested": [1, 2]},
+             "status": { "fw": "1.0.3", "rssi": -60, "uptimeSec": 12, "error": null, "board": "rev-b" },
+             "log": [{"ts": 1699999990, "type": "auto_feed", "msg": "ok", "meta": {"portionMs": 1200, "\u043a\u043b\u044e\u0447": "\u0437\u043d\u0430\u0447\u0435\u043d\u0438\u0435"}},
+                     {"ts": 1699999995, "type": "info", "msg": "no meta"}],
+             "ack": ["c1", "c2"], "configVersion": 7}
+            """;
+
+        var parsed = PollRequestParser.parse(body.getBytes(StandardCharsets.UTF_8));
+
+        var request = parsed.request();
+        assertThat(request.deviceId()).isEqualTo("feeder-001");
+        assertThat(request.ts()).isEqualTo(1700000000L);
+        assertThat(request.status().fw()).isEqualTo("1.0.3");
+        assertThat(request.status().rssi()).isEqualTo(-60);
+        assertThat(request.status().lastFeedTs()).isNull();
+        assertThat(request.log()).hasSize(2);
+        assertThat(request.log().get(0).type()).isEqualTo("auto_feed");
+        assertThat(request.ack()).containsExactly("c1", "c2");
+        assertThat(request.configVersion()).isEqualTo(7L);
+
+        assertThat(parsed.statusJson()).isEqualTo(Jsons.stringify(request.status())).doesNotContain("board");
+        assertThat(parsed.logMetaJson()).containsExactly("{\"portionMs\": 1200, \"\u043a\u043b\u044e\u0447\": \"\u0437\u043d\u0430\u0447\u0435\u043d\u0438\u0435\"}", "{}");
+    }
+
+    @Test
+    void keepsStatusAsSentWhenItHoldsOnlyKnownFields() {
+        String body = "{\"deviceId\": \"feeder-001\", \"ts\": 1, \"status\": { \"fw\": \"1.0.3\", \"rssi\": -60 }}";
+
+        var parsed = PollRequestParser.parse(body.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(parsed.statusJson()).isEqualTo("{ \"fw\": \"1.0.3\", \"rssi\": -60 }");
+    }
+
+    @Test
+    void treatsMissingPartsAsEmptyAndRejectsMalformedBodies() {
+        var parsed = PollRequestParser.parse("{\"deviceId\":\"feeder-001\",\"ts\":1,\"status\":null}".getBytes());
+
+        assertThat(parsed.request().status()).isNull();
+        assertThat(parsed.request().log()).isNull();
+        assertThat(parsed.request().configVersion()).isNull();
+        assertThat(parsed.statusJson()).isEqualTo("{}");
+
+        assertThatThrownBy(() -> PollRequestParser.parse("{\"deviceId\":\"feeder-001\",\"ts\":\"1\"}".getBytes()))
+            .isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> PollRequestParser.parse("{\"deviceId\":\"feeder-001\"".getBytes()))
+            .isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> PollRequestParser.parse("[]".getBytes()))
+            .isInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> PollRequestParser.parse(new byte[0]))
+            .isInstanceOf(ApiException.class);
+    }
+
+    @Test
+    void readsCborBodyIntoTheSameRequestWithJsonStatusAndMeta() {
+        var request = new PollApi.PollRequest(
+            "feeder-001",
+            1700000000L,
+            new PollApi.PollStatus("1.0.3", 12, -60, null, null),
+            List.of(new PollApi.PollLogItem(1699999990L, "AUTO_FEED", "ok", Map.of("portionMs", 1200))),
+            List.of("c1"),
+            null
+        );
+
+        var parsed = PollRequestParser.parse(Cbors.bytes(request), PollEncoding.CBOR);
+
+        assertThat(parsed.request().deviceId()).isEqualTo("feeder-001");
+        assertThat(parsed.request().status()).isEqualTo(request.status());
+        assertThat(parsed.request().ack()).containsExactly("c1");
+        assertThat(parsed.statusJson()).isEqualTo(Jsons.stringify(request.status()));
+        assertThat(parsed.logMetaJson()).containsExactly("{\"portionMs\":1200}");
+        assertThat(PollEncoding.ofContentType("application/cbor")).isEqualTo(PollEncoding.CBOR);
+        assertThat(PollEncoding.forResponse(null, PollEncoding.CBOR)).isEqualTo(PollEncoding.CBOR);
+        assertThat(PollEncoding.forResponse("application/json", PollEncoding.CBOR)).isEqualTo(PollEncoding.JSON);
+    }
+
+    @Test
+    void splitsBatchIntoPollsKeepingEachPollsBytesAsSent() {
+        String first = "{\"deviceId\": \"feeder-001\", \"ts\": 1700000000, \"status\": {\"rssi\": -60}}";
+        String body = "{\"polls\": ["
+            + "{\"deviceId\": \"feeder-001\", \"nonce\": \"n1\", \"sign\": \"s1\", \"poll\": " + first + "},"
+            + "{\"deviceId\": \"feeder-002\", \"poll\": {\"deviceId\": \"feeder-002\", \"ts\": \"bad\"}},"
+            + "{\"deviceId\": \"feeder-003\"}"
+            + "], \"gateway\": {\"id\": \"gw-1\"}}";
+
+        var items = PollRequestParser.parseBatch(body.getBytes(StandardCharsets.UTF_8), PollEncoding.JSON, 10);
+
+        assertThat(items).hasSize(3);
+        assertThat(items.get(0).nonce()).isEqualTo("n1");
+        assertThat(items.get(0).signature()).isEqualTo("s1");
+        assertThat(new String(items.get(0).parsed().body(), StandardCharsets.UTF_8)).isEqualTo(first);
+        assertThat(items.get(0).parsed().statusJson()).isEqualTo("{\"rssi\": -60}");
+        assertThat(items.get(1).error().publicMessage()).isEqualTo("invalid_json");
+        assertThat(items.get(2).error().publicMessage()).isEqualTo("request_body_required");
+
+        assertThatThrownBy(() -> PollRequestParser.parseBatch(body.getBytes(StandardCharsets.UTF_8), PollEncoding.JSON, 2))
+            .isInstanceOf(ApiException.class)
+            .hasMessage("batch_too_large");
+        assertThatThrownBy(() -> PollRequestParser.parseBatch("{\"polls\": []}".getBytes(), PollEncoding.JSON, 10))
+            .isInstanceOf(ApiException.class)
+            .hasMessage("polls_required");
+    }
+
+    @Test
+    void readsCborBatchPollsFromByteStrings() {
+        var request = new PollApi.PollRequest("feeder-001", 1700000000L, null, null, List.of("c1"), 3L);
+        byte[] poll = Cbors.bytes(request);
+
+        var items = PollRequestParser.parseBatch(
+            Cbors.bytes(Map.of("polls", List.of(Map.of("deviceId", "feeder-001", "poll", poll)))),
+            PollEncoding.CBOR,
+            10
+        );
+
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).parsed().body()).isEqualTo(poll);
+        assertThat(items.get(0).parsed().request().ack()).containsExactly("c1");
+        assertThat(items.get(0).parsed().request().configVersion()).isEqualTo(3L);
+    }
+}
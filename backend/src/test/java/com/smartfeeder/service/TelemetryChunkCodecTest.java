@@ -0,0 +1,52 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class TelemetryChunkCodecTest {
+    @Test
+    void roundTripsIrregularSamples() {
+        var samples = new TelemetryChunkCodec.Samples(
+            5,
+            new long[]{1_772_600_000L, 1_772_600_060L, 1_772_600_119L, 1_772_600_119L, 1_772_599_990L},
+            new int[]{-61, -61, -75, 0, -120},
+            new long[]{3_600, 3_660, 3_719, 5, 0},
+            new String[]{null, "JAM", "JAM", "\u0414\u0430\u0442\u0447\u0438\u043a", null}
+        );
+
+        var decoded = TelemetryChunkCodec.decode(TelemetryChunkCodec.encode(samples));
+
+        assertThat(decoded.count()).isEqualTo(5);
+        assertThat(decoded.tsSec()).containsExactly(samples.tsSec());
+        assertThat(decoded.rssi()).containsExactly(samples.rssi());
+        assertThat(decoded.uptimeSec()).containsExactly(samples.uptimeSec());
+        assertThat(decoded.error()).containsExactly(samples.error());
+    }
+
+    @Test
+    void steadyPollingPacksIntoFewBytesPerSample() {
+        int count = 720;
+        long[] ts = new long[count];
+        int[] rssi = new int[count];
+        long[] uptime = new long[count];
+        String[] error = new String[count];
+        for (int i = 0; i < count; i++) {
+            ts[i] = 1_772_600_000L + i * 60L;
+            rssi[i] = -60 - (i % 3);
+            uptime[i] = 86_400L + i * 60L;
+        }
+
+        byte[] encoded = TelemetryChunkCodec.encode(new TelemetryChunkCodec.Samples(count, ts, rssi, uptime, error));
+
+        assertThat(encoded.length).isLessThan(count * 4);
+        assertThat(TelemetryChunkCodec.decode(encoded).rssi()).containsExactly(rssi);
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        assertThatThrownBy(() -> TelemetryChunkCodec.decode(new byte[]{9, 0, 0}))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,155 @@
+package com.smartfeeder.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.smartfeeder.dao.StorageService;
+import com.smartfeeder.domain.AdminApi;
+import com.smartfeeder.domain.PollApi;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+
+class TelemetryStoreTest {
+    private static final Instant SEEN_AT = Instant.parse("2026-03-04T10:15:00Z");
+    private static final Instant FROM = Instant.parse("2026-03-04T00:00:00Z");
+    private static final Instant TO = Instant.parse("2026-03-05T00:00:00Z");
+
+    private final AtomicLong clock = new AtomicLong(SEEN_AT.toEpochMilli());
+    private final List<StorageService.TelemetryChunkRow> table = new ArrayList<>();
+    private final List<Instant> retentionCutoffs = new ArrayList<>();
+
+    @Test
+    void readsSealedAndOpenChunksBackThroughTheCodecAfterFlush() {
+        TelemetryStore store = store(table::addAll);
+        for (int i = 0; i < 4; i++) {
+            store.record("feeder-001", SEEN_AT.plusSeconds(i * 5L), status(i));
+        }
+        store.record("feeder-002", SEEN_AT, status(7));
+        store.record("feeder-003", SEEN_AT, null);
+
+        assertThat(store.stats().samples()).isEqualTo(5);
+        assertThat(store.stats().openChunks()).isEqualTo(2);
+        assertThat(store.stats().pendingChunks()).isEqualTo(1);
+        // Before any write the sealed chunk and the open one are read from memory.
+        assertThat(store.read("feeder-001", FROM, TO, 100)).containsExactly(sample(0), sample(1), sample(2), sample(3));
+
+        // Both open chunks are past chunkMaxAgeSec now.
+        clock.addAndGet(61_000);
+        store.flush();
+
+        assertThat(store.stats().openChunks()).isZero();
+        assertThat(store.stats().pendingChunks()).isZero();
+        assertThat(store.stats().writtenChunks()).isEqualTo(3);
+        assertThat(table).extracting(StorageService.TelemetryChunkRow::deviceId)
+            .containsExactly("feeder-001", "feeder-001", "feeder-002");
+        assertThat(table.get(0).startTs()).isEqualTo(SEEN_AT);
+        assertThat(table.get(0).endTs()).isEqualTo(SEEN_AT.plusSeconds(10));
+        assertThat(table.get(0).samples()).isEqualTo(3);
+        assertThat(store.stats().writtenBytes())
+            .isEqualTo(table.stream().mapToLong(row -> row.data().length).sum());
+
+        // Everything now comes from the encoded rows, plus one new sample still open.
+        store.record("feeder-001", SEEN_AT.plusSeconds(20), status(4));
+        assertThat(store.read("feeder-001", FROM, TO, 100))
+            .containsExactly(sample(0), sample(1), sample(2), sample(3), sample(4));
+        assertThat(store.read("feeder-002", FROM, TO, 100))
+            .containsExactly(new AdminApi.TelemetrySample(SEEN_AT, -67, 135, null));
+        assertThat(store.read("feeder-003", FROM, TO, 100)).isEmpty();
+    }
+
+    @Test
+    void readKeepsTheRangeAndTheNewestSamplesPastTheLimit() {
+        TelemetryStore store = store(table::addAll);
+        for (int i = 0; i < 5; i++) {
+            store.record("feeder-001", SEEN_AT.plusSeconds(i * 5L), status(i));
+        }
+        clock.addAndGet(61_000);
+        store.flush();
+
+        assertThat(store.read("feeder-001", FROM, TO, 2)).containsExactly(sample(3), sample(4));
+        // from is inclusive, to exclusive.
+        assertThat(store.read("feeder-001", SEEN_AT.plusSeconds(5), SEEN_AT.plusSeconds(15), 100))
+            .containsExactly(sample(1), sample(2));
+    }
+
+    @Test
+    void failedWriteKeepsChunksReadableAndRetriesThem() {
+        boolean[] fail = {true};
+        TelemetryStore store = store(rows -> {
+            // The insert went through but the commit was lost, so the rows are stored and still queued.
+            table.addAll(rows);
+            if (fail[0]) {
+                throw new IllegalStateException("database is down");
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            store.record("feeder-001", SEEN_AT.plusSeconds(i * 5L), status(i));
+        }
+
+        assertThatThrownBy(store::flush).isInstanceOf(IllegalStateException.class);
+        assertThat(store.stats().pendingChunks()).isEqualTo(1);
+        assertThat(store.stats().failedFlushes()).isEqualTo(1);
+        assertThat(store.stats().writtenChunks()).isZero();
+        assertThat(store.read("feeder-001", FROM, TO, 100)).containsExactly(sample(0), sample(1), sample(2));
+
+        table.clear();
+        fail[0] = false;
+        store.flush();
+
+        assertThat(store.stats().pendingChunks()).isZero();
+        assertThat(table).hasSize(1);
+        assertThat(store.read("feeder-001", FROM, TO, 100)).containsExactly(sample(0), sample(1), sample(2));
+    }
+
+    @Test
+    void deletesChunksPastRetentionAtMostHourly() {
+        TelemetryStore store = store(table::addAll);
+
+        store.flush();
+        clock.addAndGet(Duration.ofMinutes(30).toMillis());
+        store.flush();
+        clock.addAndGet(Duration.ofMinutes(30).toMillis());
+        store.flush();
+
+        assertThat(retentionCutoffs).containsExactly(
+            SEEN_AT.minus(Duration.ofDays(90)),
+            SEEN_AT.plus(Duration.ofHours(1)).minus(Duration.ofDays(90))
+        );
+    }
+
+    @Test
+    void disabledStoreIgnoresPolls() {
+        TelemetryStore store = new TelemetryStore(table::addAll, this::list, retentionCutoffs::add,
+            false, 3, 60, 10, 90, clock::get);
+
+        store.record("feeder-001", SEEN_AT, status(0));
+
+        assertThat(store.stats().samples()).isZero();
+        assertThat(store.stats().openChunks()).isZero();
+    }
+
+    private TelemetryStore store(Consumer<List<StorageService.TelemetryChunkRow>> writer) {
+        return new TelemetryStore(writer, this::list, retentionCutoffs::add, true, 3, 60, 10, 90, clock::get);
+    }
+
+    // Stands in for device_telemetry_chunks: chunks of one device overlapping [from, to).
+    private List<StorageService.TelemetryChunkRow> list(String deviceId, Instant from, Instant to) {
+        return table.stream()
+            .filter(row -> row.deviceId().equals(deviceId))
+            .filter(row -> !row.endTs().isBefore(from) && row.startTs().isBefore(to))
+            .toList();
+    }
+
+    private static PollApi.PollStatus status(int i) {
+        return new PollApi.PollStatus("1.0.0", 100L + i * 5L, -60 - i, i == 2 ? " JAM " : null, null);
+    }
+
+    private static AdminApi.TelemetrySample sample(int i) {
+        return new AdminApi.TelemetrySample(SEEN_AT.plusSeconds(i * 5L), -60 - i, 100L + i * 5L, i == 2 ? "JAM" : null);
+    }
+}
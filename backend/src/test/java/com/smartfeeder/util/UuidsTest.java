@@ -0,0 +1,35 @@
+package com.smartfeeder.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class UuidsTest {
+
+    @Test
+    void producesVersion7WithTimestamp() {
+        long now = System.currentTimeMillis();
+        UUID id = Uuids.timeOrdered();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(Uuids.timestampMillis(id)).isBetween(now, System.currentTimeMillis() + 1);
+    }
+
+    @Test
+    void staysMonotonicWithinMillisecondAndWhenClockGoesBack() {
+        long millis = 1_770_000_000_000L;
+        UUID previous = Uuids.timeOrdered(millis);
+        // More ids than the 12-bit counter holds force a borrow into the next millisecond.
+        for (int i = 0; i < 10_000; i++) {
+            UUID next = Uuids.timeOrdered(i == 5_000 ? millis - 1_000 : millis);
+            assertThat(next.getMostSignificantBits()).isGreaterThan(previous.getMostSignificantBits());
+            previous = next;
+        }
+        assertThat(Uuids.timestampMillis(previous)).isGreaterThan(millis);
+
+        UUID later = Uuids.timeOrdered(Uuids.timestampMillis(previous) + 1);
+        assertThat(later.compareTo(previous)).isPositive();
+    }
+}
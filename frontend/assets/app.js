@@ -30,7 +30,7 @@
       throw new Error(message);
     }
 
-    return data;
+    return options.withResponse ? { data, response } : data;
   }
 
   function qp(name) {
@@ -273,13 +273,24 @@
       body: { portionMs }
     }),
 
-    listLogs: (deviceId, type, q, page, size) => {
+    listLogs: async (deviceId, type, q, cursor, size) => {
       const params = new URLSearchParams();
       if (type) params.set('type', type);
       if (q) params.set('q', q);
-      params.set('page', page || 0);
+      if (cursor) params.set('cursor', cursor);
       params.set('size', size || 50);
-      return api(`/api/admin/devices/${encodeURIComponent(deviceId)}/logs?${params.toString()}`);
+      const { data, response } = await api(`/api/admin/devices/${encodeURIComponent(deviceId)}/logs?${params.toString()}`, {
+        withResponse: true
+      });
+      return { items: data || [], nextCursor: response.headers.get('X-Next-Cursor') };
+    },
+
+    feedStats: (deviceId, granularity, from, to) => {
+      const params = new URLSearchParams();
+      if (granularity) params.set('granularity', granularity);
+      if (from) params.set('from', from);
+      if (to) params.set('to', to);
+      return api(`/api/admin/devices/${encodeURIComponent(deviceId)}/stats?${params.toString()}`);
     },
 
     securityConfig: () => api('/api/admin/security/config')
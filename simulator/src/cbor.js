@@ -0,0 +1,191 @@
+// Minimal CBOR (RFC 8949) codec for the poll protocol: maps, arrays, text, integers, floats, null, booleans.
+
+function head(major, value, out) {
+  if (value < 24) {
+    out.push((major << 5) | value);
+  } else if (value < 0x100) {
+    out.push((major << 5) | 24, value);
+  } else if (value < 0x10000) {
+    out.push((major << 5) | 25, value >> 8, value & 0xff);
+  } else if (value < 0x100000000) {
+    out.push((major << 5) | 26, (value >>> 24) & 0xff, (value >> 16) & 0xff, (value >> 8) & 0xff, value & 0xff);
+  } else {
+    const big = BigInt(value);
+    out.push((major << 5) | 27);
+    for (let shift = 56n; shift >= 0n; shift -= 8n) {
+      out.push(Number((big >> shift) & 0xffn));
+    }
+  }
+}
+
+function encodeInto(value, out) {
+  if (value === null || value === undefined) {
+    out.push(0xf6);
+  } else if (value === false) {
+    out.push(0xf4);
+  } else if (value === true) {
+    out.push(0xf5);
+  } else if (typeof value === 'number') {
+    if (Number.isSafeInteger(value)) {
+      if (value >= 0) {
+        head(0, value, out);
+      } else {
+        head(1, -1 - value, out);
+      }
+    } else {
+      const buf = Buffer.alloc(8);
+      buf.writeDoubleBE(value);
+      out.push(0xfb, ...buf);
+    }
+  } else if (typeof value === 'string') {
+    const bytes = Buffer.from(value, 'utf8');
+    head(3, bytes.length, out);
+    for (const b of bytes) {
+      out.push(b);
+    }
+  } else if (Array.isArray(value)) {
+    head(4, value.length, out);
+    for (const item of value) {
+      encodeInto(item, out);
+    }
+  } else if (typeof value === 'object') {
+    const keys = Object.keys(value).filter((k) => value[k] !== undefined).sort();
+    head(5, keys.length, out);
+    for (const key of keys) {
+      encodeInto(key, out);
+      encodeInto(value[key], out);
+    }
+  } else {
+    throw new Error(`cbor: unsupported type ${typeof value}`);
+  }
+}
+
+export function encode(value) {
+  const out = [];
+  encodeInto(value, out);
+  return Buffer.from(out);
+}
+
+function halfToNumber(half) {
+  const exp = (half >> 10) & 0x1f;
+  const mant = half & 0x3ff;
+  const sign = half & 0x8000 ? -1 : 1;
+  if (exp === 0) {
+    return sign * mant * 2 ** -24;
+  }
+  if (exp === 31) {
+    return mant ? NaN : sign * Infinity;
+  }
+  return sign * (1 + mant / 1024) * 2 ** (exp - 15);
+}
+
+export function decode(buffer) {
+  const buf = Buffer.from(buffer);
+  let pos = 0;
+
+  function length(info) {
+    if (info < 24) {
+      return info;
+    }
+    let n;
+    switch (info) {
+      case 24:
+        n = buf.readUInt8(pos);
+        pos += 1;
+        return n;
+      case 25:
+        n = buf.readUInt16BE(pos);
+        pos += 2;
+        return n;
+      case 26:
+        n = buf.readUInt32BE(pos);
+        pos += 4;
+        return n;
+      case 27:
+        n = Number(buf.readBigUInt64BE(pos));
+        pos += 8;
+        return n;
+      case 31:
+        return -1;
+      default:
+        throw new Error(`cbor: bad additional info ${info}`);
+    }
+  }
+
+  function item() {
+    const initial = buf.readUInt8(pos++);
+    const major = initial >> 5;
+    const info = initial & 0x1f;
+
+    if (major === 7) {
+      switch (info) {
+        case 20: return false;
+        case 21: return true;
+        case 22:
+        case 23: return null;
+        case 25: { const v = halfToNumber(buf.readUInt16BE(pos)); pos += 2; return v; }
+        case 26: { const v = buf.readFloatBE(pos); pos += 4; return v; }
+        case 27: { const v = buf.readDoubleBE(pos); pos += 8; return v; }
+        default: throw new Error(`cbor: unsupported simple value ${info}`);
+      }
+    }
+
+    const len = length(info);
+    switch (major) {
+      case 0: return len;
+      case 1: return -1 - len;
+      case 2:
+      case 3: {
+        if (len < 0) {
+          const chunks = [];
+          while (buf[pos] !== 0xff) {
+            chunks.push(item());
+          }
+          pos++;
+          return major === 3 ? chunks.join('') : Buffer.concat(chunks);
+        }
+        const slice = buf.subarray(pos, pos + len);
+        pos += len;
+        return major === 3 ? slice.toString('utf8') : Buffer.from(slice);
+      }
+      case 4: {
+        const arr = [];
+        if (len < 0) {
+          while (buf[pos] !== 0xff) {
+            arr.push(item());
+          }
+          pos++;
+        } else {
+          for (let i = 0; i < len; i++) {
+            arr.push(item());
+          }
+        }
+        return arr;
+      }
+      case 5: {
+        const obj = {};
+        if (len < 0) {
+          while (buf[pos] !== 0xff) {
+            const key = item();
+            obj[key] = item();
+          }
+          pos++;
+        } else {
+          for (let i = 0; i < len; i++) {
+            const key = item();
+            obj[key] = item();
+          }
+        }
+        return obj;
+      }
+      case 6: return item();
+      default: throw new Error(`cbor: unsupported major type ${major}`);
+    }
+  }
+
+  const value = item();
+  if (pos !== buf.length) {
+    throw new Error('cbor: trailing bytes');
+  }
+  return value;
+}
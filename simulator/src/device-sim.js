@@ -1,4 +1,5 @@
 import crypto from 'node:crypto';
+import * as cbor from './cbor.js';
 
 function envBool(name, fallback) {
   const raw = process.env[name];
@@ -23,7 +24,11 @@ const cfg = {
   deviceId: process.env.SIM_DEVICE_ID || 'feeder-001',
   deviceSecret: process.env.SIM_DEVICE_SECRET || '',
   signatureEnabled: envBool('SIM_SIGNATURE_ENABLED', false),
+  // json | cbor
+  encoding: (process.env.SIM_ENCODING || 'json').toLowerCase() === 'cbor' ? 'cbor' : 'json',
   intervalSec: Math.max(1, envInt('SIM_INTERVAL_SEC', 10)),
+  // >0: ask the server to hold idle polls up to this many seconds and poll again right after each answer
+  longPollSec: Math.max(0, envInt('SIM_LONG_POLL_SEC', 0)),
   firmware: process.env.SIM_FIRMWARE || '1.0.0',
   rssiBase: envInt('SIM_RSSI_BASE', -55),
   verbose: envBool('SIM_VERBOSE', true)
@@ -32,6 +37,7 @@ const cfg = {
 const state = {
   bootEpochSec: epochNow(),
   intervalSec: cfg.intervalSec,
+  retryAfterSec: null,
   rssi: cfg.rssiBase,
   error: null,
   lastFeedTs: null,
@@ -42,7 +48,8 @@ const state = {
   ackSet: new Set(),
   outboundLogs: [],
   lastScheduleMinuteKey: null,
-  lastConfigFingerprint: null
+  lastConfigFingerprint: null,
+  configVersion: null
 };
 
 function canonicalize(value) {
@@ -311,7 +318,7 @@ function makePollBody() {
   jitterRssi();
   runScheduledFeeding(nowSec);
 
-  return {
+  const body = {
     deviceId: cfg.deviceId,
     ts: nowSec,
     status: {
@@ -324,12 +331,31 @@ function makePollBody() {
     log: state.outboundLogs.slice(0, 100),
     ack: state.pendingAcks.slice(0, 100)
   };
+  // Server omits `config` from the response while this version is current.
+  if (state.configVersion != null) {
+    body.configVersion = state.configVersion;
+  }
+  return body;
+}
+
+function safeDecode(raw) {
+  try {
+    return cbor.decode(raw);
+  } catch {
+    return raw.toString('hex');
+  }
 }
 
 async function pollOnce() {
   const body = makePollBody();
-  const payload = canonicalJson(body);
-  const headers = { 'Content-Type': 'application/json' };
+  // The server verifies the signature over the bytes as sent, so either encoding signs its own payload.
+  const useCbor = cfg.encoding === 'cbor';
+  const payload = useCbor ? cbor.encode(body) : canonicalJson(body);
+  const mediaType = useCbor ? 'application/cbor' : 'application/json';
+  const headers = { 'Content-Type': mediaType, Accept: mediaType };
+  if (cfg.longPollSec > 0) {
+    headers['X-Long-Poll'] = String(cfg.longPollSec);
+  }
 
   if (cfg.signatureEnabled) {
     if (!cfg.deviceSecret) {
@@ -346,18 +372,22 @@ async function pollOnce() {
     body: payload
   });
 
-  const text = await res.text();
+  const raw = Buffer.from(await res.arrayBuffer());
+  const isCbor = (res.headers.get('content-type') || '').includes('application/cbor');
   if (!res.ok) {
-    console.error('[sim] poll failed', res.status, text);
-    return;
+    console.error('[sim] poll failed', res.status, isCbor ? safeDecode(raw) : raw.toString('utf8'));
+    // 503 under load: come back after the server-suggested (jittered) delay.
+    const retryAfter = positiveInt(res.headers.get('retry-after'));
+    state.retryAfterSec = retryAfter == null ? null : clamp(retryAfter, 1, 3600);
+    return false;
   }
 
   let json;
   try {
-    json = JSON.parse(text);
+    json = isCbor ? cbor.decode(raw) : JSON.parse(raw.toString('utf8'));
   } catch {
-    console.error('[sim] invalid json', text);
-    return;
+    console.error('[sim] invalid response body', raw.toString(isCbor ? 'hex' : 'utf8'));
+    return false;
   }
 
   const sentAckCount = body.ack.length;
@@ -376,7 +406,12 @@ async function pollOnce() {
     state.intervalSec = clamp(Math.trunc(json.intervalSec), 1, 3600);
   }
 
-  applyConfig(json?.config);
+  if (json?.config) {
+    applyConfig(json.config);
+    if (Number.isFinite(json?.configVersion)) {
+      state.configVersion = json.configVersion;
+    }
+  }
 
   const commands = Array.isArray(json?.commands) ? json.commands : [];
   for (const command of commands) {
@@ -391,17 +426,25 @@ async function pollOnce() {
       console.log('[sim] heartbeat ok', new Date().toISOString());
     }
   }
+  return true;
 }
 
 let pollTimer = null;
 
 async function loop() {
+  let ok = false;
   try {
-    await pollOnce();
+    ok = await pollOnce();
   } catch (error) {
     console.error('[sim] error', error);
   } finally {
-    pollTimer = setTimeout(loop, state.intervalSec * 1000);
+    // The server already waited on a long-poll; failures fall back to the regular interval.
+    let delaySec = cfg.longPollSec > 0 && ok ? 0 : state.intervalSec;
+    if (!ok && state.retryAfterSec != null) {
+      delaySec = state.retryAfterSec;
+      state.retryAfterSec = null;
+    }
+    pollTimer = setTimeout(loop, delaySec * 1000);
   }
 }
 
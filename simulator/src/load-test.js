@@ -0,0 +1,172 @@
+import crypto from 'node:crypto';
+import fs from 'node:fs';
+
+function envBool(name, fallback) {
+  const raw = process.env[name];
+  if (raw == null) {
+    return fallback;
+  }
+  return String(raw).toLowerCase() === 'true';
+}
+
+function envInt(name, fallback) {
+  const raw = process.env[name];
+  const parsed = Number(raw);
+  return raw != null && Number.isFinite(parsed) ? Math.trunc(parsed) : fallback;
+}
+
+// Closed-loop load against /api/device/poll: LOAD_CONCURRENCY clients send back to back over LOAD_DEVICES devices.
+// Run once per server mode (e.g. HTTP_VIRTUAL_THREADS_ENABLED=false/true) with the same settings and compare.
+const cfg = {
+  baseUrl: (process.env.LOAD_BASE_URL || 'http://localhost:8080').replace(/\/$/, ''),
+  email: process.env.LOAD_EMAIL || 'demo@smartfeeder.local',
+  password: process.env.LOAD_PASSWORD || 'demo12345',
+  devicePrefix: process.env.LOAD_DEVICE_PREFIX || 'load-',
+  devices: Math.max(1, envInt('LOAD_DEVICES', 200)),
+  concurrency: Math.max(1, envInt('LOAD_CONCURRENCY', 200)),
+  durationSec: Math.max(1, envInt('LOAD_DURATION_SEC', 60)),
+  warmupSec: Math.max(0, envInt('LOAD_WARMUP_SEC', 10)),
+  signatureEnabled: envBool('LOAD_SIGNATURE_ENABLED', false),
+  // every Nth request of a client is GET /api/admin/devices instead of a poll; 0 = polls only
+  adminEvery: Math.max(0, envInt('LOAD_ADMIN_EVERY', 0)),
+  label: process.env.LOAD_LABEL || 'run',
+  output: process.env.LOAD_OUTPUT || ''
+};
+
+async function login() {
+  const res = await fetch(`${cfg.baseUrl}/api/auth/login`, {
+    method: 'POST',
+    headers: { 'Content-Type': 'application/json' },
+    body: JSON.stringify({ email: cfg.email, password: cfg.password })
+  });
+  if (!res.ok) {
+    throw new Error(`login failed: ${res.status} ${await res.text()}`);
+  }
+  const cookie = res.headers.get('set-cookie');
+  if (!cookie) {
+    throw new Error('login returned no session cookie');
+  }
+  return cookie.split(';')[0];
+}
+
+// Creates the device or, when it already exists, rotates its secret so the run knows it.
+async function ensureDevice(cookie, deviceId) {
+  const headers = { 'Content-Type': 'application/json', Cookie: cookie };
+  let res = await fetch(`${cfg.baseUrl}/api/admin/devices`, {
+    method: 'POST',
+    headers,
+    body: JSON.stringify({ deviceId, name: `Load ${deviceId}` })
+  });
+  if (!res.ok) {
+    res = await fetch(`${cfg.baseUrl}/api/admin/devices/${encodeURIComponent(deviceId)}/rotate-secret`, {
+      method: 'POST',
+      headers
+    });
+  }
+  if (!res.ok) {
+    throw new Error(`cannot prepare ${deviceId}: ${res.status} ${await res.text()}`);
+  }
+  return (await res.json()).secret;
+}
+
+function percentile(sorted, p) {
+  if (sorted.length === 0) {
+    return 0;
+  }
+  const index = Math.min(sorted.length - 1, Math.ceil((p / 100) * sorted.length) - 1);
+  return sorted[Math.max(0, index)];
+}
+
+function round(value) {
+  return Math.round(value * 100) / 100;
+}
+
+async function main() {
+  const cookie = await login();
+  const devices = [];
+  for (let i = 0; i < cfg.devices; i++) {
+    const id = `${cfg.devicePrefix}${i}`;
+    devices.push({ id, secret: await ensureDevice(cookie, id) });
+  }
+  console.log(`[load] ${cfg.label}: ${cfg.devices} devices ready, ${cfg.concurrency} clients for ${cfg.durationSec}s`);
+
+  const startedAt = Date.now();
+  const measureFrom = startedAt + cfg.warmupSec * 1000;
+  const deadline = measureFrom + cfg.durationSec * 1000;
+  const latencies = [];
+  const statuses = {};
+  let errors = 0;
+
+  async function client(worker) {
+    let n = 0;
+    while (Date.now() < deadline) {
+      const admin = cfg.adminEvery > 0 && ++n % cfg.adminEvery === 0;
+      const device = devices[(worker + n * cfg.concurrency) % devices.length];
+      let url = `${cfg.baseUrl}/api/device/poll`;
+      let init;
+      if (admin) {
+        url = `${cfg.baseUrl}/api/admin/devices`;
+        init = { headers: { Cookie: cookie } };
+      } else {
+        const payload = JSON.stringify({
+          ack: [],
+          deviceId: device.id,
+          log: [],
+          status: { fw: 'load-test', rssi: -60, uptimeSec: Math.floor((Date.now() - startedAt) / 1000) },
+          ts: Math.floor(Date.now() / 1000)
+        });
+        const headers = { 'Content-Type': 'application/json' };
+        if (cfg.signatureEnabled) {
+          headers['X-Device-Id'] = device.id;
+          headers['X-Nonce'] = crypto.randomUUID();
+          headers['X-Sign'] = crypto.createHmac('sha256', device.secret).update(payload).digest('hex');
+        }
+        init = { method: 'POST', headers, body: payload };
+      }
+
+      const t0 = process.hrtime.bigint();
+      let status = 'error';
+      try {
+        const res = await fetch(url, init);
+        await res.arrayBuffer();
+        status = String(res.status);
+      } catch {
+        errors++;
+      }
+      const ms = Number(process.hrtime.bigint() - t0) / 1e6;
+      if (Date.now() >= measureFrom) {
+        latencies.push(ms);
+        statuses[status] = (statuses[status] || 0) + 1;
+      }
+    }
+  }
+
+  await Promise.all(Array.from({ length: cfg.concurrency }, (_, i) => client(i)));
+
+  latencies.sort((a, b) => a - b);
+  const summary = {
+    label: cfg.label,
+    devices: cfg.devices,
+    concurrency: cfg.concurrency,
+    durationSec: cfg.durationSec,
+    requests: latencies.length,
+    throughputRps: round(latencies.length / cfg.durationSec),
+    statuses,
+    transportErrors: errors,
+    latencyMs: {
+      p50: round(percentile(latencies, 50)),
+      p90: round(percentile(latencies, 90)),
+      p99: round(percentile(latencies, 99)),
+      max: round(latencies.length ? latencies[latencies.length - 1] : 0)
+    }
+  };
+  console.log(JSON.stringify(summary, null, 2));
+  if (cfg.output) {
+    fs.appendFileSync(cfg.output, `${JSON.stringify(summary)}\n`);
+  }
+}
+
+main().catch((error) => {
+  console.error('[load] failed', error);
+  process.exit(1);
+});